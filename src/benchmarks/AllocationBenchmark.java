@@ -0,0 +1,167 @@
+package benchmarks;
+
+import formulae.BytecodeGenerator;
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.FormulaKernel;
+import formulae.StripKernel;
+import gui.panels.fractals.FractalPanel;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.TileTask;
+import rendering.ViewTransform;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that working out a pixel allocates nothing, with the interpreter, generated bytecode, the hand-written kernel
+ * FormulaRecogniser picks if there is one, the batch interpreter and, when the vector module is there, the vector
+ * kernel. Each engine draws the default view with a RenderJob, then draws one tile of it again on this thread through
+ * RenderJob#redrawTile many times, so that the JIT has compiled the loop, and the thread's allocation counter from
+ * ThreadMXBean is read around one short tile and one full tile of the same width. A tile allocates its strips and a
+ * copy of the kernel whatever its height, so any difference between the two is allocation per pixel.
+ * Prints the bytes allocated by each tile and per pixel, and exits with status 1 if any engine allocated per pixel.
+ * Needs a JVM whose ThreadMXBean counts allocation, such as HotSpot's, and does not need a window, so it can be run
+ * with -Djava.awt.headless=true.
+ */
+public class AllocationBenchmark
+{
+    private static final String[] FORMULAS = {"c;p*p+c", "c;[arp,aip]*[arp,aip]+c", "c;p*p*p+c-p",
+            "c;[rp*ip,ip]*p+c"};
+
+    private static final double[] VIEW = {-2.0, 2.0, -1.6, 1.6};
+    private static final int SIZE = 400;
+    private static final int ITERATIONS = 500;
+    private static final int SHORT_HEIGHT = 4;
+    private static final int WARM_UPS = 200;
+    private static final int MEASUREMENTS = 5;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static FractalPanel panel;
+    private static AtomicInteger latestGeneration;
+
+    public static void main(String[] args) throws Exception
+    {
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!threads.isThreadAllocatedMemorySupported())
+        {
+            System.out.println("This JVM does not count the memory each thread allocates.");
+            System.exit(2);
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        latestGeneration = new AtomicInteger();
+        boolean allocated = false;
+        for(String formula : FORMULAS)
+        {
+            panel = new FractalPanel();
+            panel.setRawInstructions(formula);
+            panel.validateInstructions();
+            CompiledIteration bytecode = new BytecodeGenerator(panel.getProgram(), EscapeCondition.MODULUS_PERIODIC)
+                    .generate().getConstructor().newInstance();
+            System.out.println(formula + ", " + SIZE + "x" + SIZE + ", " + ITERATIONS + " iterations, tiles of "
+                    + TileTask.TILE_SIZE + "x" + SHORT_HEIGHT + " and " + TileTask.TILE_SIZE + "x"
+                    + TileTask.TILE_SIZE);
+            allocated |= report("interpreter", render(null, false, false));
+            allocated |= report("bytecode", render(bytecode, false, false));
+            CompiledIteration kernel = panel.getCompiledIteration();
+            if(kernel instanceof FormulaKernel)
+            {
+                allocated |= report("kernel", render(kernel, false, false));
+            }
+            allocated |= report("batch", render(bytecode, true, false));
+            if(StripKernel.canVectorise(kernel))
+            {
+                allocated |= report("vectors", render(kernel, false, true));
+            }
+        }
+        if(allocated)
+        {
+            System.out.println("FAILED: working out pixels allocated memory.");
+            System.exit(1);
+        }
+        System.out.println("No engine allocated any memory per pixel.");
+    }
+
+    /**
+     * Prints the bytes the short and full tiles allocated, and gives true if the full tile allocated more.
+     */
+    private static boolean report(String engine, long[] bytes)
+    {
+        int extraPixels = TileTask.TILE_SIZE * (TileTask.TILE_SIZE - SHORT_HEIGHT);
+        System.out.println(String.format("  %-12s %d and %d bytes a tile, %.3f per pixel", engine, bytes[0],
+                bytes[1], (double) (bytes[1] - bytes[0]) / extraPixels));
+        return bytes[1] > bytes[0];
+    }
+
+    /**
+     * Draws the view with the settings given, waits until it has recorded every trap, and measures redrawing a tile
+     * in the middle of it.
+     * @param compiledIteration the bytecode or kernel, or null to use the interpreter
+     * @return the fewest bytes allocated redrawing the short tile and the full tile
+     */
+    private static long[] render(CompiledIteration compiledIteration, boolean batchInterpret, boolean vectorise)
+            throws InterruptedException
+    {
+        RenderListener listener = new RenderListener()
+        {
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+            }
+
+            public void renderFinished(RenderJob job)
+            {
+            }
+        };
+        RenderJob job = new RenderJob(listener, new ViewTransform(VIEW, SIZE, SIZE, ITERATIONS), 0, 0,
+                EscapeCondition.MODULUS, panel.getProgram(), compiledIteration, panel.getAllTrapsIteration(), false,
+                latestGeneration);
+        job.setCheckPeriodicity(true);
+        job.setBatchInterpret(batchInterpret);
+        job.setVectorise(vectorise);
+        job.start(null);
+        while(!job.isAllTrapsRecorded())
+        {
+            Thread.sleep(10);
+        }
+        int x = (SIZE - TileTask.TILE_SIZE) / 2;
+        int y = (SIZE - TileTask.TILE_SIZE) / 2;
+        for(int i = 0; i < WARM_UPS; ++i)
+        {
+            job.redrawTile(x, y, TileTask.TILE_SIZE, SHORT_HEIGHT);
+            job.redrawTile(x, y, TileTask.TILE_SIZE, TileTask.TILE_SIZE);
+        }
+        long[] bytes = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for(int i = 0; i < MEASUREMENTS; ++i)
+        {
+            bytes[0] = Math.min(bytes[0], measure(job, x, y, SHORT_HEIGHT));
+            bytes[1] = Math.min(bytes[1], measure(job, x, y, TileTask.TILE_SIZE));
+        }
+        return bytes;
+    }
+
+    private static long measure(RenderJob job, int x, int y, int height)
+    {
+        long overhead = overhead();
+        long start = allocatedBytes();
+        job.redrawTile(x, y, TileTask.TILE_SIZE, height);
+        return allocatedBytes() - start - overhead;
+    }
+
+    /**
+     * The bytes the current thread has allocated so far.
+     */
+    private static long allocatedBytes()
+    {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * What reading the counter twice allocates by itself, which is taken off every measurement.
+     */
+    private static long overhead()
+    {
+        long start = allocatedBytes();
+        return allocatedBytes() - start;
+    }
+}
@@ -0,0 +1,269 @@
+package benchmarks;
+
+import formulae.BatchInterpreter;
+import formulae.BytecodeGenerator;
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.FormulaInterpreter;
+import formulae.FormulaProgram;
+import formulae.PeriodicityChecker;
+import gui.panels.fractals.FractalPanel;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.ViewTransform;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times running formulas with no kernel of their own a block of pixels at a time with a BatchInterpreter, against one
+ * pixel at a time with generated bytecode and with a FormulaInterpreter, over the default view and a view along the
+ * boundary, with the modulus and with an orbit trap, and gives the number of iterations of each per second. Also
+ * counts the pixels whose number of iterations or last term differ from the interpreter's, which should be none, and
+ * times drawing the whole picture each way.
+ * Does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class BatchInterpreterBenchmark
+{
+    private static final String[] FORMULAS = {"c;p*p*p+c-p", "c;[rp*ip,ip]*p+c", "c;p*p*p*p+c"};
+    private static final String[] NAMES = {"default view", "boundary"};
+    private static final double[][] VIEWS = {{-2.0, 2.0, -1.6, 1.6}, {-0.8, -0.7, 0.1, 0.2}};
+    private static final int[] ESCAPE_CONDITIONS = {EscapeCondition.MODULUS, EscapeCondition.CIRCLE};
+
+    private static final int SIZE = 400;
+    private static final int ITERATIONS = 500;
+    private static final int REPEATS = 3;
+
+    private static FractalPanel panel;
+    private static AtomicInteger latestGeneration;
+
+    public static void main(String[] args) throws Exception
+    {
+        latestGeneration = new AtomicInteger();
+        for(String formula : FORMULAS)
+        {
+            panel = new FractalPanel();
+            panel.setRawInstructions(formula);
+            panel.validateInstructions();
+            System.out.println(formula + ", " + SIZE + "x" + SIZE + ", " + ITERATIONS + " iterations, blocks of "
+                    + BatchInterpreter.BLOCK_SIZE);
+            for(int escapeCondition : ESCAPE_CONDITIONS)
+            {
+                for(int x = 0; x < VIEWS.length; ++x)
+                {
+                    report(NAMES[x] + (escapeCondition == EscapeCondition.MODULUS ? "" : ", circle"),
+                            new ViewTransform(VIEWS[x], SIZE, SIZE, ITERATIONS), escapeCondition);
+                }
+            }
+        }
+    }
+
+    private static void report(String name, ViewTransform view, int escapeCondition) throws Exception
+    {
+        FormulaProgram program = panel.getProgram();
+        boolean checkPeriodicity = escapeCondition == EscapeCondition.MODULUS;
+        BatchInterpreter batch = new BatchInterpreter(program, escapeCondition, checkPeriodicity);
+        CompiledIteration bytecode = new BytecodeGenerator(program, checkPeriodicity
+                ? EscapeCondition.MODULUS_PERIODIC : escapeCondition).generate().getConstructor().newInstance();
+        int[][] batchIterations = new int[SIZE][SIZE];
+        double[][] batchFinals = new double[SIZE * 2][SIZE];
+        int[][] bytecodeIterations = new int[SIZE][SIZE];
+        double[][] bytecodeFinals = new double[SIZE * 2][SIZE];
+        int[][] scalarIterations = new int[SIZE][SIZE];
+        double[][] scalarFinals = new double[SIZE * 2][SIZE];
+        long batchBest = Long.MAX_VALUE;
+        long bytecodeBest = Long.MAX_VALUE;
+        long scalarBest = Long.MAX_VALUE;
+        long batchPictureBest = Long.MAX_VALUE;
+        long bytecodePictureBest = Long.MAX_VALUE;
+        long scalarPictureBest = Long.MAX_VALUE;
+        RenderJob batchPicture = null;
+        RenderJob bytecodePicture = null;
+        RenderJob scalarPicture = null;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            long start = System.nanoTime();
+            iterate(batch, view, batchIterations, batchFinals);
+            long batchTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            iterate(bytecode, view, bytecodeIterations, bytecodeFinals);
+            long bytecodeTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            iterate(program, escapeCondition, checkPeriodicity, view, scalarIterations, scalarFinals);
+            long scalarTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            batchPicture = render(view, escapeCondition, bytecode, true);
+            long batchPictureTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            bytecodePicture = render(view, escapeCondition, bytecode, false);
+            long bytecodePictureTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            scalarPicture = render(view, escapeCondition, null, false);
+            long scalarPictureTime = System.nanoTime() - start;
+            //The first run warms up the JIT
+            if(run > 0)
+            {
+                batchBest = Math.min(batchBest, batchTime);
+                bytecodeBest = Math.min(bytecodeBest, bytecodeTime);
+                scalarBest = Math.min(scalarBest, scalarTime);
+                batchPictureBest = Math.min(batchPictureBest, batchPictureTime);
+                bytecodePictureBest = Math.min(bytecodePictureBest, bytecodePictureTime);
+                scalarPictureBest = Math.min(scalarPictureBest, scalarPictureTime);
+            }
+        }
+        long total = 0;
+        int batchDifferent = 0;
+        int bytecodeDifferent = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                total += scalarIterations[y][x];
+                if(differ(batchIterations, batchFinals, scalarIterations, scalarFinals, x, y))
+                {
+                    ++batchDifferent;
+                }
+                if(differ(bytecodeIterations, bytecodeFinals, scalarIterations, scalarFinals, x, y))
+                {
+                    ++bytecodeDifferent;
+                }
+            }
+        }
+        System.out.println(String.format("  %-22s %7.1f M iterations/s in blocks, %7.1f M iterations/s in bytecode, "
+                + "%7.1f M iterations/s interpreted, speedup %.2fx over bytecode, %.2fx over the interpreter, "
+                + "%d and %d pixels differ", name, total * 1e3 / batchBest, total * 1e3 / bytecodeBest,
+                total * 1e3 / scalarBest, (double) bytecodeBest / batchBest, (double) scalarBest / batchBest,
+                batchDifferent, bytecodeDifferent));
+        System.out.println(String.format("  %-22s %7.1f ms drawn in blocks, %7.1f ms drawn in bytecode, "
+                + "%7.1f ms drawn interpreted, %d and %d pixels differ", "", batchPictureBest / 1e6,
+                bytecodePictureBest / 1e6, scalarPictureBest / 1e6,
+                countDifferences(batchPicture.getImage(), scalarPicture.getImage()),
+                countDifferences(bytecodePicture.getImage(), scalarPicture.getImage())));
+    }
+
+    /**
+     * Works out every row of the view with the batch interpreter.
+     * @param finals given the last terms, real parts on even rows and imaginary parts on odd rows
+     */
+    private static void iterate(BatchInterpreter batch, ViewTransform view, int[][] iterations, double[][] finals)
+    {
+        double[] reals = new double[SIZE];
+        for(int x = 0; x < SIZE; ++x)
+        {
+            reals[x] = view.getReal(x);
+        }
+        for(int y = 0; y < SIZE; ++y)
+        {
+            batch.iterate(reals, SIZE, view.getImag(y), 0, 0, ITERATIONS + 1, iterations[y], finals[2 * y],
+                    finals[2 * y + 1]);
+        }
+    }
+
+    /**
+     * Works out every pixel of the view one at a time, as RenderJob does with generated bytecode.
+     */
+    private static void iterate(CompiledIteration bytecode, ViewTransform view, int[][] iterations,
+                                double[][] finals)
+    {
+        int maxIterations = ITERATIONS + 1;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                iterations[y][x] = bytecode.iterate(view.getReal(x), view.getImag(y), 0, 0, maxIterations);
+                finals[2 * y][x] = bytecode.getFinalReal();
+                finals[2 * y + 1][x] = bytecode.getFinalImag();
+            }
+        }
+    }
+
+    /**
+     * Works out every pixel of the view one at a time, as RenderJob does with an interpreter.
+     */
+    private static void iterate(FormulaProgram program, int escapeCondition, boolean checkPeriodicity,
+                                ViewTransform view, int[][] iterations, double[][] finals)
+    {
+        FormulaInterpreter interpreter = new FormulaInterpreter(program);
+        PeriodicityChecker periodicityChecker = checkPeriodicity ? new PeriodicityChecker() : null;
+        double[] term = new double[2];
+        int maxIterations = ITERATIONS + 1;
+        int iter;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                interpreter.evaluateFirstTerm(program, view.getReal(x), view.getImag(y), 0, 0, term);
+                iter = 0;
+                while(!EscapeCondition.escapes(escapeCondition, term[0], term[1]) && iter < maxIterations)
+                {
+                    ++iter;
+                    interpreter.evaluateNextTerm(program, term[0], term[1], term);
+                    if(periodicityChecker != null)
+                    {
+                        iter += periodicityChecker.skip(iter, term[0], term[1], maxIterations);
+                    }
+                }
+                iterations[y][x] = iter;
+                finals[2 * y][x] = term[0];
+                finals[2 * y + 1][x] = term[1];
+            }
+        }
+    }
+
+    private static boolean differ(int[][] iterations, double[][] finals, int[][] otherIterations,
+                                  double[][] otherFinals, int x, int y)
+    {
+        return iterations[y][x] != otherIterations[y][x] || !sameDouble(finals[2 * y][x], otherFinals[2 * y][x])
+                || !sameDouble(finals[2 * y + 1][x], otherFinals[2 * y + 1][x]);
+    }
+
+    private static boolean sameDouble(double first, double second)
+    {
+        return Double.doubleToLongBits(first) == Double.doubleToLongBits(second);
+    }
+
+    /**
+     * Draws the picture without progressive passes and waits for it to finish, but not for it to record every trap.
+     * @param compiledIteration the bytecode, or null to use the interpreter
+     */
+    private static RenderJob render(ViewTransform view, int escapeCondition, CompiledIteration compiledIteration,
+                                    boolean batchInterpret) throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        RenderListener listener = new RenderListener()
+        {
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+            }
+
+            public void renderFinished(RenderJob job)
+            {
+                done.countDown();
+            }
+        };
+        RenderJob job = new RenderJob(listener, view, 0, 0, escapeCondition, panel.getProgram(),
+                compiledIteration, panel.getAllTrapsIteration(), false, latestGeneration);
+        job.setCheckPeriodicity(true);
+        job.setBatchInterpret(batchInterpret);
+        job.start(null);
+        done.await();
+        return job;
+    }
+
+    private static int countDifferences(BufferedImage first, BufferedImage second)
+    {
+        int differences = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                if(first.getRGB(x, y) != second.getRGB(x, y))
+                {
+                    ++differences;
+                }
+            }
+        }
+        return differences;
+    }
+}
@@ -0,0 +1,253 @@
+package benchmarks;
+
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.PerturbationKernel;
+import gui.panels.fractals.FractalPanel;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.ViewTransform;
+
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times drawing the Mandelbrot set, the Burning Ship and a Julia set at increasingly deep zooms by perturbation from
+ * exact coordinates, against drawing the same range with doubles, and counts how many different numbers of iterations
+ * each gives: once the pixels are too close together for doubles, the picture drawn with them falls apart into a few
+ * blocks. Also checks a sample of pixels against following their sequences with BigDecimal, and counts how many take
+ * a different number of iterations either way. Near the Burning Ship many sequences wander chaotically for hundreds of
+ * iterations before escaping, which no double can follow, so some pixels differ even where doubles are fine.
+ * Does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class DeepZoomBenchmark
+{
+    private static final String[] NAMES = {"Mandelbrot", "Burning Ship", "Julia"};
+    private static final String[] FORMULAS = {"c;p*p+c", "c;[arp,aip]*[arp,aip]+c", "c;p*p+u"};
+
+    /**
+     * For each formula, the real and imaginary parts of the middle of every view: points on the boundary of the set,
+     * so that there is detail however deep the view.
+     */
+    private static final String[][] CENTRES = {
+            {"0.0000000000000000000000000000000000000000000012345",
+                    "1.0000000000000000000000000000000000000000000002345"},
+            {"-1.4707759370910823940646634003672753421963644063053",
+                    "-0.078051729139405492937644226691151689479757627087022"},
+            {"0.21769132490396903794618960879142247267481069125536",
+                    "0.31444302486128861036671832380983246053028210959107"}};
+
+    /**
+     * The point u for the Julia set, Douady's rabbit.
+     */
+    private static final double USER_REAL = -0.123;
+    private static final double USER_IMAG = 0.745;
+
+    /**
+     * Half the width and height of each view.
+     */
+    private static final String[] HALF_SIZES = {"1e-10", "1e-25", "1e-45"};
+
+    private static final int SIZE = 200;
+    private static final int ITERATIONS = 1000;
+    private static final int REPEATS = 3;
+
+    /**
+     * Every this many pixels in each direction is checked against BigDecimal.
+     */
+    private static final int CHECK_SPACING = 20;
+
+    private static FractalPanel panel;
+    private static AtomicInteger latestGeneration;
+
+    public static void main(String[] args) throws Exception
+    {
+        latestGeneration = new AtomicInteger();
+        for(int x = 0; x < FORMULAS.length; ++x)
+        {
+            panel = new FractalPanel();
+            panel.setRawInstructions(FORMULAS[x]);
+            panel.validateInstructions();
+            System.out.println(NAMES[x] + " (" + FORMULAS[x] + "), " + SIZE + "x" + SIZE + ", " + ITERATIONS
+                    + " iterations, around " + CENTRES[x][0] + " + " + CENTRES[x][1] + "i");
+            for(String halfSize : HALF_SIZES)
+            {
+                report(x, new BigDecimal(CENTRES[x][0]), new BigDecimal(CENTRES[x][1]), new BigDecimal(halfSize));
+            }
+        }
+    }
+
+    private static void report(int formula, BigDecimal centreReal, BigDecimal centreImag, BigDecimal halfSize)
+            throws InterruptedException
+    {
+        BigDecimal[] exactRange = {centreReal.subtract(halfSize), centreReal.add(halfSize),
+                centreImag.subtract(halfSize), centreImag.add(halfSize)};
+        double[] displayRange = {exactRange[0].doubleValue(), exactRange[1].doubleValue(),
+                exactRange[2].doubleValue(), exactRange[3].doubleValue()};
+        ViewTransform exactView = new ViewTransform(exactRange, SIZE, SIZE, ITERATIONS);
+        ViewTransform doubleView = new ViewTransform(displayRange, SIZE, SIZE, ITERATIONS);
+        long perturbedBest = Long.MAX_VALUE;
+        long doubleBest = Long.MAX_VALUE;
+        RenderJob perturbed = null;
+        RenderJob doubles = null;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            long start = System.nanoTime();
+            perturbed = render(exactView);
+            long perturbedTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            doubles = render(doubleView);
+            long doubleTime = System.nanoTime() - start;
+            //The first run warms up the JIT
+            if(run > 0)
+            {
+                perturbedBest = Math.min(perturbedBest, perturbedTime);
+                doubleBest = Math.min(doubleBest, doubleTime);
+            }
+        }
+        System.out.println(String.format("  width %-6s %8.1f ms by perturbation (%s), %8.1f ms with doubles, "
+                + "%d pixels differ", halfSize.multiply(BigDecimal.valueOf(2)), perturbedBest / 1e6,
+                perturbed.isPerturbing() ? "perturbing" : "NOT PERTURBING", doubleBest / 1e6,
+                countDifferences(perturbed.getImage(), doubles.getImage())));
+        long rebases = perturbed.getRebases();
+        PerturbationKernel kernel = PerturbationKernel.make(panel.getCompiledIteration(), EscapeCondition.MODULUS,
+                exactView.getReferenceReal(), exactView.getReferenceImag(), USER_REAL, USER_IMAG, ITERATIONS + 1,
+                exactView.getMathContext());
+        CompiledIteration iteration = panel.getCompiledIteration().copy();
+        System.out.println(String.format("  %-12s %d different numbers of iterations by perturbation, %d with "
+                + "doubles, %d rebases per picture", "", countIterations(kernel, exactView, true),
+                countIterations(iteration, doubleView, false), rebases));
+        System.out.println(String.format("  %-12s %s", "", check(formula, exactView, kernel, iteration)));
+    }
+
+    /**
+     * Draws the picture without progressive passes and waits for it to finish, but not for it to record every trap.
+     */
+    private static RenderJob render(ViewTransform view) throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        RenderListener listener = new RenderListener()
+        {
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+            }
+
+            public void renderFinished(RenderJob job)
+            {
+                done.countDown();
+            }
+        };
+        RenderJob job = new RenderJob(listener, view, USER_REAL, USER_IMAG, EscapeCondition.MODULUS,
+                panel.getProgram(), panel.getCompiledIteration(), panel.getAllTrapsIteration(), false,
+                latestGeneration);
+        job.start(null);
+        done.await();
+        return job;
+    }
+
+    /**
+     * The number of different numbers of iterations over the whole picture.
+     * @param deltas if true the iteration is given each pixel's difference from the reference pixel
+     */
+    private static int countIterations(CompiledIteration iteration, ViewTransform view, boolean deltas)
+    {
+        Set<Integer> counts = new HashSet<Integer>();
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                counts.add(iteration.iterate(deltas ? view.getDeltaReal(x) : view.getReal(x),
+                        deltas ? view.getDeltaImag(y) : view.getImag(y), USER_REAL, USER_IMAG, ITERATIONS + 1));
+            }
+        }
+        return counts.size();
+    }
+
+    /**
+     * Follows the sequence of a sample of pixels with BigDecimal, with twice as many digits as the view uses, and
+     * counts how many take a different number of iterations by perturbation and with doubles.
+     */
+    private static String check(int formula, ViewTransform view, PerturbationKernel kernel,
+                                CompiledIteration iteration)
+    {
+        boolean burningShip = formula == 1;
+        boolean julia = formula == 2;
+        MathContext mathContext = new MathContext(view.getMathContext().getPrecision() * 2);
+        int checked = 0;
+        int different = 0;
+        int differentWithDoubles = 0;
+        for(int y = 0; y < SIZE; y += CHECK_SPACING)
+        {
+            for(int x = 0; x < SIZE; x += CHECK_SPACING)
+            {
+                int perturbed = kernel.iterate(view.getDeltaReal(x), view.getDeltaImag(y), USER_REAL, USER_IMAG,
+                        ITERATIONS + 1);
+                int exact = iterateExactly(burningShip, julia, view.getExactReal(x), view.getExactImag(y),
+                        ITERATIONS + 1, mathContext);
+                ++checked;
+                if(perturbed != exact)
+                {
+                    ++different;
+                }
+                if(iteration.iterate(view.getReal(x), view.getImag(y), USER_REAL, USER_IMAG, ITERATIONS + 1) != exact)
+                {
+                    ++differentWithDoubles;
+                }
+            }
+        }
+        return "of " + checked + " pixels checked with BigDecimal, " + different + " differ by perturbation and "
+                + differentWithDoubles + " with doubles";
+    }
+
+    private static int iterateExactly(boolean burningShip, boolean julia, BigDecimal cr, BigDecimal ci, int maxIter,
+                                      MathContext mathContext)
+    {
+        BigDecimal ar = julia ? new BigDecimal(USER_REAL) : cr;
+        BigDecimal ai = julia ? new BigDecimal(USER_IMAG) : ci;
+        BigDecimal pr = cr;
+        BigDecimal pi = ci;
+        BigDecimal nextReal;
+        int iter = 0;
+        while(iter < maxIter)
+        {
+            double real = pr.doubleValue();
+            double imag = pi.doubleValue();
+            if(real * real + imag * imag >= 4.0)
+            {
+                break;
+            }
+            ++iter;
+            if(burningShip)
+            {
+                pr = pr.abs();
+                pi = pi.abs();
+            }
+            nextReal = pr.multiply(pr, mathContext).subtract(pi.multiply(pi, mathContext), mathContext)
+                    .add(ar, mathContext);
+            pi = pr.multiply(pi, mathContext).multiply(BigDecimal.valueOf(2)).add(ai, mathContext);
+            pr = nextReal;
+        }
+        return iter;
+    }
+
+    private static int countDifferences(BufferedImage first, BufferedImage second)
+    {
+        int differences = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                if(first.getRGB(x, y) != second.getRGB(x, y))
+                {
+                    ++differences;
+                }
+            }
+        }
+        return differences;
+    }
+}
@@ -0,0 +1,168 @@
+package benchmarks;
+
+import formulae.BuffaloKernel;
+import formulae.BurningShipKernel;
+import formulae.BytecodeGenerator;
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.FormulaInterpreter;
+import formulae.FormulaProgram;
+import formulae.MandelbrotKernel;
+import gui.panels.fractals.FractalPanel;
+
+/**
+ * Times the built-in formulas over the default view, with and without common subexpression elimination, using both
+ * the interpreter and generated bytecode, then with the hand-written kernel which FormulaRecogniser picks for them.
+ * Every engine uses the modulus escape condition alone. The Mandelbrot kernel does not iterate points in the main
+ * cardioid or the period-2 bulb, and the number of points it rejects is shown.
+ * With the interpreter, eliminating common subexpressions steadily makes the Buffalo about 1.5-1.7x faster. The
+ * Burning Ship's gain swings between none and about 1.5x from one run to the next, depending on how the JIT compiles
+ * the interpreter's loop, so a single run says little about it.
+ * Does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class FormulaBenchmark
+{
+    private static final String[] NAMES = {"Mandelbrot", "Burning Ship", "Buffalo"};
+    private static final String[] FORMULAS = {"c;p*p+c", "c;[arp,aip]*[arp,aip]+c",
+            "c;[arp,aip]*[arp,aip]-[arp,aip]+c"};
+    private static final CompiledIteration[] KERNELS = {new MandelbrotKernel(false, EscapeCondition.MODULUS),
+            new BurningShipKernel(false, EscapeCondition.MODULUS), new BuffaloKernel(false, EscapeCondition.MODULUS)};
+
+    private static final int SIZE = 600;
+    private static final int ITERATIONS = 50;
+    private static final int REPEATS = 5;
+
+    public static void main(String[] args) throws Exception
+    {
+        for(int x = 0; x < FORMULAS.length; ++x)
+        {
+            FormulaProgram plain = compile(FORMULAS[x], false);
+            FormulaProgram shared = compile(FORMULAS[x], true);
+            System.out.println(NAMES[x] + " (" + FORMULAS[x] + ")");
+            System.out.println("  instructions per iteration: " + plain.getNextTerm().length
+                    / FormulaProgram.INSTRUCTION_SIZE + " without CSE, " + shared.getNextTerm().length
+                    / FormulaProgram.INSTRUCTION_SIZE + " with CSE");
+            report("interpreter", timeInterpreter(plain), timeInterpreter(shared));
+            report("bytecode", timeBytecode(plain), timeBytecode(shared));
+            System.out.println(String.format("  %-12s %8.1f ms", "kernel", timeIteration(KERNELS[x]) / 1e6));
+            if(KERNELS[x] instanceof MandelbrotKernel)
+            {
+                //Every run counts the same points
+                MandelbrotKernel kernel = (MandelbrotKernel) KERNELS[x];
+                System.out.println(String.format("  %-12s %d of %d points in the cardioid, %d in the bulb", "rejected",
+                        kernel.getCardioidRejections() / (REPEATS + 1), SIZE * SIZE,
+                        kernel.getBulbRejections() / (REPEATS + 1)));
+            }
+        }
+    }
+
+    private static FormulaProgram compile(String formula, boolean eliminateCommonSubexpressions) throws Exception
+    {
+        FractalPanel panel = new FractalPanel();
+        panel.setEliminateCommonSubexpressions(eliminateCommonSubexpressions);
+        panel.setRawInstructions(formula);
+        panel.validateInstructions();
+        return panel.getProgram();
+    }
+
+    private static void report(String engine, long plainNanos, long sharedNanos)
+    {
+        System.out.println(String.format("  %-12s %8.1f ms without CSE, %8.1f ms with CSE, speedup %.2fx", engine,
+                plainNanos / 1e6, sharedNanos / 1e6, (double) plainNanos / sharedNanos));
+    }
+
+    /**
+     * The best of several runs, after a warm-up run for the JIT.
+     */
+    private static long timeInterpreter(FormulaProgram program)
+    {
+        FormulaInterpreter interpreter = new FormulaInterpreter(program);
+        long best = Long.MAX_VALUE;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            long start = System.nanoTime();
+            long checksum = runInterpreter(program, interpreter);
+            long time = System.nanoTime() - start;
+            if(run > 0)
+            {
+                best = Math.min(best, time);
+            }
+            if(checksum < 0)
+            {
+                System.out.println("Impossible checksum");
+            }
+        }
+        return best;
+    }
+
+    private static long timeBytecode(FormulaProgram program) throws Exception
+    {
+        return timeIteration(new BytecodeGenerator(program, EscapeCondition.MODULUS).generate().getConstructor()
+                .newInstance());
+    }
+
+    private static long timeIteration(CompiledIteration iteration)
+    {
+        long best = Long.MAX_VALUE;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for(int y = 0; y < SIZE; ++y)
+            {
+                for(int x = 0; x < SIZE; ++x)
+                {
+                    checksum += iteration.iterate(getReal(x), getImag(y), 0, 0, ITERATIONS + 1);
+                }
+            }
+            long time = System.nanoTime() - start;
+            if(run > 0)
+            {
+                best = Math.min(best, time);
+            }
+            if(checksum < 0)
+            {
+                System.out.println("Impossible checksum");
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The same loop as RenderJob#renderTile, without any colouring.
+     */
+    private static long runInterpreter(FormulaProgram program, FormulaInterpreter interpreter)
+    {
+        double[] result = new double[2];
+        long checksum = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                double cr = getReal(x);
+                double ci = getImag(y);
+                interpreter.evaluateFirstTerm(program, cr, ci, 0, 0, result);
+                int iterationsManaged = 0;
+                while(!EscapeCondition.modulus(result[0], result[1]) && iterationsManaged < ITERATIONS + 1)
+                {
+                    ++iterationsManaged;
+                    interpreter.evaluateNextTerm(program, result[0], result[1], result);
+                }
+                checksum += iterationsManaged;
+            }
+        }
+        return checksum;
+    }
+
+    //The default view in DisplayParameterPanel
+
+    private static double getReal(int x)
+    {
+        return -2.0 + ((double) x / SIZE) * 4.0;
+    }
+
+    private static double getImag(int y)
+    {
+        return 1.6 - ((double) y / SIZE) * 3.2;
+    }
+}
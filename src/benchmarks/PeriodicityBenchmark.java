@@ -0,0 +1,182 @@
+package benchmarks;
+
+import formulae.BuffaloKernel;
+import formulae.BurningShipKernel;
+import formulae.BytecodeGenerator;
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.FormulaInterpreter;
+import formulae.FormulaProgram;
+import formulae.MandelbrotKernel;
+import formulae.PeriodicityChecker;
+import gui.panels.fractals.FractalPanel;
+
+/**
+ * Times the built-in formulas over views which are mostly inside the set, at a high iteration count, with and without
+ * skipping sequences which repeat (EscapeCondition.MODULUS_PERIODIC), using the hand-written kernel, generated
+ * bytecode and the interpreter. Also checks that every pixel gets exactly the same number of iterations and last
+ * term either way.
+ * Does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class PeriodicityBenchmark
+{
+    private static final String[] NAMES = {"Mandelbrot", "Burning Ship", "Buffalo"};
+    private static final String[] FORMULAS = {"c;p*p+c", "c;[arp,aip]*[arp,aip]+c",
+            "c;[arp,aip]*[arp,aip]-[arp,aip]+c"};
+
+    /**
+     * For each formula, { leftReal, rightReal, downImag, upImag } of a view that is mostly inside the set.
+     */
+    private static final double[][] VIEWS = {{-1.2, 0.3, -0.75, 0.75}, {-1.8, -1.7, -0.05, 0.05},
+            {-1.0, 0.0, -0.5, 0.5}};
+
+    private static final int SIZE = 400;
+    private static final int ITERATIONS = 2000;
+    private static final int REPEATS = 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        for(int x = 0; x < FORMULAS.length; ++x)
+        {
+            FractalPanel panel = new FractalPanel();
+            panel.setRawInstructions(FORMULAS[x]);
+            panel.validateInstructions();
+            FormulaProgram program = panel.getProgram();
+            System.out.println(NAMES[x] + " (" + FORMULAS[x] + "), " + SIZE + "x" + SIZE + ", " + ITERATIONS
+                    + " iterations, real " + VIEWS[x][0] + " to " + VIEWS[x][1] + ", imaginary " + VIEWS[x][2]
+                    + " to " + VIEWS[x][3]);
+            report("kernel", VIEWS[x], makeKernel(x, EscapeCondition.MODULUS),
+                    makeKernel(x, EscapeCondition.MODULUS_PERIODIC));
+            report("bytecode", VIEWS[x], makeBytecode(program, EscapeCondition.MODULUS),
+                    makeBytecode(program, EscapeCondition.MODULUS_PERIODIC));
+            report("interpreter", VIEWS[x], new InterpretedIteration(program, false),
+                    new InterpretedIteration(program, true));
+        }
+    }
+
+    private static CompiledIteration makeKernel(int formula, int escapeCondition)
+    {
+        switch(formula)
+        {
+            case 0:
+                //Without rejecting the cardioid and bulb, which would leave little inside the set to skip
+                return new MandelbrotKernel(false, escapeCondition, false);
+            case 1:
+                return new BurningShipKernel(false, escapeCondition);
+            default:
+                return new BuffaloKernel(false, escapeCondition);
+        }
+    }
+
+    private static CompiledIteration makeBytecode(FormulaProgram program, int escapeCondition) throws Exception
+    {
+        return new BytecodeGenerator(program, escapeCondition).generate().getConstructor().newInstance();
+    }
+
+    private static void report(String engine, double[] view, CompiledIteration plain, CompiledIteration periodic)
+    {
+        long plainNanos = time(view, plain);
+        long periodicNanos = time(view, periodic);
+        System.out.println(String.format("  %-12s %8.1f ms without checking, %8.1f ms with, speedup %.2fx%s", engine,
+                plainNanos / 1e6, periodicNanos / 1e6, (double) plainNanos / periodicNanos,
+                sameResults(view, plain, periodic) ? "" : " - RESULTS DIFFER"));
+    }
+
+    /**
+     * The best of several runs, after a warm-up run for the JIT.
+     */
+    private static long time(double[] view, CompiledIteration iteration)
+    {
+        long best = Long.MAX_VALUE;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for(int y = 0; y < SIZE; ++y)
+            {
+                for(int x = 0; x < SIZE; ++x)
+                {
+                    checksum += iteration.iterate(getReal(view, x), getImag(view, y), 0, 0, ITERATIONS + 1);
+                }
+            }
+            long time = System.nanoTime() - start;
+            if(run > 0)
+            {
+                best = Math.min(best, time);
+            }
+            if(checksum < 0)
+            {
+                System.out.println("Impossible checksum");
+            }
+        }
+        return best;
+    }
+
+    private static boolean sameResults(double[] view, CompiledIteration plain, CompiledIteration periodic)
+    {
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                int plainIterations = plain.iterate(getReal(view, x), getImag(view, y), 0, 0, ITERATIONS + 1);
+                int periodicIterations = periodic.iterate(getReal(view, x), getImag(view, y), 0, 0, ITERATIONS + 1);
+                if(plainIterations != periodicIterations
+                        || Double.compare(plain.getFinalReal(), periodic.getFinalReal()) != 0
+                        || Double.compare(plain.getFinalImag(), periodic.getFinalImag()) != 0)
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double getReal(double[] view, int x)
+    {
+        return view[0] + ((double) x / SIZE) * (view[1] - view[0]);
+    }
+
+    private static double getImag(double[] view, int y)
+    {
+        return view[3] - ((double) y / SIZE) * (view[3] - view[2]);
+    }
+
+    /**
+     * The same loop as RenderJob#renderTile uses with the interpreter, so it can be timed like the other engines.
+     */
+    private static class InterpretedIteration extends CompiledIteration
+    {
+        private final FormulaProgram program;
+        private final FormulaInterpreter interpreter;
+        private final PeriodicityChecker periodicityChecker;
+        private final double[] term;
+
+        private InterpretedIteration(FormulaProgram program, boolean checkPeriodicity)
+        {
+            this.program = program;
+            this.interpreter = new FormulaInterpreter(program);
+            this.periodicityChecker = checkPeriodicity ? new PeriodicityChecker() : null;
+            this.term = new double[2];
+        }
+
+        @Override
+        public int iterate(double cr, double ci, double ur, double ui, int maxIter)
+        {
+            double[] term = this.term;
+            this.interpreter.evaluateFirstTerm(this.program, cr, ci, ur, ui, term);
+            int iterationsManaged = 0;
+            while(!EscapeCondition.modulus(term[0], term[1]) && iterationsManaged < maxIter)
+            {
+                ++iterationsManaged;
+                this.interpreter.evaluateNextTerm(this.program, term[0], term[1], term);
+                if(this.periodicityChecker != null)
+                {
+                    iterationsManaged += this.periodicityChecker.skip(iterationsManaged, term[0], term[1], maxIter);
+                }
+            }
+            this.finalReal = term[0];
+            this.finalImag = term[1];
+            return iterationsManaged;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import formulae.EscapeCondition;
+import gui.panels.fractals.FractalPanel;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.ViewTransform;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times changing the orbit trap of the Mandelbrot set over the default view: drawing the picture again from scratch,
+ * against colouring the IterationBuffer of a picture which has recorded every trap. Also checks that both give the
+ * same picture, and times recording every trap, which happens in the background once a picture is finished.
+ * Does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class RecolourBenchmark
+{
+    private static final String[] NAMES = {"None", "Circle", "Cross (English)", "Cross (Scottish)"};
+    private static final String FORMULA = "c;p*p+c";
+    private static final double[] DISPLAY_RANGE = {-2.0, 2.0, -1.6, 1.6};
+
+    private static final int SIZE = 600;
+    private static final int ITERATIONS = 50;
+    private static final int REPEATS = 5;
+
+    private static FractalPanel panel;
+    private static ViewTransform view;
+    private static AtomicInteger latestGeneration;
+
+    public static void main(String[] args) throws Exception
+    {
+        panel = new FractalPanel();
+        panel.setRawInstructions(FORMULA);
+        panel.validateInstructions();
+        view = new ViewTransform(DISPLAY_RANGE, SIZE, SIZE, ITERATIONS);
+        latestGeneration = new AtomicInteger();
+        RenderJob modulus = render(EscapeCondition.MODULUS, null);
+        long recordBest = Long.MAX_VALUE;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            modulus = render(EscapeCondition.MODULUS, null);
+            long start = System.nanoTime();
+            while(!modulus.isAllTrapsRecorded())
+            {
+                Thread.sleep(0, 100000);
+            }
+            if(run > 0)
+            {
+                recordBest = Math.min(recordBest, System.nanoTime() - start);
+            }
+        }
+        System.out.println("Mandelbrot (" + FORMULA + "), " + SIZE + "x" + SIZE + ", " + ITERATIONS + " iterations");
+        System.out.println(String.format("  recording every trap after drawing: %.1f ms", recordBest / 1e6));
+        for(int condition = EscapeCondition.MODULUS; condition < EscapeCondition.ALL_TRAPS; ++condition)
+        {
+            long renderBest = Long.MAX_VALUE;
+            long recolourBest = Long.MAX_VALUE;
+            RenderJob rendered = null;
+            RenderJob recoloured = null;
+            for(int run = 0; run <= REPEATS; ++run)
+            {
+                long start = System.nanoTime();
+                rendered = render(condition, null);
+                long renderTime = System.nanoTime() - start;
+                //Cancels the background recording of the picture just drawn, so it does not slow the recolouring
+                latestGeneration.incrementAndGet();
+                start = System.nanoTime();
+                recoloured = render(condition, modulus);
+                long recolourTime = System.nanoTime() - start;
+                //The first run warms up the JIT
+                if(run > 0)
+                {
+                    renderBest = Math.min(renderBest, renderTime);
+                    recolourBest = Math.min(recolourBest, recolourTime);
+                }
+            }
+            System.out.println(String.format("  %-17s %8.1f ms to draw, %6.1f ms to recolour, speedup %.1fx%s",
+                    NAMES[condition], renderBest / 1e6, recolourBest / 1e6, (double) renderBest / recolourBest,
+                    sameImage(rendered.getImage(), recoloured.getImage()) ? "" : " - PICTURES DIFFER"));
+        }
+    }
+
+    /**
+     * Draws the picture with one escape condition, without progressive passes, and waits for it to finish, but not
+     * for it to record every trap.
+     * @param finished a finished job to colour again, or null to work out every sequence
+     */
+    private static RenderJob render(int escapeCondition, RenderJob finished) throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        RenderListener listener = new RenderListener()
+        {
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+            }
+
+            public void renderFinished(RenderJob job)
+            {
+                done.countDown();
+            }
+        };
+        panel.setOrbitTrap(NAMES[escapeCondition]);
+        RenderJob job = new RenderJob(listener, view, 0, 0, escapeCondition, panel.getProgram(),
+                panel.getCompiledIteration(), panel.getAllTrapsIteration(), false, latestGeneration);
+        if(finished != null)
+        {
+            job.startRecolouring(finished);
+        }
+        else
+        {
+            job.start(null);
+        }
+        done.await();
+        return job;
+    }
+
+    private static boolean sameImage(BufferedImage first, BufferedImage second)
+    {
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                if(first.getRGB(x, y) != second.getRGB(x, y))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
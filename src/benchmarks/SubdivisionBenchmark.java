@@ -0,0 +1,136 @@
+package benchmarks;
+
+import formulae.EscapeCondition;
+import gui.panels.fractals.FractalPanel;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.ViewTransform;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times drawing the Mandelbrot set, the Burning Ship and a user formula with no hand-written kernel, with no orbit
+ * trap, pixel by pixel, against drawing them by subdivision which guesses regions from their borders and by
+ * subdivision which proves them, over the default view, a view along the boundary and a view mostly inside the set.
+ * Also counts how many pixels each filled without working them out, and how many of those differ from the picture
+ * worked out in full. RenderJob does not prove regions of the Mandelbrot set, whose kernel rejects its main cardioid
+ * and bulb instead.
+ * Does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class SubdivisionBenchmark
+{
+    private static final String[] FORMULAS = {"c;p*p+c", "c;[arp,aip]*[arp,aip]+c", "c;p*p*p*p+c"};
+    private static final String[] NAMES = {"default view", "boundary", "mostly inside"};
+    private static final double[][] VIEWS = {{-2.0, 2.0, -1.6, 1.6}, {-0.8, -0.7, 0.1, 0.2},
+            {-1.2, 0.3, -0.75, 0.75}};
+
+    private static final int SIZE = 600;
+    private static final int ITERATIONS = 500;
+    private static final int REPEATS = 5;
+
+    private static FractalPanel panel;
+    private static AtomicInteger latestGeneration;
+
+    public static void main(String[] args) throws Exception
+    {
+        latestGeneration = new AtomicInteger();
+        for(String formula : FORMULAS)
+        {
+            panel = new FractalPanel();
+            panel.setRawInstructions(formula);
+            panel.validateInstructions();
+            System.out.println(formula + ", " + SIZE + "x" + SIZE + ", " + ITERATIONS + " iterations");
+            report();
+        }
+    }
+
+    private static void report() throws InterruptedException
+    {
+        for(int x = 0; x < VIEWS.length; ++x)
+        {
+            ViewTransform view = new ViewTransform(VIEWS[x], SIZE, SIZE, ITERATIONS);
+            long fullBest = Long.MAX_VALUE;
+            long guessedBest = Long.MAX_VALUE;
+            long provedBest = Long.MAX_VALUE;
+            RenderJob full = null;
+            RenderJob guessed = null;
+            RenderJob proved = null;
+            for(int run = 0; run <= REPEATS; ++run)
+            {
+                long start = System.nanoTime();
+                full = render(view, false, false, false);
+                long fullTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                guessed = render(view, true, false, false);
+                long guessedTime = System.nanoTime() - start;
+                start = System.nanoTime();
+                proved = render(view, false, true, false);
+                long provedTime = System.nanoTime() - start;
+                //The first run warms up the JIT
+                if(run > 0)
+                {
+                    fullBest = Math.min(fullBest, fullTime);
+                    guessedBest = Math.min(guessedBest, guessedTime);
+                    provedBest = Math.min(provedBest, provedTime);
+                }
+            }
+            RenderJob guessedChecked = render(view, true, false, true);
+            RenderJob provedChecked = render(view, false, true, true);
+            System.out.println(String.format("  %-14s %8.1f ms in full, %8.1f ms guessed, speedup %.1fx, %8.1f ms "
+                    + "proved, speedup %.1fx", NAMES[x], fullBest / 1e6, guessedBest / 1e6,
+                    (double) fullBest / guessedBest, provedBest / 1e6, (double) fullBest / provedBest));
+            System.out.println(String.format("  %-14s guessed %d of %d pixels, %d of them wrong, %d pixels differ",
+                    "", guessedChecked.getFilledPixels(), SIZE * SIZE, guessedChecked.getMismatchedPixels(),
+                    countDifferences(full.getImage(), guessed.getImage())));
+            System.out.println(String.format("  %-14s proved %d of %d pixels, %d of them wrong, %d pixels differ",
+                    "", provedChecked.getProvenPixels(), SIZE * SIZE, provedChecked.getMismatchedPixels(),
+                    countDifferences(full.getImage(), proved.getImage())));
+        }
+    }
+
+    /**
+     * Draws the picture without progressive passes and waits for it to finish, but not for it to record every trap.
+     */
+    private static RenderJob render(ViewTransform view, boolean guess, boolean prove, boolean check)
+            throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        RenderListener listener = new RenderListener()
+        {
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+            }
+
+            public void renderFinished(RenderJob job)
+            {
+                done.countDown();
+            }
+        };
+        RenderJob job = new RenderJob(listener, view, 0, 0, EscapeCondition.MODULUS, panel.getProgram(),
+                panel.getCompiledIteration(), panel.getAllTrapsIteration(), false, latestGeneration);
+        job.setSubdivide(guess);
+        job.setProveRegions(prove);
+        job.setCheckSubdivision(check);
+        job.start(null);
+        done.await();
+        return job;
+    }
+
+    private static int countDifferences(BufferedImage first, BufferedImage second)
+    {
+        int differences = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                if(first.getRGB(x, y) != second.getRGB(x, y))
+                {
+                    ++differences;
+                }
+            }
+        }
+        return differences;
+    }
+}
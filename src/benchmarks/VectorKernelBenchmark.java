@@ -0,0 +1,190 @@
+package benchmarks;
+
+import formulae.EscapeCondition;
+import formulae.ScalarStripKernel;
+import formulae.StripKernel;
+import gui.panels.fractals.FractalPanel;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.ViewTransform;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times following the sequences of whole rows of the Mandelbrot set, the Burning Ship and a Julia set a strip at a
+ * time with a VectorKernel, against one pixel at a time with their kernels, over the default view, a view along the
+ * boundary and a view mostly inside the set, and gives the number of iterations of either per second. Also counts the
+ * pixels whose number of iterations or last term differ, which should be none, and times drawing the whole picture
+ * with no orbit trap either way.
+ * Must be run with VectorKernel compiled from vector/src and with --add-modules jdk.incubator.vector to test
+ * anything, and does not need a window, so it can be run with -Djava.awt.headless=true.
+ */
+public class VectorKernelBenchmark
+{
+    private static final String[] FORMULAS = {"c;p*p+c", "c;[arp,aip]*[arp,aip]+c", "c;p*p+u"};
+    private static final String[] NAMES = {"default view", "boundary", "mostly inside"};
+    private static final double[][] VIEWS = {{-2.0, 2.0, -1.6, 1.6}, {-0.8, -0.7, 0.1, 0.2},
+            {-1.2, 0.3, -0.75, 0.75}};
+
+    /**
+     * The point u for the Julia set, Douady's rabbit.
+     */
+    private static final double USER_REAL = -0.123;
+    private static final double USER_IMAG = 0.745;
+
+    private static final int SIZE = 600;
+    private static final int ITERATIONS = 500;
+    private static final int REPEATS = 5;
+
+    private static FractalPanel panel;
+    private static AtomicInteger latestGeneration;
+
+    public static void main(String[] args) throws Exception
+    {
+        latestGeneration = new AtomicInteger();
+        if(!StripKernel.isVectorAvailable())
+        {
+            System.out.println("VectorKernel could not be loaded, so only scalar kernels are used: it must be built "
+                    + "from vector/src and run with --add-modules jdk.incubator.vector.");
+        }
+        for(String formula : FORMULAS)
+        {
+            panel = new FractalPanel();
+            panel.setRawInstructions(formula);
+            panel.validateInstructions();
+            StripKernel strip = StripKernel.make(panel.getCompiledIteration().copy());
+            System.out.println(formula + ", " + SIZE + "x" + SIZE + ", " + ITERATIONS + " iterations, "
+                    + strip.getLanes() + " lanes");
+            for(int x = 0; x < VIEWS.length; ++x)
+            {
+                report(NAMES[x], new ViewTransform(VIEWS[x], SIZE, SIZE, ITERATIONS), strip);
+            }
+        }
+    }
+
+    private static void report(String name, ViewTransform view, StripKernel strip) throws InterruptedException
+    {
+        StripKernel scalar = new ScalarStripKernel(panel.getCompiledIteration().copy());
+        int[][] stripIterations = new int[SIZE][SIZE];
+        double[][] stripFinals = new double[SIZE * 2][SIZE];
+        int[][] scalarIterations = new int[SIZE][SIZE];
+        double[][] scalarFinals = new double[SIZE * 2][SIZE];
+        long stripBest = Long.MAX_VALUE;
+        long scalarBest = Long.MAX_VALUE;
+        long vectorBest = Long.MAX_VALUE;
+        long pictureBest = Long.MAX_VALUE;
+        RenderJob vectors = null;
+        RenderJob doubles = null;
+        for(int run = 0; run <= REPEATS; ++run)
+        {
+            long start = System.nanoTime();
+            iterate(strip, view, stripIterations, stripFinals);
+            long stripTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            iterate(scalar, view, scalarIterations, scalarFinals);
+            long scalarTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            vectors = render(view, true);
+            long vectorTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            doubles = render(view, false);
+            long pictureTime = System.nanoTime() - start;
+            //The first run warms up the JIT
+            if(run > 0)
+            {
+                stripBest = Math.min(stripBest, stripTime);
+                scalarBest = Math.min(scalarBest, scalarTime);
+                vectorBest = Math.min(vectorBest, vectorTime);
+                pictureBest = Math.min(pictureBest, pictureTime);
+            }
+        }
+        long total = 0;
+        int different = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                total += scalarIterations[y][x];
+                if(stripIterations[y][x] != scalarIterations[y][x]
+                        || !sameDouble(stripFinals[2 * y][x], scalarFinals[2 * y][x])
+                        || !sameDouble(stripFinals[2 * y + 1][x], scalarFinals[2 * y + 1][x]))
+                {
+                    ++different;
+                }
+            }
+        }
+        System.out.println(String.format("  %-14s %8.1f M iterations/s in strips, %8.1f M iterations/s one at a time, "
+                + "speedup %.2fx, %d pixels differ", name, total * 1e3 / stripBest, total * 1e3 / scalarBest,
+                (double) scalarBest / stripBest, different));
+        System.out.println(String.format("  %-14s %8.1f ms drawn in strips (%s), %8.1f ms drawn one at a time, "
+                + "%d pixels differ", "", vectorBest / 1e6, vectors.isUsingVectors() ? "using vectors"
+                : "NOT USING VECTORS", pictureBest / 1e6, countDifferences(vectors.getImage(), doubles.getImage())));
+    }
+
+    /**
+     * Works out every row of the view with the strip kernel.
+     * @param finals given the last terms, real parts on even rows and imaginary parts on odd rows
+     */
+    private static void iterate(StripKernel kernel, ViewTransform view, int[][] iterations, double[][] finals)
+    {
+        double[] reals = new double[SIZE];
+        for(int x = 0; x < SIZE; ++x)
+        {
+            reals[x] = view.getReal(x);
+        }
+        for(int y = 0; y < SIZE; ++y)
+        {
+            kernel.iterate(reals, SIZE, view.getImag(y), USER_REAL, USER_IMAG, ITERATIONS + 1, iterations[y],
+                    finals[2 * y], finals[2 * y + 1]);
+        }
+    }
+
+    private static boolean sameDouble(double first, double second)
+    {
+        return Double.doubleToLongBits(first) == Double.doubleToLongBits(second);
+    }
+
+    /**
+     * Draws the picture without progressive passes and waits for it to finish, but not for it to record every trap.
+     */
+    private static RenderJob render(ViewTransform view, boolean vectorise) throws InterruptedException
+    {
+        final CountDownLatch done = new CountDownLatch(1);
+        RenderListener listener = new RenderListener()
+        {
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+            }
+
+            public void renderFinished(RenderJob job)
+            {
+                done.countDown();
+            }
+        };
+        RenderJob job = new RenderJob(listener, view, USER_REAL, USER_IMAG, EscapeCondition.MODULUS,
+                panel.getProgram(), panel.getCompiledIteration(), panel.getAllTrapsIteration(), false,
+                latestGeneration);
+        job.setVectorise(vectorise);
+        job.start(null);
+        done.await();
+        return job;
+    }
+
+    private static int countDifferences(BufferedImage first, BufferedImage second)
+    {
+        int differences = 0;
+        for(int y = 0; y < SIZE; ++y)
+        {
+            for(int x = 0; x < SIZE; ++x)
+            {
+                if(first.getRGB(x, y) != second.getRGB(x, y))
+                {
+                    ++differences;
+                }
+            }
+        }
+        return differences;
+    }
+}
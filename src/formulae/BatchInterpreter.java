@@ -0,0 +1,319 @@
+package formulae;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates the terms of a FormulaProgram for a block of pixels at once, for formulas with no kernel of their own.
+ * Each register is a column holding its value for every pixel of the block, and each instruction is run down the whole
+ * column before the next one, so the switch on the opcode is paid once per block rather than once per pixel, and the
+ * loop over the pixels is simple enough for the JIT to vectorise. Every pixel's instructions are run in the same order
+ * and on the same values as by FormulaInterpreter, so each takes exactly the same number of iterations.
+ * After each term, pixels which have escaped or reached maxIter are taken out of the block and the ones still going
+ * are moved down to fill the gaps, so later instructions only run over the pixels still going. Only the registers set
+ * once per pixel need moving: the rest are either constants or worked out again on each term.
+ * Each interpreter has its own registers, so one interpreter must not be used by two threads at once.
+ */
+public class BatchInterpreter extends StripKernel
+{
+    /**
+     * How many pixels each block holds.
+     */
+    public static final int BLOCK_SIZE = 64;
+
+    private final FormulaProgram program;
+    private final int escapeCondition;
+
+    /**
+     * Indexed by register and then by the pixel's place in the block.
+     */
+    private final double[][] registers;
+
+    /**
+     * The registers each pixel keeps from its first term to its last, which move with it.
+     */
+    private final int[] pixelRegisters;
+
+    /**
+     * For each place in the block, the index of the pixel there and the number of terms it has worked out after its
+     * first one.
+     */
+    private final int[] blockPixels;
+    private final int[] blockIterations;
+
+    /**
+     * One for each place in the block, swapped along with the pixels, or null if periodicity is not checked.
+     */
+    private final PeriodicityChecker[] periodicityCheckers;
+
+    /**
+     * @param checkPeriodicity if true, sequences which repeat are skipped to maxIter as in RenderJob, which is only
+     *                         done with EscapeCondition.MODULUS
+     */
+    public BatchInterpreter(FormulaProgram program, int escapeCondition, boolean checkPeriodicity)
+    {
+        this.program = program;
+        this.escapeCondition = escapeCondition;
+        double[] initialRegisters = program.getInitialRegisters();
+        this.registers = new double[initialRegisters.length][BLOCK_SIZE];
+        for(int x = 0; x < initialRegisters.length; ++x)
+        {
+            //The constants are in place for good
+            Arrays.fill(this.registers[x], initialRegisters[x]);
+        }
+        boolean[] perPixel = new boolean[initialRegisters.length];
+        for(int x = FormulaProgram.P_REGISTER; x < FormulaProgram.U_REGISTER; ++x)
+        {
+            perPixel[x] = true;
+        }
+        markDestinations(program.getFirstTerm(), perPixel);
+        markDestinations(program.getPixelInvariants(), perPixel);
+        int count = 0;
+        for(boolean marked : perPixel)
+        {
+            count += marked ? 1 : 0;
+        }
+        this.pixelRegisters = new int[count];
+        count = 0;
+        for(int x = 0; x < perPixel.length; ++x)
+        {
+            if(perPixel[x])
+            {
+                this.pixelRegisters[count++] = x;
+            }
+        }
+        this.blockPixels = new int[BLOCK_SIZE];
+        this.blockIterations = new int[BLOCK_SIZE];
+        this.periodicityCheckers = checkPeriodicity ? new PeriodicityChecker[BLOCK_SIZE] : null;
+        if(checkPeriodicity)
+        {
+            for(int x = 0; x < BLOCK_SIZE; ++x)
+            {
+                this.periodicityCheckers[x] = new PeriodicityChecker();
+            }
+        }
+    }
+
+    /**
+     * Marks the registers the instructions store results in, both parts of complex results.
+     */
+    private static void markDestinations(int[] code, boolean[] marked)
+    {
+        for(int x = 0; x < code.length; x += FormulaProgram.INSTRUCTION_SIZE)
+        {
+            marked[code[x + 1]] = true;
+            switch(code[x])
+            {
+                case FormulaProgram.MULTIPLY_COMPLEX:
+                case FormulaProgram.ADD_COMPLEX:
+                case FormulaProgram.SUBTRACT_COMPLEX:
+                case FormulaProgram.MAKE_COMPLEX:
+                    marked[code[x + 1] + 1] = true;
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void iterate(double[] reals, int count, double ci, double ur, double ui, int maxIter, int[] iterations,
+                        double[] finalReals, double[] finalImags)
+    {
+        for(int start = 0; start < count; start += BLOCK_SIZE)
+        {
+            this.iterateBlock(reals, start, Math.min(BLOCK_SIZE, count - start), ci, ur, ui, maxIter, iterations,
+                    finalReals, finalImags);
+        }
+    }
+
+    /**
+     * Works out the size pixels from start, in the same way as RenderJob does with a FormulaInterpreter.
+     */
+    private void iterateBlock(double[] reals, int start, int size, double ci, double ur, double ui, int maxIter,
+                              int[] iterations, double[] finalReals, double[] finalImags)
+    {
+        FormulaProgram program = this.program;
+        double[][] registers = this.registers;
+        int[] blockPixels = this.blockPixels;
+        int[] blockIterations = this.blockIterations;
+        PeriodicityChecker[] periodicityCheckers = this.periodicityCheckers;
+        double[] pr = registers[FormulaProgram.P_REGISTER];
+        double[] pi = registers[FormulaProgram.P_REGISTER + 1];
+        double[] fr = registers[FormulaProgram.F_REGISTER];
+        double[] fi = registers[FormulaProgram.F_REGISTER + 1];
+        System.arraycopy(reals, start, registers[FormulaProgram.C_REGISTER], 0, size);
+        Arrays.fill(registers[FormulaProgram.C_REGISTER + 1], 0, size, ci);
+        Arrays.fill(registers[FormulaProgram.U_REGISTER], 0, size, ur);
+        Arrays.fill(registers[FormulaProgram.U_REGISTER + 1], 0, size, ui);
+        run(program.getFirstTerm(), registers, size);
+        double[] resultReal = registers[program.getFirstTermResult()];
+        double[] resultImag = registers[program.getFirstTermResult() + 1];
+        for(int x = 0; x < size; ++x)
+        {
+            fr[x] = resultReal[x];
+            fi[x] = resultImag[x];
+            pr[x] = resultReal[x];
+            pi[x] = resultImag[x];
+            blockPixels[x] = start + x;
+            blockIterations[x] = 0;
+        }
+        run(program.getPixelInvariants(), registers, size);
+        resultReal = registers[program.getNextTermResult()];
+        resultImag = registers[program.getNextTermResult() + 1];
+        int escapeCondition = this.escapeCondition;
+        int active = size;
+        int kept;
+        int pixel;
+        while(true)
+        {
+            //The current term of each pixel is in the P registers
+            kept = 0;
+            for(int x = 0; x < active; ++x)
+            {
+                if(EscapeCondition.escapes(escapeCondition, pr[x], pi[x]) || blockIterations[x] >= maxIter)
+                {
+                    pixel = blockPixels[x];
+                    iterations[pixel] = blockIterations[x];
+                    finalReals[pixel] = pr[x];
+                    finalImags[pixel] = pi[x];
+                }
+                else
+                {
+                    if(kept != x)
+                    {
+                        this.move(x, kept);
+                    }
+                    ++kept;
+                }
+            }
+            active = kept;
+            if(active == 0)
+            {
+                return;
+            }
+            run(program.getNextTerm(), registers, active);
+            for(int x = 0; x < active; ++x)
+            {
+                pr[x] = resultReal[x];
+                pi[x] = resultImag[x];
+                ++blockIterations[x];
+            }
+            if(periodicityCheckers != null)
+            {
+                for(int x = 0; x < active; ++x)
+                {
+                    blockIterations[x] += periodicityCheckers[x].skip(blockIterations[x], pr[x], pi[x], maxIter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the pixel at one place in the block to an earlier one, whose pixel has finished.
+     */
+    private void move(int from, int to)
+    {
+        double[][] registers = this.registers;
+        for(int register : this.pixelRegisters)
+        {
+            registers[register][to] = registers[register][from];
+        }
+        this.blockPixels[to] = this.blockPixels[from];
+        this.blockIterations[to] = this.blockIterations[from];
+        if(this.periodicityCheckers != null)
+        {
+            PeriodicityChecker checker = this.periodicityCheckers[to];
+            this.periodicityCheckers[to] = this.periodicityCheckers[from];
+            this.periodicityCheckers[from] = checker;
+        }
+    }
+
+    /**
+     * Runs a list of instructions on the first count places of every register column, doing for each place exactly
+     * what FormulaInterpreter#run does.
+     */
+    private static void run(int[] code, double[][] registers, int count)
+    {
+        double[] destinationReal;
+        double[] destinationImag;
+        double[] leftReal;
+        double[] leftImag;
+        double[] rightReal;
+        double[] rightImag;
+        for(int x = 0; x < code.length; x += FormulaProgram.INSTRUCTION_SIZE)
+        {
+            destinationReal = registers[code[x + 1]];
+            leftReal = registers[code[x + 2]];
+            rightReal = registers[code[x + 3]];
+            switch(code[x])
+            {
+                case FormulaProgram.MULTIPLY_COMPLEX:
+                    destinationImag = registers[code[x + 1] + 1];
+                    leftImag = registers[code[x + 2] + 1];
+                    rightImag = registers[code[x + 3] + 1];
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = (rightReal[y] * leftReal[y]) - (rightImag[y] * leftImag[y]);
+                        destinationImag[y] = (rightReal[y] * leftImag[y]) + (rightImag[y] * leftReal[y]);
+                    }
+                    break;
+                case FormulaProgram.ADD_COMPLEX:
+                    destinationImag = registers[code[x + 1] + 1];
+                    leftImag = registers[code[x + 2] + 1];
+                    rightImag = registers[code[x + 3] + 1];
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = leftReal[y] + rightReal[y];
+                        destinationImag[y] = leftImag[y] + rightImag[y];
+                    }
+                    break;
+                case FormulaProgram.SUBTRACT_COMPLEX:
+                    destinationImag = registers[code[x + 1] + 1];
+                    leftImag = registers[code[x + 2] + 1];
+                    rightImag = registers[code[x + 3] + 1];
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = leftReal[y] - rightReal[y];
+                        destinationImag[y] = leftImag[y] - rightImag[y];
+                    }
+                    break;
+                case FormulaProgram.MULTIPLY_DOUBLE:
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = leftReal[y] * rightReal[y];
+                    }
+                    break;
+                case FormulaProgram.ADD_DOUBLE:
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = leftReal[y] + rightReal[y];
+                    }
+                    break;
+                case FormulaProgram.SUBTRACT_DOUBLE:
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = leftReal[y] - rightReal[y];
+                    }
+                    break;
+                case FormulaProgram.ABSOLUTE:
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = Math.abs(leftReal[y]);
+                    }
+                    break;
+                case FormulaProgram.MAKE_COMPLEX:
+                    destinationImag = registers[code[x + 1] + 1];
+                    for(int y = 0; y < count; ++y)
+                    {
+                        destinationReal[y] = leftReal[y];
+                        destinationImag[y] = rightReal[y];
+                    }
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public int getLanes()
+    {
+        return BLOCK_SIZE;
+    }
+}
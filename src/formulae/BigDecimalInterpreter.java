@@ -0,0 +1,69 @@
+package formulae;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Evaluates the terms of a FormulaProgram with BigDecimals, rounded to the number of digits the view needs, for views
+ * too deep even for DoubleDoubles. Much slower than any other way of drawing, but it works at any depth.
+ */
+public class BigDecimalInterpreter extends PreciseInterpreter<BigDecimal>
+{
+    private final MathContext mathContext;
+
+    public BigDecimalInterpreter(FormulaProgram program, int escapeCondition, BigDecimal referenceReal,
+                                 BigDecimal referenceImag, MathContext mathContext)
+    {
+        super(program, escapeCondition, referenceReal, referenceImag);
+        this.mathContext = mathContext;
+    }
+
+    @Override
+    public PreciseInterpreter<BigDecimal> withEscapeCondition(int escapeCondition)
+    {
+        return new BigDecimalInterpreter(this.program, escapeCondition, this.exactReferenceReal,
+                this.exactReferenceImag, this.mathContext);
+    }
+
+    @Override
+    protected BigDecimal valueOf(double value)
+    {
+        return new BigDecimal(value);
+    }
+
+    @Override
+    protected BigDecimal valueOf(BigDecimal value)
+    {
+        return value;
+    }
+
+    @Override
+    protected BigDecimal add(BigDecimal left, BigDecimal right)
+    {
+        return left.add(right, this.mathContext);
+    }
+
+    @Override
+    protected BigDecimal subtract(BigDecimal left, BigDecimal right)
+    {
+        return left.subtract(right, this.mathContext);
+    }
+
+    @Override
+    protected BigDecimal multiply(BigDecimal left, BigDecimal right)
+    {
+        return left.multiply(right, this.mathContext);
+    }
+
+    @Override
+    protected BigDecimal abs(BigDecimal value)
+    {
+        return value.abs();
+    }
+
+    @Override
+    protected double doubleValue(BigDecimal value)
+    {
+        return value.doubleValue();
+    }
+}
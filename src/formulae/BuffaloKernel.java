@@ -0,0 +1,64 @@
+package formulae;
+
+/**
+ * The kernel for "c;[arp,aip]*[arp,aip]-[arp,aip]+c", and the same with +u for its Julia sets.
+ */
+public class BuffaloKernel extends FormulaKernel
+{
+    public BuffaloKernel(boolean julia, int escapeCondition)
+    {
+        super(julia, escapeCondition);
+    }
+
+    @Override
+    public CompiledIteration copy()
+    {
+        return new BuffaloKernel(this.julia, this.escapeCondition);
+    }
+
+    @Override
+    public int iterate(double cr, double ci, double ur, double ui, int maxIter)
+    {
+        double ar = this.julia ? ur : cr;
+        double ai = this.julia ? ui : ci;
+        double pr = cr;
+        double pi = ci;
+        double product;
+        int iter = 0;
+        if(this.escapeCondition == EscapeCondition.MODULUS
+                || this.escapeCondition == EscapeCondition.MODULUS_PERIODIC)
+        {
+            boolean periodic = this.escapeCondition == EscapeCondition.MODULUS_PERIODIC;
+            double rr = pr * pr;
+            double ii = pi * pi;
+            while(!(rr + ii >= 4.0) && iter < maxIter)
+            {
+                ++iter;
+                product = Math.abs(pr * pi);
+                pr = ((rr - ii) - Math.abs(pr)) + ar;
+                pi = ((product + product) - Math.abs(pi)) + ai;
+                rr = pr * pr;
+                ii = pi * pi;
+                if(periodic)
+                {
+                    iter += this.periodicityChecker.skip(iter, pr, pi, maxIter);
+                }
+            }
+        }
+        else
+        {
+            double nextReal;
+            while(!this.stops(this.escapeCondition, iter, pr, pi) && iter < maxIter)
+            {
+                ++iter;
+                product = Math.abs(pr * pi);
+                nextReal = (((pr * pr) - (pi * pi)) - Math.abs(pr)) + ar;
+                pi = ((product + product) - Math.abs(pi)) + ai;
+                pr = nextReal;
+            }
+        }
+        this.finalReal = pr;
+        this.finalImag = pi;
+        return iter;
+    }
+}
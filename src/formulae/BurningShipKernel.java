@@ -0,0 +1,66 @@
+package formulae;
+
+/**
+ * The kernel for "c;[arp,aip]*[arp,aip]+c", and "c;[arp,aip]*[arp,aip]+u" for its Julia sets.
+ * Squaring the absolute value of a part gives exactly the same double as squaring the part, so only the product of
+ * the two parts needs Math.abs.
+ */
+public class BurningShipKernel extends FormulaKernel
+{
+    public BurningShipKernel(boolean julia, int escapeCondition)
+    {
+        super(julia, escapeCondition);
+    }
+
+    @Override
+    public CompiledIteration copy()
+    {
+        return new BurningShipKernel(this.julia, this.escapeCondition);
+    }
+
+    @Override
+    public int iterate(double cr, double ci, double ur, double ui, int maxIter)
+    {
+        double ar = this.julia ? ur : cr;
+        double ai = this.julia ? ui : ci;
+        double pr = cr;
+        double pi = ci;
+        double product;
+        int iter = 0;
+        if(this.escapeCondition == EscapeCondition.MODULUS
+                || this.escapeCondition == EscapeCondition.MODULUS_PERIODIC)
+        {
+            boolean periodic = this.escapeCondition == EscapeCondition.MODULUS_PERIODIC;
+            double rr = pr * pr;
+            double ii = pi * pi;
+            while(!(rr + ii >= 4.0) && iter < maxIter)
+            {
+                ++iter;
+                product = Math.abs(pr * pi);
+                pr = (rr - ii) + ar;
+                pi = (product + product) + ai;
+                rr = pr * pr;
+                ii = pi * pi;
+                if(periodic)
+                {
+                    iter += this.periodicityChecker.skip(iter, pr, pi, maxIter);
+                }
+            }
+        }
+        else
+        {
+            double nextReal;
+            while(!this.stops(this.escapeCondition, iter, pr, pi) && iter < maxIter)
+            {
+                ++iter;
+                product = Math.abs(pr * pi);
+                nextReal = ((pr * pr) - (pi * pi)) + ar;
+                pi = (product + product) + ai;
+                pr = nextReal;
+            }
+        }
+        this.finalReal = pr;
+        this.finalImag = pi;
+        return iter;
+    }
+}
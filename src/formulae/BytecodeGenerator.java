@@ -0,0 +1,611 @@
+package formulae;
+
+import java.util.HashMap;
+
+/**
+ * Generates a subclass of CompiledIteration for a FormulaProgram, by writing a class file directly and loading it.
+ * Each of the program's registers becomes a local variable of the generated iterate method, so the formula is
+ * evaluated without any array accesses or opcode dispatch at all.
+ * The class file version is 49 so that no stack map frames need to be written; the JVM still verifies the class.
+ */
+public class BytecodeGenerator
+{
+    //JVM instruction set
+    private static final int DCONST_0 = 0x0e;
+    private static final int ICONST_0 = 0x03;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD = 0x15;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ISTORE = 0x36;
+    private static final int DSTORE = 0x39;
+    private static final int IADD = 0x60;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int IINC = 0x84;
+    private static final int IFNE = 0x9a;
+    private static final int IF_ICMPGE = 0xa2;
+    private static final int GOTO = 0xa7;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int WIDE = 0xc4;
+
+    //Local variables of the iterate method. Doubles take up two places.
+    private static final int CR = 1;
+    private static final int CI = 3;
+    private static final int UR = 5;
+    private static final int UI = 7;
+    private static final int MAX_ITER = 9;
+    private static final int ITER = 10;
+    private static final int FIRST_REGISTER_LOCAL = 11;
+
+    private static final String SUPERCLASS = "formulae/CompiledIteration";
+
+    /**
+     * Gives each generated class a different name.
+     */
+    private static int noOfGeneratedClasses = 0;
+
+    private FormulaProgram program;
+    private int escapeCondition;
+
+    private ConstantPool constantPool;
+    private byte[] code;
+    private int codeLength;
+
+    /**
+     * @param escapeCondition one of the constants in EscapeCondition
+     */
+    public BytecodeGenerator(FormulaProgram program, int escapeCondition)
+    {
+        this.program = program;
+        this.escapeCondition = escapeCondition;
+    }
+
+    /**
+     * Generates and loads the class. Any exception or linkage error means the formula should be evaluated with a
+     * FormulaInterpreter instead.
+     */
+    public Class<? extends CompiledIteration> generate() throws Exception
+    {
+        String className;
+        synchronized(BytecodeGenerator.class)
+        {
+            className = "formulae/generated/Iteration" + noOfGeneratedClasses;
+            ++noOfGeneratedClasses;
+        }
+        byte[] classFile = this.writeClassFile(className);
+        return new GeneratedClassLoader().define(className.replace('/', '.'), classFile)
+                .asSubclass(CompiledIteration.class);
+    }
+
+    private byte[] writeClassFile(String className) throws Exception
+    {
+        this.constantPool = new ConstantPool();
+        int thisClass = this.constantPool.addClass(className);
+        int superClass = this.constantPool.addClass(SUPERCLASS);
+        int codeName = this.constantPool.addUtf8("Code");
+
+        //The methods are written first because they add to the constant pool, which comes before them in the file
+        ByteWriter methods = new ByteWriter();
+        this.writeMethod(methods, "<init>", "()V", codeName, 1, 1, this.writeConstructor());
+        byte[] iterate = this.writeIterate();
+        this.writeMethod(methods, "iterate", "(DDDDI)I", codeName, 8,
+                this.local(this.program.getNoOfRegisters()), iterate);
+
+        ByteWriter out = new ByteWriter();
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        this.constantPool.writeTo(out);
+        //ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+        out.writeShort(0x0031);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        //No interfaces or fields
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(2);
+        out.write(methods.toByteArray());
+        //No class attributes
+        out.writeShort(0);
+        return out.toByteArray();
+    }
+
+    private void writeMethod(ByteWriter out, String name, String descriptor, int codeName, int maxStack,
+                             int maxLocals, byte[] methodCode)
+    {
+        //ACC_PUBLIC
+        out.writeShort(0x0001);
+        out.writeShort(this.constantPool.addUtf8(name));
+        out.writeShort(this.constantPool.addUtf8(descriptor));
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + methodCode.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(methodCode.length);
+        out.write(methodCode);
+        //No exception table or code attributes
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private byte[] writeConstructor()
+    {
+        this.startCode();
+        this.emit(ALOAD_0);
+        this.emit(INVOKESPECIAL);
+        this.emitShort(this.constantPool.addMethodRef(SUPERCLASS, "<init>", "()V"));
+        this.emit(RETURN);
+        return this.finishCode();
+    }
+
+    /**
+     * Follows the same steps as the loop in RenderJob#renderTile.
+     */
+    private byte[] writeIterate() throws Exception
+    {
+        this.startCode();
+        //Every register gets its initial value, which also puts the constants in place
+        double[] initialRegisters = this.program.getInitialRegisters();
+        for(int x = 0; x < initialRegisters.length; ++x)
+        {
+            this.emitConstant(initialRegisters[x]);
+            this.emitLocal(DSTORE, this.local(x));
+        }
+        this.emitCopy(CR, this.local(FormulaProgram.C_REGISTER));
+        this.emitCopy(CI, this.local(FormulaProgram.C_REGISTER + 1));
+        this.emitCopy(UR, this.local(FormulaProgram.U_REGISTER));
+        this.emitCopy(UI, this.local(FormulaProgram.U_REGISTER + 1));
+
+        this.emitTerm(this.program.getFirstTerm());
+        int firstTermResult = this.program.getFirstTermResult();
+        this.emitCopy(this.local(firstTermResult), this.local(FormulaProgram.F_REGISTER));
+        this.emitCopy(this.local(firstTermResult + 1), this.local(FormulaProgram.F_REGISTER + 1));
+        this.emitCopy(this.local(firstTermResult), this.local(FormulaProgram.P_REGISTER));
+        this.emitCopy(this.local(firstTermResult + 1), this.local(FormulaProgram.P_REGISTER + 1));
+        this.emitTerm(this.program.getPixelInvariants());
+        this.emit(ICONST_0);
+        this.emitLocal(ISTORE, ITER);
+
+        //while(!escape(p) && iter < maxIter)
+        int loopStart = this.codeLength;
+        if(this.escapeCondition == EscapeCondition.ALL_TRAPS)
+        {
+            //recorder.record(iter, p)
+            this.emit(ALOAD_0);
+            this.emit(GETFIELD);
+            this.emitShort(this.constantPool.addFieldRef(SUPERCLASS, "recorder", "Lformulae/OrbitRecorder;"));
+            this.emitLocal(ILOAD, ITER);
+            this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER));
+            this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER + 1));
+            this.emit(INVOKEVIRTUAL);
+            this.emitShort(this.constantPool.addMethodRef("formulae/OrbitRecorder", "record", "(IDD)Z"));
+        }
+        else
+        {
+            this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER));
+            this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER + 1));
+            this.emit(INVOKESTATIC);
+            this.emitShort(this.constantPool.addMethodRef("formulae/EscapeCondition", this.getEscapeMethodName(),
+                    "(DD)Z"));
+        }
+        int escapeBranch = this.codeLength;
+        this.emit(IFNE);
+        this.emitShort(0);
+        this.emitLocal(ILOAD, ITER);
+        this.emitLocal(ILOAD, MAX_ITER);
+        int limitBranch = this.codeLength;
+        this.emit(IF_ICMPGE);
+        this.emitShort(0);
+        this.emitIinc(ITER);
+        this.emitTerm(this.program.getNextTerm());
+        int nextTermResult = this.program.getNextTermResult();
+        this.emitCopy(this.local(nextTermResult), this.local(FormulaProgram.P_REGISTER));
+        this.emitCopy(this.local(nextTermResult + 1), this.local(FormulaProgram.P_REGISTER + 1));
+        if(this.escapeCondition == EscapeCondition.MODULUS_PERIODIC)
+        {
+            //iter += periodicityChecker.skip(iter, p, maxIter)
+            this.emitLocal(ILOAD, ITER);
+            this.emit(ALOAD_0);
+            this.emit(GETFIELD);
+            this.emitShort(this.constantPool.addFieldRef(SUPERCLASS, "periodicityChecker",
+                    "Lformulae/PeriodicityChecker;"));
+            this.emitLocal(ILOAD, ITER);
+            this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER));
+            this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER + 1));
+            this.emitLocal(ILOAD, MAX_ITER);
+            this.emit(INVOKEVIRTUAL);
+            this.emitShort(this.constantPool.addMethodRef("formulae/PeriodicityChecker", "skip", "(IDDI)I"));
+            this.emit(IADD);
+            this.emitLocal(ISTORE, ITER);
+        }
+        int gotoStart = this.codeLength;
+        this.emit(GOTO);
+        this.emitShort(loopStart - gotoStart);
+
+        //After the loop: store the last term and return the number of iterations managed
+        int loopEnd = this.codeLength;
+        this.patchShort(escapeBranch + 1, loopEnd - escapeBranch);
+        this.patchShort(limitBranch + 1, loopEnd - limitBranch);
+        int finalRealField = this.constantPool.addFieldRef(SUPERCLASS, "finalReal", "D");
+        int finalImagField = this.constantPool.addFieldRef(SUPERCLASS, "finalImag", "D");
+        this.emit(ALOAD_0);
+        this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER));
+        this.emit(PUTFIELD);
+        this.emitShort(finalRealField);
+        this.emit(ALOAD_0);
+        this.emitLocal(DLOAD, this.local(FormulaProgram.P_REGISTER + 1));
+        this.emit(PUTFIELD);
+        this.emitShort(finalImagField);
+        this.emitLocal(ILOAD, ITER);
+        this.emit(IRETURN);
+        if(this.codeLength > 65535)
+        {
+            throw new IllegalStateException("The formula is too long to generate a method for.");
+        }
+        return this.finishCode();
+    }
+
+    /**
+     * Generates code for the instructions of one term of the program.
+     */
+    private void emitTerm(int[] term)
+    {
+        int destination;
+        int left;
+        int right;
+        int operation;
+        for(int x = 0; x < term.length; x += FormulaProgram.INSTRUCTION_SIZE)
+        {
+            destination = this.local(term[x + 1]);
+            left = this.local(term[x + 2]);
+            right = this.local(term[x + 3]);
+            switch(term[x])
+            {
+                case FormulaProgram.MULTIPLY_COMPLEX:
+                    //Operands in the same order as FormulaInterpreter, so results are identical
+                    this.emitLocal(DLOAD, right);
+                    this.emitLocal(DLOAD, left);
+                    this.emit(DMUL);
+                    this.emitLocal(DLOAD, right + 2);
+                    this.emitLocal(DLOAD, left + 2);
+                    this.emit(DMUL);
+                    this.emit(DSUB);
+                    this.emitLocal(DLOAD, right);
+                    this.emitLocal(DLOAD, left + 2);
+                    this.emit(DMUL);
+                    this.emitLocal(DLOAD, right + 2);
+                    this.emitLocal(DLOAD, left);
+                    this.emit(DMUL);
+                    this.emit(DADD);
+                    this.emitLocal(DSTORE, destination + 2);
+                    this.emitLocal(DSTORE, destination);
+                    break;
+                case FormulaProgram.ADD_COMPLEX:
+                case FormulaProgram.SUBTRACT_COMPLEX:
+                    operation = term[x] == FormulaProgram.ADD_COMPLEX ? DADD : DSUB;
+                    this.emitLocal(DLOAD, left);
+                    this.emitLocal(DLOAD, right);
+                    this.emit(operation);
+                    this.emitLocal(DSTORE, destination);
+                    this.emitLocal(DLOAD, left + 2);
+                    this.emitLocal(DLOAD, right + 2);
+                    this.emit(operation);
+                    this.emitLocal(DSTORE, destination + 2);
+                    break;
+                case FormulaProgram.MULTIPLY_DOUBLE:
+                case FormulaProgram.ADD_DOUBLE:
+                case FormulaProgram.SUBTRACT_DOUBLE:
+                    this.emitLocal(DLOAD, left);
+                    this.emitLocal(DLOAD, right);
+                    this.emit(term[x] == FormulaProgram.MULTIPLY_DOUBLE ? DMUL
+                            : term[x] == FormulaProgram.ADD_DOUBLE ? DADD : DSUB);
+                    this.emitLocal(DSTORE, destination);
+                    break;
+                case FormulaProgram.ABSOLUTE:
+                    this.emitLocal(DLOAD, left);
+                    this.emit(INVOKESTATIC);
+                    this.emitShort(this.constantPool.addMethodRef("java/lang/Math", "abs", "(D)D"));
+                    this.emitLocal(DSTORE, destination);
+                    break;
+                case FormulaProgram.MAKE_COMPLEX:
+                    this.emitCopy(left, destination);
+                    this.emitCopy(right, destination + 2);
+                    break;
+            }
+        }
+    }
+
+    private void emitCopy(int fromLocal, int toLocal)
+    {
+        this.emitLocal(DLOAD, fromLocal);
+        this.emitLocal(DSTORE, toLocal);
+    }
+
+    private void emitConstant(double value)
+    {
+        if(Double.doubleToRawLongBits(value) == 0)
+        {
+            this.emit(DCONST_0);
+        }
+        else
+        {
+            this.emit(LDC2_W);
+            this.emitShort(this.constantPool.addDouble(value));
+        }
+    }
+
+    /**
+     * The local variable holding a register. Every register holds a double, which takes up two places.
+     */
+    private int local(int register)
+    {
+        return FIRST_REGISTER_LOCAL + 2 * register;
+    }
+
+    private String getEscapeMethodName()
+    {
+        switch(this.escapeCondition)
+        {
+            case EscapeCondition.CIRCLE:
+                return "circle";
+            case EscapeCondition.CROSS_ENGLISH:
+                return "crossEnglish";
+            case EscapeCondition.CROSS_SCOTTISH:
+                return "crossScottish";
+            default:
+                return "modulus";
+        }
+    }
+
+    //WRITING BYTES TO THE CODE ARRAY BELOW HERE
+
+    private void startCode()
+    {
+        this.code = new byte[256];
+        this.codeLength = 0;
+    }
+
+    private byte[] finishCode()
+    {
+        byte[] finished = new byte[this.codeLength];
+        System.arraycopy(this.code, 0, finished, 0, this.codeLength);
+        return finished;
+    }
+
+    private void emit(int b)
+    {
+        if(this.codeLength == this.code.length)
+        {
+            byte[] bigger = new byte[2 * this.code.length];
+            System.arraycopy(this.code, 0, bigger, 0, this.codeLength);
+            this.code = bigger;
+        }
+        this.code[this.codeLength++] = (byte) b;
+    }
+
+    private void emitShort(int s)
+    {
+        this.emit(s >> 8);
+        this.emit(s);
+    }
+
+    private void patchShort(int position, int s)
+    {
+        this.code[position] = (byte) (s >> 8);
+        this.code[position + 1] = (byte) s;
+    }
+
+    /**
+     * Loads and stores need the wide form once there are more than 256 local variables.
+     */
+    private void emitLocal(int opcode, int local)
+    {
+        if(local > 255)
+        {
+            this.emit(WIDE);
+            this.emit(opcode);
+            this.emitShort(local);
+        }
+        else
+        {
+            this.emit(opcode);
+            this.emit(local);
+        }
+    }
+
+    private void emitIinc(int local)
+    {
+        this.emit(IINC);
+        this.emit(local);
+        this.emit(1);
+    }
+
+    /**
+     * Collects the constants of the class file, reusing any that are asked for more than once.
+     */
+    private static class ConstantPool
+    {
+        private ByteWriter entries;
+        private HashMap<String, Integer> indices;
+
+        /**
+         * Index 0 is never used, and doubles take up two indices.
+         */
+        private int nextIndex;
+
+        private ConstantPool()
+        {
+            this.entries = new ByteWriter();
+            this.indices = new HashMap<String, Integer>();
+            this.nextIndex = 1;
+        }
+
+        private int addUtf8(String s)
+        {
+            String key = "Utf8 " + s;
+            if(!this.indices.containsKey(key))
+            {
+                this.entries.write(1);
+                this.entries.writeShort(s.length());
+                for(int x = 0; x < s.length(); ++x)
+                {
+                    this.entries.write(s.charAt(x));
+                }
+                this.indices.put(key, this.nextIndex++);
+            }
+            return this.indices.get(key);
+        }
+
+        private int addClass(String name)
+        {
+            String key = "Class " + name;
+            if(!this.indices.containsKey(key))
+            {
+                int nameIndex = this.addUtf8(name);
+                this.entries.write(7);
+                this.entries.writeShort(nameIndex);
+                this.indices.put(key, this.nextIndex++);
+            }
+            return this.indices.get(key);
+        }
+
+        private int addNameAndType(String name, String descriptor)
+        {
+            String key = "NameAndType " + name + " " + descriptor;
+            if(!this.indices.containsKey(key))
+            {
+                int nameIndex = this.addUtf8(name);
+                int descriptorIndex = this.addUtf8(descriptor);
+                this.entries.write(12);
+                this.entries.writeShort(nameIndex);
+                this.entries.writeShort(descriptorIndex);
+                this.indices.put(key, this.nextIndex++);
+            }
+            return this.indices.get(key);
+        }
+
+        private int addMethodRef(String owner, String name, String descriptor)
+        {
+            return this.addMemberRef(10, owner, name, descriptor);
+        }
+
+        private int addFieldRef(String owner, String name, String descriptor)
+        {
+            return this.addMemberRef(9, owner, name, descriptor);
+        }
+
+        private int addMemberRef(int tag, String owner, String name, String descriptor)
+        {
+            String key = tag + " " + owner + " " + name + " " + descriptor;
+            if(!this.indices.containsKey(key))
+            {
+                int classIndex = this.addClass(owner);
+                int nameAndTypeIndex = this.addNameAndType(name, descriptor);
+                this.entries.write(tag);
+                this.entries.writeShort(classIndex);
+                this.entries.writeShort(nameAndTypeIndex);
+                this.indices.put(key, this.nextIndex++);
+            }
+            return this.indices.get(key);
+        }
+
+        private int addDouble(double value)
+        {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "Double " + bits;
+            if(!this.indices.containsKey(key))
+            {
+                this.entries.write(6);
+                this.entries.writeInt((int) (bits >> 32));
+                this.entries.writeInt((int) bits);
+                this.indices.put(key, this.nextIndex);
+                this.nextIndex += 2;
+            }
+            return this.indices.get(key);
+        }
+
+        private void writeTo(ByteWriter out)
+        {
+            out.writeShort(this.nextIndex);
+            out.write(this.entries.toByteArray());
+        }
+    }
+
+    /**
+     * Writes big-endian values, as class files need.
+     */
+    private static class ByteWriter
+    {
+        private byte[] bytes;
+        private int length;
+
+        private ByteWriter()
+        {
+            this.bytes = new byte[256];
+            this.length = 0;
+        }
+
+        private void write(int b)
+        {
+            if(this.length == this.bytes.length)
+            {
+                byte[] bigger = new byte[2 * this.bytes.length];
+                System.arraycopy(this.bytes, 0, bigger, 0, this.length);
+                this.bytes = bigger;
+            }
+            this.bytes[this.length++] = (byte) b;
+        }
+
+        private void write(byte[] b)
+        {
+            for(int x = 0; x < b.length; ++x)
+            {
+                this.write(b[x]);
+            }
+        }
+
+        private void writeShort(int s)
+        {
+            this.write(s >> 8);
+            this.write(s);
+        }
+
+        private void writeInt(int i)
+        {
+            this.writeShort(i >> 16);
+            this.writeShort(i);
+        }
+
+        private byte[] toByteArray()
+        {
+            byte[] array = new byte[this.length];
+            System.arraycopy(this.bytes, 0, array, 0, this.length);
+            return array;
+        }
+    }
+
+    /**
+     * A new loader for each class, so that generated classes can be unloaded once their formula is no longer used.
+     */
+    private static class GeneratedClassLoader extends ClassLoader
+    {
+        private GeneratedClassLoader()
+        {
+            super(CompiledIteration.class.getClassLoader());
+        }
+
+        private Class<?> define(String name, byte[] classFile)
+        {
+            return this.defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package formulae;
+
+/**
+ * The superclass of the classes made by BytecodeGenerator. Each subclass runs the whole iteration sequence for one
+ * formula and one escape condition, using only local variables, so the JIT can keep every value in a register.
+ * Instances store the last term they reach, so one instance must not be used by two threads at once.
+ */
+public abstract class CompiledIteration
+{
+    protected double finalReal;
+    protected double finalImag;
+
+    /**
+     * Notes the result of every escape condition when the iteration was made for EscapeCondition.ALL_TRAPS.
+     */
+    protected OrbitRecorder recorder;
+
+    /**
+     * Used when the iteration was made for EscapeCondition.MODULUS_PERIODIC.
+     */
+    protected final PeriodicityChecker periodicityChecker = new PeriodicityChecker();
+
+    /**
+     * Works out terms of the sequence until one satisfies the escape condition, or maxIter more terms have been worked
+     * out after the first one.
+     * @param cr, ci the current point being drawn on the panel
+     * @param ur, ui the last point selected by the user
+     * @return the number of terms worked out after the first one
+     */
+    public abstract int iterate(double cr, double ci, double ur, double ui, int maxIter);
+
+    /**
+     * A new instance that does the same iteration, for use by another thread. Generated classes have a public
+     * constructor with no arguments; subclasses which do not must override this.
+     */
+    public CompiledIteration copy()
+    {
+        try
+        {
+            return this.getClass().getConstructor().newInstance();
+        }
+        catch(Exception e)
+        {
+            throw new IllegalStateException("Could not copy " + this.getClass().getName() + ".", e);
+        }
+    }
+
+    /**
+     * The test that ends the loop in a kernel: the escape condition itself, or the recorder for ALL_TRAPS.
+     */
+    protected final boolean stops(int escapeCondition, int iter, double real, double imag)
+    {
+        if(escapeCondition == EscapeCondition.ALL_TRAPS)
+        {
+            return this.recorder.record(iter, real, imag);
+        }
+        return EscapeCondition.escapes(escapeCondition, real, imag);
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    /**
+     * The real part of the last term reached by iterate.
+     */
+    public double getFinalReal()
+    {
+        return this.finalReal;
+    }
+
+    /**
+     * The imaginary part of the last term reached by iterate.
+     */
+    public double getFinalImag()
+    {
+        return this.finalImag;
+    }
+
+    public void setRecorder(OrbitRecorder recorder)
+    {
+        this.recorder = recorder;
+    }
+}
@@ -0,0 +1,67 @@
+package formulae;
+
+import numbers.DoubleDouble;
+
+import java.math.BigDecimal;
+
+/**
+ * Evaluates the terms of a FormulaProgram with DoubleDoubles, for views too deep for doubles but within about twice
+ * their number of bits, which covers a great many zooms at a small fraction of the cost of BigDecimal.
+ */
+public class DoubleDoubleInterpreter extends PreciseInterpreter<DoubleDouble>
+{
+    public DoubleDoubleInterpreter(FormulaProgram program, int escapeCondition, BigDecimal referenceReal,
+                                   BigDecimal referenceImag)
+    {
+        super(program, escapeCondition, referenceReal, referenceImag);
+    }
+
+    @Override
+    public PreciseInterpreter<DoubleDouble> withEscapeCondition(int escapeCondition)
+    {
+        return new DoubleDoubleInterpreter(this.program, escapeCondition, this.exactReferenceReal,
+                this.exactReferenceImag);
+    }
+
+    @Override
+    protected DoubleDouble valueOf(double value)
+    {
+        return new DoubleDouble(value);
+    }
+
+    @Override
+    protected DoubleDouble valueOf(BigDecimal value)
+    {
+        return DoubleDouble.valueOf(value);
+    }
+
+    @Override
+    protected DoubleDouble add(DoubleDouble left, DoubleDouble right)
+    {
+        return left.add(right);
+    }
+
+    @Override
+    protected DoubleDouble subtract(DoubleDouble left, DoubleDouble right)
+    {
+        return left.subtract(right);
+    }
+
+    @Override
+    protected DoubleDouble multiply(DoubleDouble left, DoubleDouble right)
+    {
+        return left.multiply(right);
+    }
+
+    @Override
+    protected DoubleDouble abs(DoubleDouble value)
+    {
+        return value.abs();
+    }
+
+    @Override
+    protected double doubleValue(DoubleDouble value)
+    {
+        return value.doubleValue();
+    }
+}
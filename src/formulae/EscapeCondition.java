@@ -0,0 +1,74 @@
+package formulae;
+
+/**
+ * The tests which decide whether a term stops the iteration sequence; one for each orbit trap. They are static and
+ * only take primitives so that generated code can call them directly.
+ */
+public class EscapeCondition
+{
+    public static final int MODULUS = 0;
+    public static final int CIRCLE = 1;
+    public static final int CROSS_ENGLISH = 2;
+    public static final int CROSS_SCOTTISH = 3;
+
+    /**
+     * Not a test of its own: the sequence carries on until the result of every other condition is known, and each one
+     * is noted by an OrbitRecorder. Cannot be passed to escapes.
+     */
+    public static final int ALL_TRAPS = 4;
+
+    /**
+     * The modulus, with a PeriodicityChecker skipping to the end of sequences which repeat, which mostly happens
+     * inside the set. Gives exactly the same results as MODULUS. Cannot be passed to escapes.
+     */
+    public static final int MODULUS_PERIODIC = 5;
+
+    public static boolean escapes(int condition, double real, double imag)
+    {
+        switch(condition)
+        {
+            case CIRCLE:
+                return circle(real, imag);
+            case CROSS_ENGLISH:
+                return crossEnglish(real, imag);
+            case CROSS_SCOTTISH:
+                return crossScottish(real, imag);
+            default:
+                return modulus(real, imag);
+        }
+    }
+
+    /**
+     * The default: sequence terminates when modulus >= 2 (squared modulus >= 4).
+     */
+    public static boolean modulus(double real, double imag)
+    {
+        return real * real + imag * imag >= 4.0;
+    }
+
+    /**
+     * Creates a circle of radius 0.25.
+     */
+    public static boolean circle(double real, double imag)
+    {
+        return Math.sqrt(real * real + imag * imag) <= 0.25;
+    }
+
+    /**
+     * Creates a cross along the axes of thickness 0.1.
+     */
+    public static boolean crossEnglish(double real, double imag)
+    {
+        return Math.abs(real) <= 0.05 || Math.abs(imag) <= 0.05;
+    }
+
+    /**
+     * Creates a diagonal cross of thickness 0.1.
+     */
+    public static boolean crossScottish(double real, double imag)
+    {
+        double realPart = Math.abs(real);
+        double imagPart = Math.abs(imag);
+        return realPart >= imagPart - 0.05 && realPart <= imagPart + 0.05;
+    }
+}
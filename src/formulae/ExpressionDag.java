@@ -0,0 +1,241 @@
+package formulae;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Builds the directed acyclic graph of values in a formula. Asking for an operation on the same operands twice gives
+ * back the same node, so a subterm which is repeated in the formula, like [arp,aip] in the Burning Ship, becomes one
+ * node that is only worked out once.
+ * Every node is given its registers as it is made. Operations on nothing but constants are worked out straight
+ * away and replaced by a constant.
+ */
+public class ExpressionDag
+{
+    /**
+     * If false every request makes a new node; only useful for comparing against formulas without shared subterms.
+     */
+    private boolean shareNodes;
+
+    /**
+     * Maps a description of each operation node to the node, so that repeated operations can be found.
+     */
+    private HashMap<String, FormulaNode> operations;
+
+    /**
+     * Maps the bits of each constant to its node.
+     */
+    private HashMap<String, FormulaNode> constants;
+
+    /**
+     * The values registers start with; only constants have values other than 0.
+     */
+    private ArrayList<Double> initialRegisters;
+
+    private FormulaNode p;
+    private FormulaNode f;
+    private FormulaNode c;
+    private FormulaNode u;
+
+    private int noOfNodes;
+
+    public ExpressionDag(boolean shareNodes)
+    {
+        this.shareNodes = shareNodes;
+        this.operations = new HashMap<String, FormulaNode>();
+        this.constants = new HashMap<String, FormulaNode>();
+        this.initialRegisters = new ArrayList<Double>();
+        this.noOfNodes = 0;
+        this.p = this.makeSpecial(FormulaProgram.P_REGISTER, FormulaNode.VARIES_PER_ITERATION);
+        this.f = this.makeSpecial(FormulaProgram.F_REGISTER, FormulaNode.VARIES_PER_PIXEL);
+        this.c = this.makeSpecial(FormulaProgram.C_REGISTER, FormulaNode.VARIES_PER_PIXEL);
+        this.u = this.makeSpecial(FormulaProgram.U_REGISTER, FormulaNode.VARIES_PER_PIXEL);
+    }
+
+    /**
+     * @param name one of 'p', 'f', 'c' or 'u'
+     */
+    public FormulaNode getSpecial(char name)
+    {
+        switch(name)
+        {
+            case 'p':
+                return this.p;
+            case 'f':
+                return this.f;
+            case 'c':
+                return this.c;
+            default:
+                return this.u;
+        }
+    }
+
+    public FormulaNode getConstant(double value)
+    {
+        String key = String.valueOf(Double.doubleToRawLongBits(value));
+        FormulaNode node = this.constants.get(key);
+        if(node == null || !this.shareNodes)
+        {
+            node = new FormulaNode(this.noOfNodes++, FormulaNode.CONSTANT, null, null, false);
+            node.setRegister(this.addRegisters(value));
+            this.constants.put(key, node);
+        }
+        return node;
+    }
+
+    public FormulaNode getComplexConstant(double real, double imag)
+    {
+        String key = Double.doubleToRawLongBits(real) + "," + Double.doubleToRawLongBits(imag);
+        FormulaNode node = this.constants.get(key);
+        if(node == null || !this.shareNodes)
+        {
+            node = new FormulaNode(this.noOfNodes++, FormulaNode.CONSTANT, null, null, true);
+            node.setRegister(this.addRegisters(real, imag));
+            this.constants.put(key, node);
+        }
+        return node;
+    }
+
+    public FormulaNode getRealPart(FormulaNode complex)
+    {
+        if(complex.getOperation() == FormulaNode.CONSTANT)
+        {
+            return this.getConstant(this.getValue(complex.getRegister()));
+        }
+        return this.getAlias(FormulaNode.REAL_PART, complex, complex.getRegister());
+    }
+
+    public FormulaNode getImagPart(FormulaNode complex)
+    {
+        if(complex.getOperation() == FormulaNode.CONSTANT)
+        {
+            return this.getConstant(this.getValue(complex.getRegister() + 1));
+        }
+        return this.getAlias(FormulaNode.IMAG_PART, complex, complex.getRegister() + 1);
+    }
+
+    /**
+     * @param operation one of the FormulaProgram opcodes
+     * @param right null for ABSOLUTE
+     */
+    public FormulaNode getOperation(int operation, FormulaNode left, FormulaNode right)
+    {
+        boolean complex = operation == FormulaProgram.MULTIPLY_COMPLEX || operation == FormulaProgram.ADD_COMPLEX
+                || operation == FormulaProgram.SUBTRACT_COMPLEX || operation == FormulaProgram.MAKE_COMPLEX;
+        if(left.getOperation() == FormulaNode.CONSTANT
+                && (right == null || right.getOperation() == FormulaNode.CONSTANT))
+        {
+            return this.fold(operation, left, right, complex);
+        }
+        if(operation == FormulaProgram.MAKE_COMPLEX)
+        {
+            if(left.getOperation() == FormulaNode.REAL_PART && right.getOperation() == FormulaNode.IMAG_PART
+                    && left.getLeft() == right.getLeft())
+            {
+                //[rx,ix] is just x
+                return left.getLeft();
+            }
+        }
+        if(this.isCommutative(operation) && right.getId() < left.getId())
+        {
+            //Gives a*b and b*a the same description. Swapping the operands does not change the result at all in
+            //floating point, so this is safe.
+            FormulaNode temp = left;
+            left = right;
+            right = temp;
+        }
+        String key = operation + " " + left.getId() + " " + (right == null ? "" : right.getId());
+        FormulaNode node = this.operations.get(key);
+        if(node == null || !this.shareNodes)
+        {
+            node = new FormulaNode(this.noOfNodes++, operation, left, right, complex);
+            if(complex)
+            {
+                node.setRegister(this.addRegisters(0, 0));
+            }
+            else
+            {
+                node.setRegister(this.addRegisters(0));
+            }
+            this.operations.put(key, node);
+        }
+        return node;
+    }
+
+    /**
+     * The values that all registers start with, including those for the special complexes.
+     */
+    public double[] getInitialRegisters()
+    {
+        double[] registers = new double[FormulaProgram.FIRST_FREE_REGISTER + this.initialRegisters.size()];
+        for(int x = 0; x < this.initialRegisters.size(); ++x)
+        {
+            registers[FormulaProgram.FIRST_FREE_REGISTER + x] = this.initialRegisters.get(x);
+        }
+        return registers;
+    }
+
+    /**
+     * Works out an operation on constants with the same code the interpreter uses, so the result is exactly what it
+     * would have been while drawing.
+     */
+    private FormulaNode fold(int operation, FormulaNode left, FormulaNode right, boolean complex)
+    {
+        double[] registers = this.getInitialRegisters();
+        int destination = registers.length;
+        registers = Arrays.copyOf(registers, destination + 2);
+        FormulaInterpreter.run(new int[] {operation, destination, left.getRegister(),
+                right == null ? 0 : right.getRegister()}, registers);
+        if(complex)
+        {
+            return this.getComplexConstant(registers[destination], registers[destination + 1]);
+        }
+        return this.getConstant(registers[destination]);
+    }
+
+    private double getValue(int register)
+    {
+        return this.initialRegisters.get(register - FormulaProgram.FIRST_FREE_REGISTER);
+    }
+
+    private FormulaNode makeSpecial(int register, int variation)
+    {
+        FormulaNode node = new FormulaNode(this.noOfNodes++, FormulaNode.SPECIAL, null, null, true);
+        node.setRegister(register);
+        node.setVariation(variation);
+        return node;
+    }
+
+    private FormulaNode getAlias(int operation, FormulaNode complex, int register)
+    {
+        String key = operation + " " + complex.getId();
+        FormulaNode node = this.operations.get(key);
+        if(node == null || !this.shareNodes)
+        {
+            node = new FormulaNode(this.noOfNodes++, operation, complex, null, false);
+            node.setRegister(register);
+            this.operations.put(key, node);
+        }
+        return node;
+    }
+
+    private boolean isCommutative(int operation)
+    {
+        return operation == FormulaProgram.MULTIPLY_COMPLEX || operation == FormulaProgram.ADD_COMPLEX
+                || operation == FormulaProgram.MULTIPLY_DOUBLE || operation == FormulaProgram.ADD_DOUBLE;
+    }
+
+    /**
+     * Adds registers for a new node, and gives the first one.
+     */
+    private int addRegisters(double... values)
+    {
+        int first = FormulaProgram.FIRST_FREE_REGISTER + this.initialRegisters.size();
+        for(double value : values)
+        {
+            this.initialRegisters.add(value);
+        }
+        return first;
+    }
+}
@@ -0,0 +1,225 @@
+package formulae;
+
+import exceptions.InvalidInstructionsException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Turns the postfix terms produced by FractalPanel#validateInstructions into a FormulaProgram.
+ * In the postfix terms, "Dx" refers to user-defined double x and "Cx" refers to user-defined complex x, whose own
+ * postfix definition (ending with the ',' operator) is in userComplexStrings[x].
+ * The terms are first built into an ExpressionDag, so any repeated subterm is only worked out once per evaluation.
+ * While building, each operator checks the types of its operands, so a formula that would not leave exactly one
+ * complex number behind is rejected here instead of failing during drawing.
+ * Operations on constants are worked out by the DAG while building, and the parts of the next term which do not depend
+ * on p are moved out of the iteration so they are worked out once per pixel.
+ */
+public class FormulaCompiler
+{
+    private Double[] userDoubles;
+    private String[][] userComplexStrings;
+
+    private boolean eliminateCommonSubexpressions;
+
+    private ExpressionDag dag;
+
+    /**
+     * The nodes for the values on the stack while a term is being built.
+     */
+    private ArrayList<FormulaNode> stack;
+
+    public FormulaCompiler(Double[] userDoubles, String[][] userComplexStrings)
+    {
+        this.userDoubles = userDoubles;
+        this.userComplexStrings = userComplexStrings;
+        this.eliminateCommonSubexpressions = true;
+    }
+
+    public FormulaProgram compile(String[] postfixFirstTerm, String[] postfixNextTerm)
+            throws InvalidInstructionsException
+    {
+        this.dag = new ExpressionDag(this.eliminateCommonSubexpressions);
+        FormulaNode firstTerm;
+        FormulaNode nextTerm;
+        try
+        {
+            firstTerm = this.buildTerm(postfixFirstTerm);
+        }
+        catch(InvalidInstructionsException iie)
+        {
+            throw new InvalidInstructionsException("The result of the first term is not a complex number.");
+        }
+        try
+        {
+            nextTerm = this.buildTerm(postfixNextTerm);
+        }
+        catch(InvalidInstructionsException iie)
+        {
+            throw new InvalidInstructionsException("The result of the rule for the next term is not a complex number.");
+        }
+        //The first term is lowered first so the invariant parts of the next term can use anything it has worked out
+        HashSet<FormulaNode> lowered = new HashSet<FormulaNode>();
+        ArrayList<Integer> firstTermCode = new ArrayList<Integer>();
+        this.lowerNode(firstTerm, firstTermCode, firstTermCode, lowered);
+        ArrayList<Integer> pixelInvariants = new ArrayList<Integer>();
+        ArrayList<Integer> nextTermCode = new ArrayList<Integer>();
+        this.lowerNode(nextTerm, pixelInvariants, nextTermCode, lowered);
+        return new FormulaProgram(this.toArray(firstTermCode), firstTerm.getRegister(), this.toArray(pixelInvariants),
+                this.toArray(nextTermCode), nextTerm.getRegister(), this.dag.getInitialRegisters());
+    }
+
+    private FormulaNode buildTerm(String[] postfix) throws InvalidInstructionsException
+    {
+        this.stack = new ArrayList<FormulaNode>();
+        this.buildTokens(postfix);
+        if(this.stack.size() != 1 || !this.stack.get(0).isComplex())
+        {
+            throw new InvalidInstructionsException("The term does not give exactly one complex number.");
+        }
+        return this.stack.get(0);
+    }
+
+    private void buildTokens(String[] postfix) throws InvalidInstructionsException
+    {
+        String currentString;
+        char currentFirstChar;
+        FormulaNode right;
+        FormulaNode left;
+        for(int x = 0; x < postfix.length; ++x)
+        {
+            currentString = postfix[x];
+            currentFirstChar = currentString.charAt(0);
+            if(currentFirstChar == 'p' || currentFirstChar == 'c' || currentFirstChar == 'u' || currentFirstChar == 'f')
+            {
+                this.stack.add(this.dag.getSpecial(currentFirstChar));
+            }
+            else if(currentFirstChar == 'D')
+            {
+                this.stack.add(this.dag.getConstant(this.userDoubles[this.getIndex(currentString)]));
+            }
+            else if(currentFirstChar == 'C')
+            {
+                //Built from its definition every time it is used; the DAG makes sure it only becomes one node
+                this.buildTokens(this.userComplexStrings[this.getIndex(currentString)]);
+            }
+            else if(currentFirstChar == '*' || currentFirstChar == '+' || currentFirstChar == '-')
+            {
+                if(currentString.length() != 2)
+                {
+                    throw new InvalidInstructionsException("'" + currentString + "' is not a valid operator.");
+                }
+                char secondChar = currentString.charAt(1);
+                if(secondChar == 'C')
+                {
+                    right = this.pop(true);
+                    left = this.pop(true);
+                    this.stack.add(this.dag.getOperation(currentFirstChar == '*' ? FormulaProgram.MULTIPLY_COMPLEX
+                            : currentFirstChar == '+' ? FormulaProgram.ADD_COMPLEX : FormulaProgram.SUBTRACT_COMPLEX,
+                            left, right));
+                }
+                else if(secondChar == 'D')
+                {
+                    right = this.pop(false);
+                    left = this.pop(false);
+                    this.stack.add(this.dag.getOperation(currentFirstChar == '*' ? FormulaProgram.MULTIPLY_DOUBLE
+                            : currentFirstChar == '+' ? FormulaProgram.ADD_DOUBLE : FormulaProgram.SUBTRACT_DOUBLE,
+                            left, right));
+                }
+                else
+                {
+                    throw new InvalidInstructionsException("'" + currentString + "' is not a valid operator.");
+                }
+            }
+            else if(currentFirstChar == 'a')
+            {
+                this.stack.add(this.dag.getOperation(FormulaProgram.ABSOLUTE, this.pop(false), null));
+            }
+            else if(currentFirstChar == 'r')
+            {
+                this.stack.add(this.dag.getRealPart(this.pop(true)));
+            }
+            else if(currentFirstChar == 'i')
+            {
+                this.stack.add(this.dag.getImagPart(this.pop(true)));
+            }
+            else if(currentFirstChar == ',')
+            {
+                right = this.pop(false);
+                left = this.pop(false);
+                this.stack.add(this.dag.getOperation(FormulaProgram.MAKE_COMPLEX, left, right));
+            }
+            else
+            {
+                throw new InvalidInstructionsException("'" + currentString + "' is not recognized.");
+            }
+        }
+    }
+
+    private FormulaNode pop(boolean complex) throws InvalidInstructionsException
+    {
+        if(this.stack.isEmpty())
+        {
+            throw new InvalidInstructionsException("An operator is missing a value.");
+        }
+        FormulaNode node = this.stack.remove(this.stack.size() - 1);
+        if(node.isComplex() != complex)
+        {
+            throw new InvalidInstructionsException("An operator was given the wrong type of value.");
+        }
+        return node;
+    }
+
+    /**
+     * Lists the instructions needed to work out a node, with each node's operands worked out before it. Nodes that
+     * vary on every iteration go in iterationCode, and everything else goes in pixelCode.
+     */
+    private void lowerNode(FormulaNode node, ArrayList<Integer> pixelCode, ArrayList<Integer> iterationCode,
+                           HashSet<FormulaNode> lowered)
+    {
+        if(node == null || lowered.contains(node))
+        {
+            return;
+        }
+        lowered.add(node);
+        this.lowerNode(node.getLeft(), pixelCode, iterationCode, lowered);
+        this.lowerNode(node.getRight(), pixelCode, iterationCode, lowered);
+        if(node.needsInstruction())
+        {
+            ArrayList<Integer> code = node.getVariation() == FormulaNode.VARIES_PER_ITERATION ? iterationCode
+                    : pixelCode;
+            code.add(node.getOperation());
+            code.add(node.getRegister());
+            code.add(node.getLeft().getRegister());
+            code.add(node.getRight() == null ? 0 : node.getRight().getRegister());
+        }
+    }
+
+    private int[] toArray(ArrayList<Integer> code)
+    {
+        int[] array = new int[code.size()];
+        for(int x = 0; x < array.length; ++x)
+        {
+            array[x] = code.get(x);
+        }
+        return array;
+    }
+
+    /**
+     * Gets x from a reference of the form "Dx" or "Cx".
+     */
+    private int getIndex(String reference)
+    {
+        return reference.charAt(1) - '0';
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    /**
+     * If false, repeated subterms are worked out every time they appear; only useful for comparison.
+     */
+    public void setEliminateCommonSubexpressions(boolean eliminateCommonSubexpressions)
+    {
+        this.eliminateCommonSubexpressions = eliminateCommonSubexpressions;
+    }
+}
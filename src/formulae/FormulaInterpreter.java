@@ -0,0 +1,110 @@
+package formulae;
+
+/**
+ * Evaluates the terms of a FormulaProgram. The registers are a plain array of doubles which is allocated once, so no
+ * strings are read and no objects are created while evaluating.
+ * Each interpreter has its own registers, so one interpreter must not be used by two threads at once.
+ */
+public class FormulaInterpreter
+{
+    private double[] registers;
+
+    public FormulaInterpreter(FormulaProgram program)
+    {
+        //Copying the initial registers puts the constants in place for good
+        this.registers = program.getInitialRegisters().clone();
+    }
+
+    /**
+     * Starts the sequence for a pixel: works out the first term, sets it as f and p, then works out the parts of the
+     * next term that stay the same for this pixel. The first term's real and imaginary parts are put in result[0] and
+     * result[1].
+     * @param cr, ci the current point being drawn on the panel
+     * @param ur, ui the last point selected by the user
+     */
+    public void evaluateFirstTerm(FormulaProgram program, double cr, double ci, double ur, double ui,
+                                  double[] result)
+    {
+        double[] registers = this.registers;
+        registers[FormulaProgram.C_REGISTER] = cr;
+        registers[FormulaProgram.C_REGISTER + 1] = ci;
+        registers[FormulaProgram.U_REGISTER] = ur;
+        registers[FormulaProgram.U_REGISTER + 1] = ui;
+        run(program.getFirstTerm(), registers);
+        double fr = registers[program.getFirstTermResult()];
+        double fi = registers[program.getFirstTermResult() + 1];
+        registers[FormulaProgram.F_REGISTER] = fr;
+        registers[FormulaProgram.F_REGISTER + 1] = fi;
+        registers[FormulaProgram.P_REGISTER] = fr;
+        registers[FormulaProgram.P_REGISTER + 1] = fi;
+        run(program.getPixelInvariants(), registers);
+        result[0] = fr;
+        result[1] = fi;
+    }
+
+    /**
+     * Works out the next term in the sequence from the previous one, using the pixel set up by the last call to
+     * evaluateFirstTerm, and puts its real and imaginary parts in result[0] and result[1].
+     * @param pr, pi the previous term in the sequence
+     */
+    public void evaluateNextTerm(FormulaProgram program, double pr, double pi, double[] result)
+    {
+        double[] registers = this.registers;
+        registers[FormulaProgram.P_REGISTER] = pr;
+        registers[FormulaProgram.P_REGISTER + 1] = pi;
+        run(program.getNextTerm(), registers);
+        result[0] = registers[program.getNextTermResult()];
+        result[1] = registers[program.getNextTermResult() + 1];
+    }
+
+    /**
+     * Runs a list of instructions on the given registers. Also used to fold constants while compiling, so that they get
+     * exactly the same values as they would while drawing.
+     */
+    static void run(int[] code, double[] registers)
+    {
+        int destination;
+        int left;
+        int right;
+        for(int x = 0; x < code.length; x += FormulaProgram.INSTRUCTION_SIZE)
+        {
+            destination = code[x + 1];
+            left = code[x + 2];
+            right = code[x + 3];
+            switch(code[x])
+            {
+                case FormulaProgram.MULTIPLY_COMPLEX:
+                    //Operands in the same order as Complex#multiplyBy, so results are identical
+                    registers[destination] = (registers[right] * registers[left])
+                            - (registers[right + 1] * registers[left + 1]);
+                    registers[destination + 1] = (registers[right] * registers[left + 1])
+                            + (registers[right + 1] * registers[left]);
+                    break;
+                case FormulaProgram.ADD_COMPLEX:
+                    registers[destination] = registers[left] + registers[right];
+                    registers[destination + 1] = registers[left + 1] + registers[right + 1];
+                    break;
+                case FormulaProgram.SUBTRACT_COMPLEX:
+                    registers[destination] = registers[left] - registers[right];
+                    registers[destination + 1] = registers[left + 1] - registers[right + 1];
+                    break;
+                case FormulaProgram.MULTIPLY_DOUBLE:
+                    registers[destination] = registers[left] * registers[right];
+                    break;
+                case FormulaProgram.ADD_DOUBLE:
+                    registers[destination] = registers[left] + registers[right];
+                    break;
+                case FormulaProgram.SUBTRACT_DOUBLE:
+                    registers[destination] = registers[left] - registers[right];
+                    break;
+                case FormulaProgram.ABSOLUTE:
+                    registers[destination] = Math.abs(registers[left]);
+                    break;
+                case FormulaProgram.MAKE_COMPLEX:
+                    registers[destination] = registers[left];
+                    registers[destination + 1] = registers[right];
+                    break;
+            }
+        }
+    }
+}
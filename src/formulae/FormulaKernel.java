@@ -0,0 +1,37 @@
+package formulae;
+
+/**
+ * A hand-written iteration for one family of formulas which FormulaRecogniser knows about. Each kernel does exactly
+ * the same floating point operations in the same order as the interpreter would for its formula, so it draws the same
+ * picture, but it works on local doubles and can share work between the escape test and the next term.
+ */
+public abstract class FormulaKernel extends CompiledIteration
+{
+    /**
+     * If true, u is added on each iteration instead of c, as in the formulas made by JuliaPanel#linkPanel.
+     */
+    protected final boolean julia;
+
+    /**
+     * One of the EscapeCondition constants.
+     */
+    protected final int escapeCondition;
+
+    protected FormulaKernel(boolean julia, int escapeCondition)
+    {
+        this.julia = julia;
+        this.escapeCondition = escapeCondition;
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public boolean isJulia()
+    {
+        return this.julia;
+    }
+
+    public int getEscapeCondition()
+    {
+        return this.escapeCondition;
+    }
+}
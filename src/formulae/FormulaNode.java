@@ -0,0 +1,138 @@
+package formulae;
+
+/**
+ * One value in an ExpressionDag. Nodes are shared wherever the same value is used more than once in a formula, so it
+ * only needs to be worked out once.
+ */
+public class FormulaNode
+{
+    //Kinds of node which do not need an instruction of their own. Nodes which do use the FormulaProgram opcode of
+    //the instruction that works them out.
+    /**
+     * One of p, f, c or u; its register is fixed by FormulaProgram.
+     */
+    public static final int SPECIAL = -1;
+    /**
+     * A user-defined double or complex whose register is set before evaluation and never changes.
+     */
+    public static final int CONSTANT = -2;
+    /**
+     * The real part of a complex node, which is its first register.
+     */
+    public static final int REAL_PART = -3;
+    /**
+     * The imaginary part of a complex node, which is its second register.
+     */
+    public static final int IMAG_PART = -4;
+
+    //How often a node's value can change while drawing, which decides where its instruction goes in the program.
+    /**
+     * Only depends on constants, so the value is worked out while compiling.
+     */
+    public static final int VARIES_NEVER = 0;
+    /**
+     * Depends on c, u or f, so the value only needs working out once for each pixel.
+     */
+    public static final int VARIES_PER_PIXEL = 1;
+    /**
+     * Depends on p, so the value has to be worked out on every iteration.
+     */
+    public static final int VARIES_PER_ITERATION = 2;
+
+    /**
+     * Unique within the ExpressionDag that made this node.
+     */
+    private int id;
+    private int operation;
+    private FormulaNode left;
+    private FormulaNode right;
+    private boolean complex;
+
+    /**
+     * One of the VARIES_ constants.
+     */
+    private int variation;
+
+    /**
+     * The first register this node's value is stored in; -1 until one is given to it. Complex nodes use the register
+     * after it as well.
+     */
+    private int register;
+
+    /**
+     * Nodes with operands vary as often as the most varying operand; others must call setVariation.
+     */
+    public FormulaNode(int id, int operation, FormulaNode left, FormulaNode right, boolean complex)
+    {
+        this.id = id;
+        this.operation = operation;
+        this.left = left;
+        this.right = right;
+        this.complex = complex;
+        this.register = -1;
+        this.variation = VARIES_NEVER;
+        if(left != null)
+        {
+            this.variation = left.variation;
+        }
+        if(right != null)
+        {
+            this.variation = Math.max(this.variation, right.variation);
+        }
+    }
+
+    /**
+     * Whether working out this node's value needs an instruction.
+     */
+    public boolean needsInstruction()
+    {
+        return this.operation >= 0;
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public int getId()
+    {
+        return this.id;
+    }
+
+    public int getOperation()
+    {
+        return this.operation;
+    }
+
+    public FormulaNode getLeft()
+    {
+        return this.left;
+    }
+
+    public FormulaNode getRight()
+    {
+        return this.right;
+    }
+
+    public boolean isComplex()
+    {
+        return this.complex;
+    }
+
+    public int getVariation()
+    {
+        return this.variation;
+    }
+
+    public void setVariation(int variation)
+    {
+        this.variation = variation;
+    }
+
+    public int getRegister()
+    {
+        return this.register;
+    }
+
+    public void setRegister(int register)
+    {
+        this.register = register;
+    }
+}
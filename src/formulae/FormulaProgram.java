@@ -0,0 +1,154 @@
+package formulae;
+
+import java.util.Arrays;
+
+/**
+ * A formula that has been compiled from its postfix form into flat arrays of instructions, so that it can be evaluated
+ * without any string handling.
+ * Instructions work on an array of double registers. Each one is INSTRUCTION_SIZE ints long: the opcode, the register
+ * to store the result in, then the registers holding the left and right operands. A complex number takes up two
+ * registers in a row: real part then imaginary part. Every value in the formula has its own registers, so values
+ * which are used more than once are only worked out once.
+ * Parts of the next term which do not depend on p are the same on every iteration for a pixel. They are taken out of
+ * the next term and put in pixelInvariants, which is run once per pixel straight after the first term.
+ */
+public class FormulaProgram
+{
+    public static final int INSTRUCTION_SIZE = 4;
+
+    //Binary operators.
+    public static final int MULTIPLY_COMPLEX = 0;
+    public static final int ADD_COMPLEX = 1;
+    public static final int SUBTRACT_COMPLEX = 2;
+    public static final int MULTIPLY_DOUBLE = 3;
+    public static final int ADD_DOUBLE = 4;
+    public static final int SUBTRACT_DOUBLE = 5;
+
+    /**
+     * Only uses the left operand.
+     */
+    public static final int ABSOLUTE = 6;
+
+    /**
+     * Copies the left operand to the real part of the result and the right operand to the imaginary part.
+     */
+    public static final int MAKE_COMPLEX = 7;
+
+    //Registers of the special complex numbers, which are set before each evaluation.
+    public static final int P_REGISTER = 0;
+    public static final int F_REGISTER = 2;
+    public static final int C_REGISTER = 4;
+    public static final int U_REGISTER = 6;
+    public static final int FIRST_FREE_REGISTER = 8;
+
+    private final int[] firstTerm;
+    private final int[] pixelInvariants;
+    private final int[] nextTerm;
+
+    /**
+     * Where the result of each term is left.
+     */
+    private final int firstTermResult;
+    private final int nextTermResult;
+
+    /**
+     * The values of all registers before evaluation. Registers holding user-defined constants keep their values;
+     * this is the program's constant pool.
+     */
+    private final double[] initialRegisters;
+
+    /**
+     * Made the first time it is asked for; see getKey.
+     */
+    private String key;
+
+    public FormulaProgram(int[] firstTerm, int firstTermResult, int[] pixelInvariants, int[] nextTerm,
+                          int nextTermResult, double[] initialRegisters)
+    {
+        this.firstTerm = firstTerm;
+        this.firstTermResult = firstTermResult;
+        this.pixelInvariants = pixelInvariants;
+        this.nextTerm = nextTerm;
+        this.nextTermResult = nextTermResult;
+        this.initialRegisters = initialRegisters;
+    }
+
+    public int getNoOfRegisters()
+    {
+        return this.initialRegisters.length;
+    }
+
+    /**
+     * A string which is the same for two programs exactly when they have the same instructions and constants, so they
+     * work out exactly the same sequences, even if they were compiled separately. Used to find results worked out
+     * before.
+     */
+    public String getKey()
+    {
+        if(this.key == null)
+        {
+            this.key = Arrays.toString(this.firstTerm) + this.firstTermResult + Arrays.toString(this.pixelInvariants)
+                    + Arrays.toString(this.nextTerm) + this.nextTermResult + Arrays.toString(this.initialRegisters);
+        }
+        return this.key;
+    }
+
+    /**
+     * True if any instruction reads the user selected point, so the sequences depend on it.
+     */
+    public boolean usesUserPoint()
+    {
+        return this.firstTermResult == U_REGISTER || this.nextTermResult == U_REGISTER
+                || usesUserPoint(this.firstTerm) || usesUserPoint(this.pixelInvariants) || usesUserPoint(this.nextTerm);
+    }
+
+    private static boolean usesUserPoint(int[] instructions)
+    {
+        for(int x = 0; x < instructions.length; x += INSTRUCTION_SIZE)
+        {
+            for(int operand = x + 2; operand < x + INSTRUCTION_SIZE; ++operand)
+            {
+                if(instructions[operand] == U_REGISTER || instructions[operand] == U_REGISTER + 1)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public int[] getFirstTerm()
+    {
+        return this.firstTerm;
+    }
+
+    /**
+     * Must be run after the first term's result has been put in the F and P registers.
+     */
+    public int[] getPixelInvariants()
+    {
+        return this.pixelInvariants;
+    }
+
+    public int[] getNextTerm()
+    {
+        return this.nextTerm;
+    }
+
+    public int getFirstTermResult()
+    {
+        return this.firstTermResult;
+    }
+
+    public int getNextTermResult()
+    {
+        return this.nextTermResult;
+    }
+
+    public double[] getInitialRegisters()
+    {
+        return this.initialRegisters;
+    }
+}
@@ -0,0 +1,89 @@
+package formulae;
+
+/**
+ * Recognises the formulas which have a hand-written FormulaKernel, from the postfix terms produced by
+ * FractalPanel#validateInstructions. References to user-defined complexes are replaced by their definitions first, so
+ * the same formula is recognised whichever slots its complexes were given.
+ * Only the exact forms below are recognised; any other way of writing the same formula is left to the general engine.
+ */
+public class FormulaRecogniser
+{
+    /**
+     * [arp,aip] in postfix.
+     */
+    private static final String ABSOLUTE_P = "p r a p i a ,";
+
+    /**
+     * The next terms of the recognised families, in normalised postfix, without the final c or u being added.
+     */
+    private static final String MANDELBROT = "p p *C";
+    private static final String BURNING_SHIP = ABSOLUTE_P + " " + ABSOLUTE_P + " *C";
+    private static final String BUFFALO = BURNING_SHIP + " " + ABSOLUTE_P + " -C";
+
+    private static final String ADD_C = " c +C";
+    private static final String ADD_U = " u +C";
+
+    /**
+     * @return a kernel for the formula and escape condition, or null if the formula is not recognised
+     */
+    public static FormulaKernel recognise(String[] postfixFirstTerm, String[] postfixNextTerm,
+                                          String[][] userComplexStrings, int escapeCondition)
+    {
+        if(!normalise(postfixFirstTerm, userComplexStrings).equals("c"))
+        {
+            return null;
+        }
+        String nextTerm = normalise(postfixNextTerm, userComplexStrings);
+        boolean julia;
+        if(nextTerm.endsWith(ADD_C))
+        {
+            julia = false;
+        }
+        else if(nextTerm.endsWith(ADD_U))
+        {
+            julia = true;
+        }
+        else
+        {
+            return null;
+        }
+        String family = nextTerm.substring(0, nextTerm.length() - ADD_C.length());
+        if(family.equals(MANDELBROT))
+        {
+            return new MandelbrotKernel(julia, escapeCondition);
+        }
+        else if(family.equals(BURNING_SHIP))
+        {
+            return new BurningShipKernel(julia, escapeCondition);
+        }
+        else if(family.equals(BUFFALO))
+        {
+            return new BuffaloKernel(julia, escapeCondition);
+        }
+        return null;
+    }
+
+    /**
+     * Joins the tokens of a postfix term with spaces, with each "Cx" replaced by the tokens of its definition.
+     */
+    private static String normalise(String[] postfix, String[][] userComplexStrings)
+    {
+        StringBuilder normalised = new StringBuilder();
+        for(int x = 0; x < postfix.length; ++x)
+        {
+            if(normalised.length() > 0)
+            {
+                normalised.append(' ');
+            }
+            if(postfix[x].charAt(0) == 'C')
+            {
+                normalised.append(normalise(userComplexStrings[postfix[x].charAt(1) - '0'], userComplexStrings));
+            }
+            else
+            {
+                normalised.append(postfix[x]);
+            }
+        }
+        return normalised.toString();
+    }
+}
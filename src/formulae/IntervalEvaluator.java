@@ -0,0 +1,293 @@
+package formulae;
+
+/**
+ * Evaluates the terms of a FormulaProgram on intervals instead of numbers, to prove how many iterations every point in
+ * a rectangle of the complex plane takes with the modulus, without following any of their sequences.
+ * Each register holds the lowest and highest value it could have, and the real and imaginary parts of a complex number
+ * are each an interval, so a complex register holds a rectangle. Every bound is rounded outwards by one double, so it
+ * holds the exact result of the instruction, and also the double that FormulaInterpreter or a CompiledIteration
+ * rounds it to, for any point in the rectangle: rounding to nearest never crosses a double below or above the exact
+ * result. The proofs are about the doubles the picture would really be drawn with.
+ * A rectangle is proved when every term's interval is either entirely outside the circle of radius 2, so every point
+ * escapes there, or entirely inside it, so none does, up to the first term where they all escape. They are also proved
+ * never to escape if a term's interval lies within one of the MAX_PERIOD terms before it: the terms from then on can
+ * only repeat the intervals worked out in between, none of which escapes.
+ * Each evaluator has its own registers, so one evaluator must not be used by two threads at once.
+ */
+public class IntervalEvaluator
+{
+    /**
+     * How many earlier terms each term is compared with, so cycles this long are found.
+     */
+    public static final int MAX_PERIOD = 64;
+
+    private final FormulaProgram program;
+    private final double[] lows;
+    private final double[] highs;
+
+    /**
+     * The lowest real, highest real, lowest imaginary and highest imaginary part of each of the last MAX_PERIOD terms,
+     * in a ring.
+     */
+    private final double[] earlierTerms;
+
+    /**
+     * The middle of the last term's interval.
+     */
+    private double finalReal;
+    private double finalImag;
+
+    public IntervalEvaluator(FormulaProgram program)
+    {
+        this.program = program;
+        //Constants are intervals holding a single value
+        this.lows = program.getInitialRegisters().clone();
+        this.highs = program.getInitialRegisters().clone();
+        this.earlierTerms = new double[MAX_PERIOD * 4];
+    }
+
+    /**
+     * The number of terms worked out after the first one, if it can be proved to be the same for every point in the
+     * rectangle, otherwise -1.
+     * @param lowReal, highReal, lowImag, highImag the rectangle, including its edges
+     * @param ur, ui the last point selected by the user
+     * @param maxIter as passed to CompiledIteration#iterate
+     * @param budget the most terms to work out before giving up, so that failing to prove a rectangle does not take
+     *               longer than working it out
+     */
+    public int proveIterations(double lowReal, double highReal, double lowImag, double highImag, double ur, double ui,
+                               int maxIter, int budget)
+    {
+        FormulaProgram program = this.program;
+        double[] lows = this.lows;
+        double[] highs = this.highs;
+        double[] earlierTerms = this.earlierTerms;
+        set(lows, highs, FormulaProgram.C_REGISTER, lowReal, highReal, lowImag, highImag);
+        set(lows, highs, FormulaProgram.U_REGISTER, ur, ur, ui, ui);
+        run(program.getFirstTerm(), lows, highs);
+        int result = program.getFirstTermResult();
+        double lowpr = lows[result];
+        double highpr = highs[result];
+        double lowpi = lows[result + 1];
+        double highpi = highs[result + 1];
+        set(lows, highs, FormulaProgram.F_REGISTER, lowpr, highpr, lowpi, highpi);
+        set(lows, highs, FormulaProgram.P_REGISTER, lowpr, highpr, lowpi, highpi);
+        run(program.getPixelInvariants(), lows, highs);
+        result = program.getNextTermResult();
+        int iter = 0;
+        int slot;
+        while(true)
+        {
+            this.finalReal = lowpr / 2 + highpr / 2;
+            this.finalImag = lowpi / 2 + highpi / 2;
+            if(iter == maxIter)
+            {
+                return maxIter;
+            }
+            if(down(squareLow(lowpr, highpr) + squareLow(lowpi, highpi)) >= 4.0)
+            {
+                return iter;
+            }
+            //Also false for NaN
+            if(!(up(squareHigh(lowpr, highpr) + squareHigh(lowpi, highpi)) < 4.0) || iter == budget)
+            {
+                return -1;
+            }
+            for(int period = 1; period <= MAX_PERIOD && period <= iter; ++period)
+            {
+                slot = (iter - period) % MAX_PERIOD * 4;
+                if(earlierTerms[slot] <= lowpr && highpr <= earlierTerms[slot + 1]
+                        && earlierTerms[slot + 2] <= lowpi && highpi <= earlierTerms[slot + 3])
+                {
+                    return maxIter;
+                }
+            }
+            slot = iter % MAX_PERIOD * 4;
+            earlierTerms[slot] = lowpr;
+            earlierTerms[slot + 1] = highpr;
+            earlierTerms[slot + 2] = lowpi;
+            earlierTerms[slot + 3] = highpi;
+            ++iter;
+            set(lows, highs, FormulaProgram.P_REGISTER, lowpr, highpr, lowpi, highpi);
+            run(program.getNextTerm(), lows, highs);
+            lowpr = lows[result];
+            highpr = highs[result];
+            lowpi = lows[result + 1];
+            highpi = highs[result + 1];
+        }
+    }
+
+    private static void set(double[] lows, double[] highs, int register, double lowReal, double highReal,
+                            double lowImag, double highImag)
+    {
+        lows[register] = lowReal;
+        highs[register] = highReal;
+        lows[register + 1] = lowImag;
+        highs[register + 1] = highImag;
+    }
+
+    /**
+     * Runs a list of instructions on the given intervals, in the same way as FormulaInterpreter#run.
+     */
+    private static void run(int[] code, double[] lows, double[] highs)
+    {
+        int destination;
+        int left;
+        int right;
+        double lowReal;
+        double highReal;
+        double lowImag;
+        double highImag;
+        for(int x = 0; x < code.length; x += FormulaProgram.INSTRUCTION_SIZE)
+        {
+            destination = code[x + 1];
+            left = code[x + 2];
+            right = code[x + 3];
+            switch(code[x])
+            {
+                case FormulaProgram.MULTIPLY_COMPLEX:
+                    if(left == right)
+                    {
+                        //A square: multiplying two separate intervals could give a negative bound
+                        lowReal = down(squareLow(lows[left], highs[left])
+                                - squareHigh(lows[left + 1], highs[left + 1]));
+                        highReal = up(squareHigh(lows[left], highs[left])
+                                - squareLow(lows[left + 1], highs[left + 1]));
+                        //Doubling is exact
+                        lowImag = 2 * productLow(lows[left], highs[left], lows[left + 1], highs[left + 1]);
+                        highImag = 2 * productHigh(lows[left], highs[left], lows[left + 1], highs[left + 1]);
+                    }
+                    else
+                    {
+                        lowReal = down(productLow(lows[right], highs[right], lows[left], highs[left])
+                                - productHigh(lows[right + 1], highs[right + 1], lows[left + 1], highs[left + 1]));
+                        highReal = up(productHigh(lows[right], highs[right], lows[left], highs[left])
+                                - productLow(lows[right + 1], highs[right + 1], lows[left + 1], highs[left + 1]));
+                        lowImag = down(productLow(lows[right], highs[right], lows[left + 1], highs[left + 1])
+                                + productLow(lows[right + 1], highs[right + 1], lows[left], highs[left]));
+                        highImag = up(productHigh(lows[right], highs[right], lows[left + 1], highs[left + 1])
+                                + productHigh(lows[right + 1], highs[right + 1], lows[left], highs[left]));
+                    }
+                    set(lows, highs, destination, lowReal, highReal, lowImag, highImag);
+                    break;
+                case FormulaProgram.ADD_COMPLEX:
+                    set(lows, highs, destination, down(lows[left] + lows[right]), up(highs[left] + highs[right]),
+                            down(lows[left + 1] + lows[right + 1]), up(highs[left + 1] + highs[right + 1]));
+                    break;
+                case FormulaProgram.SUBTRACT_COMPLEX:
+                    set(lows, highs, destination, down(lows[left] - highs[right]), up(highs[left] - lows[right]),
+                            down(lows[left + 1] - highs[right + 1]), up(highs[left + 1] - lows[right + 1]));
+                    break;
+                case FormulaProgram.MULTIPLY_DOUBLE:
+                    if(left == right)
+                    {
+                        lowReal = squareLow(lows[left], highs[left]);
+                        highReal = squareHigh(lows[left], highs[left]);
+                    }
+                    else
+                    {
+                        lowReal = productLow(lows[left], highs[left], lows[right], highs[right]);
+                        highReal = productHigh(lows[left], highs[left], lows[right], highs[right]);
+                    }
+                    lows[destination] = lowReal;
+                    highs[destination] = highReal;
+                    break;
+                case FormulaProgram.ADD_DOUBLE:
+                    lows[destination] = down(lows[left] + lows[right]);
+                    highs[destination] = up(highs[left] + highs[right]);
+                    break;
+                case FormulaProgram.SUBTRACT_DOUBLE:
+                    lows[destination] = down(lows[left] - highs[right]);
+                    highs[destination] = up(highs[left] - lows[right]);
+                    break;
+                case FormulaProgram.ABSOLUTE:
+                    lowReal = lows[left];
+                    highReal = highs[left];
+                    if(lowReal >= 0)
+                    {
+                        lows[destination] = lowReal;
+                        highs[destination] = highReal;
+                    }
+                    else if(highReal <= 0)
+                    {
+                        lows[destination] = -highReal;
+                        highs[destination] = -lowReal;
+                    }
+                    else
+                    {
+                        lows[destination] = 0;
+                        highs[destination] = Math.max(-lowReal, highReal);
+                    }
+                    break;
+                case FormulaProgram.MAKE_COMPLEX:
+                    lows[destination] = lows[left];
+                    highs[destination] = highs[left];
+                    lows[destination + 1] = lows[right];
+                    highs[destination + 1] = highs[right];
+                    break;
+            }
+        }
+    }
+
+    /*
+     * Each bound below is worked out rounded to nearest, then moved outwards by one double, so every step of a
+     * calculation is rounded the right way. Rounding to nearest keeps the order of values, so a product's bound is the
+     * rounded bound of its exact products. A bound which is NaN, from multiplying 0 by infinity, makes every later test
+     * fail, so nothing is proved.
+     */
+
+    private static double down(double value)
+    {
+        return Math.nextDown(value);
+    }
+
+    private static double up(double value)
+    {
+        return Math.nextUp(value);
+    }
+
+    private static double productLow(double lowLeft, double highLeft, double lowRight, double highRight)
+    {
+        return down(Math.min(Math.min(lowLeft * lowRight, lowLeft * highRight),
+                Math.min(highLeft * lowRight, highLeft * highRight)));
+    }
+
+    private static double productHigh(double lowLeft, double highLeft, double lowRight, double highRight)
+    {
+        return up(Math.max(Math.max(lowLeft * lowRight, lowLeft * highRight),
+                Math.max(highLeft * lowRight, highLeft * highRight)));
+    }
+
+    private static double squareLow(double low, double high)
+    {
+        if(low >= 0)
+        {
+            return down(low * low);
+        }
+        if(high <= 0)
+        {
+            return down(high * high);
+        }
+        return 0;
+    }
+
+    private static double squareHigh(double low, double high)
+    {
+        return up(Math.max(low * low, high * high));
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    /**
+     * The middle of the interval of the last term reached by proveIterations.
+     */
+    public double getFinalReal()
+    {
+        return this.finalReal;
+    }
+
+    public double getFinalImag()
+    {
+        return this.finalImag;
+    }
+}
@@ -0,0 +1,137 @@
+package formulae;
+
+/**
+ * The kernel for "c;p*p+c", and "c;p*p+u" for its Julia sets.
+ * For the Mandelbrot set itself with no orbit trap, points in the main cardioid or the period-2 bulb are known to be
+ * in the set, so they are given maxIter iterations straight away without working out any terms. Only the number of
+ * iterations decides their colour. The last term of such a point is left as c.
+ */
+public class MandelbrotKernel extends FormulaKernel
+{
+    /**
+     * True if points in the cardioid and the bulb are not iterated.
+     */
+    private final boolean rejectInterior;
+
+    /**
+     * How many points this kernel has found in the main cardioid and the period-2 bulb. Not shared with its copies.
+     */
+    private long cardioidRejections;
+    private long bulbRejections;
+
+    public MandelbrotKernel(boolean julia, int escapeCondition)
+    {
+        this(julia, escapeCondition, true);
+    }
+
+    /**
+     * @param rejectInterior if false, points in the cardioid and the bulb are iterated like any other; only worth
+     *                       turning off to measure other ways of saving work inside the set
+     */
+    public MandelbrotKernel(boolean julia, int escapeCondition, boolean rejectInterior)
+    {
+        super(julia, escapeCondition);
+        this.rejectInterior = rejectInterior && !julia && (escapeCondition == EscapeCondition.MODULUS
+                || escapeCondition == EscapeCondition.MODULUS_PERIODIC);
+    }
+
+    @Override
+    public CompiledIteration copy()
+    {
+        return new MandelbrotKernel(this.julia, this.escapeCondition, this.rejectInterior);
+    }
+
+    @Override
+    public int iterate(double cr, double ci, double ur, double ui, int maxIter)
+    {
+        if(this.rejectInterior && this.rejects(cr, ci))
+        {
+            this.finalReal = cr;
+            this.finalImag = ci;
+            return maxIter;
+        }
+        double ar = this.julia ? ur : cr;
+        double ai = this.julia ? ui : ci;
+        double pr = cr;
+        double pi = ci;
+        double product;
+        int iter = 0;
+        if(this.escapeCondition == EscapeCondition.MODULUS
+                || this.escapeCondition == EscapeCondition.MODULUS_PERIODIC)
+        {
+            boolean periodic = this.escapeCondition == EscapeCondition.MODULUS_PERIODIC;
+            //The squares for the escape test are the same ones needed for the real part of the next term
+            double rr = pr * pr;
+            double ii = pi * pi;
+            while(!(rr + ii >= 4.0) && iter < maxIter)
+            {
+                ++iter;
+                product = pr * pi;
+                pr = (rr - ii) + ar;
+                pi = (product + product) + ai;
+                rr = pr * pr;
+                ii = pi * pi;
+                if(periodic)
+                {
+                    iter += this.periodicityChecker.skip(iter, pr, pi, maxIter);
+                }
+            }
+        }
+        else
+        {
+            double nextReal;
+            while(!this.stops(this.escapeCondition, iter, pr, pi) && iter < maxIter)
+            {
+                ++iter;
+                product = pr * pi;
+                nextReal = ((pr * pr) - (pi * pi)) + ar;
+                pi = (product + product) + ai;
+                pr = nextReal;
+            }
+        }
+        this.finalReal = pr;
+        this.finalImag = pi;
+        return iter;
+    }
+
+    /**
+     * Tests c against the main cardioid, where the sequence is drawn to a fixed point, and the disc of radius 1/4
+     * about -1, where it is drawn to a cycle of two points, and counts it if it is in either. Also used by
+     * VectorKernel, so that the counts take in the strips it works out.
+     */
+    boolean rejects(double cr, double ci)
+    {
+        double imagSquared = ci * ci;
+        double shifted = cr - 0.25;
+        double q = shifted * shifted + imagSquared;
+        if(q * (q + shifted) <= 0.25 * imagSquared)
+        {
+            ++this.cardioidRejections;
+            return true;
+        }
+        double bulb = cr + 1.0;
+        if(bulb * bulb + imagSquared <= 0.0625)
+        {
+            ++this.bulbRejections;
+            return true;
+        }
+        return false;
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public boolean isRejectingInterior()
+    {
+        return this.rejectInterior;
+    }
+
+    public long getCardioidRejections()
+    {
+        return this.cardioidRejections;
+    }
+
+    public long getBulbRejections()
+    {
+        return this.bulbRejections;
+    }
+}
@@ -0,0 +1,138 @@
+package formulae;
+
+/**
+ * Follows one iteration sequence for every escape condition at once, for EscapeCondition.ALL_TRAPS. The first term
+ * which satisfies each condition is where the sequence would have stopped with that condition, so noting it gives
+ * exactly the result a separate sequence for that condition would have, and a picture can then be coloured for any
+ * orbit trap without working the sequence out again.
+ * Each recorder holds the results of one sequence at a time, so one must not be used by two threads at once.
+ */
+public class OrbitRecorder
+{
+    /**
+     * The conditions recorded are the EscapeCondition constants below ALL_TRAPS.
+     */
+    public static final int NO_OF_CONDITIONS = EscapeCondition.ALL_TRAPS;
+
+    private static final int ALL_STOPPED = (1 << NO_OF_CONDITIONS) - 1;
+
+    /**
+     * The number of terms worked out after the first one when each condition stopped the sequence.
+     */
+    private final int[] iterations;
+
+    /**
+     * The term which stopped the sequence for each condition.
+     */
+    private final double[] reals;
+    private final double[] imags;
+
+    /**
+     * One bit for each condition which has stopped the sequence.
+     */
+    private int stopped;
+
+    private double lastReal;
+    private double lastImag;
+
+    public OrbitRecorder()
+    {
+        this.iterations = new int[NO_OF_CONDITIONS];
+        this.reals = new double[NO_OF_CONDITIONS];
+        this.imags = new double[NO_OF_CONDITIONS];
+        this.stopped = 0;
+    }
+
+    /**
+     * Forgets the previous sequence; called before each one.
+     */
+    public void reset()
+    {
+        this.stopped = 0;
+    }
+
+    /**
+     * Tests a term against every condition that has not stopped the sequence yet.
+     * @param iter the number of terms worked out after the first one
+     * @return true if no later term can change any result, so the sequence can stop
+     */
+    public boolean record(int iter, double real, double imag)
+    {
+        this.lastReal = real;
+        this.lastImag = imag;
+        int stopped = this.stopped;
+        //Each condition is tested directly rather than through EscapeCondition.escapes, as this runs every iteration
+        if((stopped & (1 << EscapeCondition.MODULUS)) == 0 && EscapeCondition.modulus(real, imag))
+        {
+            stopped |= this.stop(EscapeCondition.MODULUS, iter, real, imag);
+        }
+        if((stopped & (1 << EscapeCondition.CIRCLE)) == 0 && EscapeCondition.circle(real, imag))
+        {
+            stopped |= this.stop(EscapeCondition.CIRCLE, iter, real, imag);
+        }
+        if((stopped & (1 << EscapeCondition.CROSS_ENGLISH)) == 0 && EscapeCondition.crossEnglish(real, imag))
+        {
+            stopped |= this.stop(EscapeCondition.CROSS_ENGLISH, iter, real, imag);
+        }
+        if((stopped & (1 << EscapeCondition.CROSS_SCOTTISH)) == 0 && EscapeCondition.crossScottish(real, imag))
+        {
+            stopped |= this.stop(EscapeCondition.CROSS_SCOTTISH, iter, real, imag);
+        }
+        this.stopped = stopped;
+        if(stopped == ALL_STOPPED)
+        {
+            return true;
+        }
+        //Once both parts are NaN after the first term every later term is NaN as well, since any part of the next
+        //term that does not use p is the same every time. No condition is satisfied by NaN.
+        return iter > 0 && real != real && imag != imag;
+    }
+
+    /**
+     * Notes the term that stopped the sequence for a condition, and gives the condition's bit.
+     */
+    private int stop(int condition, int iter, double real, double imag)
+    {
+        this.iterations[condition] = iter;
+        this.reals[condition] = real;
+        this.imags[condition] = imag;
+        return 1 << condition;
+    }
+
+    /**
+     * Gives every condition which never stopped the sequence the result it would have had if the sequence had run
+     * until maxIter terms after the first one.
+     */
+    public void finish(int maxIter)
+    {
+        for(int condition = 0; condition < NO_OF_CONDITIONS; ++condition)
+        {
+            if((this.stopped & (1 << condition)) == 0)
+            {
+                this.iterations[condition] = maxIter;
+                this.reals[condition] = this.lastReal;
+                this.imags[condition] = this.lastImag;
+            }
+        }
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    /**
+     * @param condition one of the EscapeCondition constants other than ALL_TRAPS
+     */
+    public int getIterations(int condition)
+    {
+        return this.iterations[condition];
+    }
+
+    public double getReal(int condition)
+    {
+        return this.reals[condition];
+    }
+
+    public double getImag(int condition)
+    {
+        return this.imags[condition];
+    }
+}
@@ -0,0 +1,63 @@
+package formulae;
+
+/**
+ * Spots iteration sequences which have started repeating, for EscapeCondition.MODULUS_PERIODIC, using Brent's method:
+ * one term is saved at a time, each later term is compared with it, and the saved term is replaced at every power of
+ * two, so a cycle of any length is found within about twice its length of entering it.
+ * The next term depends only on the term before and values which are the same for the whole sequence, so once a term
+ * is exactly equal to an earlier one the sequence repeats it forever. None of the repeated terms escaped, so the
+ * sequence would run until maxIter; whole cycles are skipped, which leaves the same last term as working them out.
+ * Only exact repeats are used, never ones within a tolerance, so the result is always the same as without checking.
+ * Each checker follows one sequence at a time, so one must not be used by two threads at once.
+ */
+public class PeriodicityChecker
+{
+    private double savedReal;
+    private double savedImag;
+
+    /**
+     * The number of terms worked out after the first one when the saved term was reached.
+     */
+    private int savedIter;
+
+    /**
+     * When the saved term is next replaced.
+     */
+    private int nextSave;
+
+    /**
+     * Called with each term after it has been worked out; a new sequence starts when iter is 1.
+     * @param iter the number of terms worked out after the first one
+     * @return the number of iterations to add to iter: a whole number of cycles if the term repeats an earlier one,
+     *         taking iter as close to maxIter as possible, otherwise 0
+     */
+    public int skip(int iter, double real, double imag, int maxIter)
+    {
+        if(iter <= 1)
+        {
+            this.save(iter, real, imag);
+            this.nextSave = 2;
+            return 0;
+        }
+        if(real == this.savedReal && imag == this.savedImag)
+        {
+            int period = iter - this.savedIter;
+            //Skipping again later would skip nothing
+            this.savedReal = Double.NaN;
+            return (maxIter - iter) / period * period;
+        }
+        if(iter == this.nextSave)
+        {
+            this.save(iter, real, imag);
+            this.nextSave *= 2;
+        }
+        return 0;
+    }
+
+    private void save(int iter, double real, double imag)
+    {
+        this.savedReal = real;
+        this.savedImag = imag;
+        this.savedIter = iter;
+    }
+}
@@ -0,0 +1,199 @@
+package formulae;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Draws the Mandelbrot set, the Burning Ship and their Julia sets when the difference between two pixels is too small
+ * for a double to hold next to the point itself. One point, the reference, is worked out with as many digits as it
+ * needs as a ReferenceOrbit, and each pixel follows only its difference from the reference's sequence in doubles:
+ * the difference is small, so a double holds it to full precision however deep the view.
+ * For z = W + d, where W is the reference's term, the next difference is 2Wd + d^2 + dc, with dc the pixel's
+ * difference from the reference point (0 for a Julia set). The Burning Ship's imaginary part uses |X + x| - |X|,
+ * worked out without cancellation, for each part.
+ * When z is smaller than d the difference has lost the precision the reference lent it, and the reference ends when
+ * it escapes, so either way the pixel is rebased: d becomes z itself, and it carries on from the start of a second
+ * sequence beginning at 0 (the same sequence as the reference for the Mandelbrot set and the Burning Ship).
+ * iterate takes the pixel's difference from the reference point as cr, ci; u is already part of the sequences.
+ */
+public class PerturbationKernel extends CompiledIteration
+{
+    private final boolean burningShip;
+    private final boolean julia;
+    private final int escapeCondition;
+
+    /**
+     * The sequence of the reference point, and the one from 0 that pixels are rebased onto.
+     */
+    private final ReferenceOrbit orbit;
+    private final ReferenceOrbit rebaseOrbit;
+
+    /**
+     * How many times this kernel has rebased a pixel. Not shared with its copies.
+     */
+    private long rebases;
+
+    public PerturbationKernel(boolean burningShip, boolean julia, int escapeCondition, ReferenceOrbit orbit,
+                              ReferenceOrbit rebaseOrbit)
+    {
+        this.burningShip = burningShip;
+        this.julia = julia;
+        //Differences never repeat exactly the way the terms would, so there is nothing to skip
+        this.escapeCondition = escapeCondition == EscapeCondition.MODULUS_PERIODIC ? EscapeCondition.MODULUS
+                : escapeCondition;
+        this.orbit = orbit;
+        this.rebaseOrbit = rebaseOrbit;
+    }
+
+    /**
+     * Works out the sequences for a kernel which FormulaRecogniser made, around one reference point.
+     * @param kernel a MandelbrotKernel or BurningShipKernel, for its family and whether it draws a Julia set
+     * @param referenceReal, referenceImag the reference point
+     * @param ur, ui the last point selected by the user
+     * @param maxIter as passed to iterate
+     * @param mathContext the number of digits to work the reference out to
+     * @return null if the kernel is not one of those families
+     */
+    public static PerturbationKernel make(CompiledIteration kernel, int escapeCondition, BigDecimal referenceReal,
+                                          BigDecimal referenceImag, double ur, double ui, int maxIter,
+                                          MathContext mathContext)
+    {
+        if(!handles(kernel))
+        {
+            return null;
+        }
+        boolean burningShip = kernel instanceof BurningShipKernel;
+        boolean julia = ((FormulaKernel) kernel).isJulia();
+        //The Mandelbrot set's sequence starts at 0, one term before the reference point itself
+        int maxTerms = maxIter + 2;
+        ReferenceOrbit rebaseOrbit;
+        ReferenceOrbit orbit;
+        if(julia)
+        {
+            BigDecimal addReal = new BigDecimal(ur);
+            BigDecimal addImag = new BigDecimal(ui);
+            orbit = new ReferenceOrbit(burningShip, referenceReal, referenceImag, addReal, addImag, maxTerms,
+                    mathContext);
+            rebaseOrbit = new ReferenceOrbit(burningShip, BigDecimal.ZERO, BigDecimal.ZERO, addReal, addImag,
+                    maxTerms, mathContext);
+        }
+        else
+        {
+            orbit = new ReferenceOrbit(burningShip, BigDecimal.ZERO, BigDecimal.ZERO, referenceReal, referenceImag,
+                    maxTerms, mathContext);
+            rebaseOrbit = orbit;
+        }
+        return new PerturbationKernel(burningShip, julia, escapeCondition, orbit, rebaseOrbit);
+    }
+
+    /**
+     * True if make can draw the same formula as the given iteration.
+     */
+    public static boolean handles(CompiledIteration kernel)
+    {
+        return kernel instanceof MandelbrotKernel || kernel instanceof BurningShipKernel;
+    }
+
+    /**
+     * A kernel sharing the same sequences, for another escape condition.
+     */
+    public PerturbationKernel withEscapeCondition(int escapeCondition)
+    {
+        return new PerturbationKernel(this.burningShip, this.julia, escapeCondition, this.orbit, this.rebaseOrbit);
+    }
+
+    @Override
+    public CompiledIteration copy()
+    {
+        return this.withEscapeCondition(this.escapeCondition);
+    }
+
+    @Override
+    public int iterate(double cr, double ci, double ur, double ui, int maxIter)
+    {
+        boolean modulus = this.escapeCondition == EscapeCondition.MODULUS;
+        double[] reals = this.orbit.getReals();
+        double[] imags = this.orbit.getImags();
+        int last = this.orbit.getLength() - 1;
+        //The Mandelbrot set's first term is the pixel itself, term 1 of the reference's sequence
+        int index = this.julia ? 0 : 1;
+        double dcr = this.julia ? 0 : cr;
+        double dci = this.julia ? 0 : ci;
+        double dr = cr;
+        double di = ci;
+        double wr = reals[index];
+        double wi = imags[index];
+        double zr = wr + dr;
+        double zi = wi + di;
+        double nextReal;
+        double a;
+        double b;
+        int rebases = 0;
+        int iter = 0;
+        while(true)
+        {
+            if(index == last || zr * zr + zi * zi < dr * dr + di * di)
+            {
+                //The rebase sequence starts at exactly 0, so z stays the same
+                dr = zr;
+                di = zi;
+                reals = this.rebaseOrbit.getReals();
+                imags = this.rebaseOrbit.getImags();
+                last = this.rebaseOrbit.getLength() - 1;
+                index = 0;
+                wr = 0;
+                wi = 0;
+                ++rebases;
+            }
+            if((modulus ? zr * zr + zi * zi >= 4.0 : this.stops(this.escapeCondition, iter, zr, zi))
+                    || iter >= maxIter)
+            {
+                break;
+            }
+            ++iter;
+            nextReal = (wr + wr + dr) * dr - (wi + wi + di) * di + dcr;
+            if(this.burningShip)
+            {
+                a = diffAbs(wr, dr);
+                b = diffAbs(wi, di);
+                di = 2 * (Math.abs(wr) * b + a * Math.abs(wi) + a * b) + dci;
+            }
+            else
+            {
+                di = 2 * (wr * di + dr * (wi + di)) + dci;
+            }
+            dr = nextReal;
+            ++index;
+            wr = reals[index];
+            wi = imags[index];
+            zr = wr + dr;
+            zi = wi + di;
+        }
+        this.rebases += rebases;
+        this.finalReal = zr;
+        this.finalImag = zi;
+        return iter;
+    }
+
+    /**
+     * |c + d| - |c|, without the cancellation of working out both.
+     */
+    private static double diffAbs(double c, double d)
+    {
+        if(c >= 0)
+        {
+            return c + d >= 0 ? d : -(c + c + d);
+        }
+        return c + d > 0 ? c + c + d : -d;
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    /**
+     * The number of times this kernel has rebased a pixel.
+     */
+    public long getRebases()
+    {
+        return this.rebases;
+    }
+}
@@ -0,0 +1,197 @@
+package formulae;
+
+import numbers.Precision;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Evaluates the terms of a FormulaProgram with more precise numbers than doubles, for views too deep for doubles to
+ * tell their pixels apart, when the formula is not one PerturbationKernel can draw. Subclasses say how to add,
+ * subtract and multiply their kind of number; the instructions are run in exactly the same way as by
+ * FormulaInterpreter#run, and each term is rounded to doubles only to test the escape condition.
+ * Like PerturbationKernel, iterate takes the pixel's difference from a reference point as cr, ci, so that the pixels
+ * of a deep view can be given as doubles. The reference point is held exactly, and each pixel's point is the sum.
+ * Each interpreter has its own registers, so one interpreter must not be used by two threads at once.
+ */
+public abstract class PreciseInterpreter<T> extends CompiledIteration
+{
+    protected final FormulaProgram program;
+    protected final int escapeCondition;
+    protected final BigDecimal exactReferenceReal;
+    protected final BigDecimal exactReferenceImag;
+
+    private final T referenceReal;
+    private final T referenceImag;
+    private final T[] registers;
+
+    @SuppressWarnings("unchecked")
+    protected PreciseInterpreter(FormulaProgram program, int escapeCondition, BigDecimal referenceReal,
+                                 BigDecimal referenceImag)
+    {
+        this.program = program;
+        //Terms rounded to doubles repeat when the precise terms do not, so there is nothing to skip
+        this.escapeCondition = escapeCondition == EscapeCondition.MODULUS_PERIODIC ? EscapeCondition.MODULUS
+                : escapeCondition;
+        this.exactReferenceReal = referenceReal;
+        this.exactReferenceImag = referenceImag;
+        this.referenceReal = this.valueOf(referenceReal);
+        this.referenceImag = this.valueOf(referenceImag);
+        double[] initialRegisters = program.getInitialRegisters();
+        this.registers = (T[]) new Object[initialRegisters.length];
+        for(int x = 0; x < initialRegisters.length; ++x)
+        {
+            this.registers[x] = this.valueOf(initialRegisters[x]);
+        }
+    }
+
+    /**
+     * An interpreter of the given program with the given precision, which must not be Precision.DOUBLE.
+     * @param referenceReal, referenceImag the point iterate's arguments are differences from
+     * @param mathContext the number of digits for Precision.ARBITRARY
+     */
+    public static PreciseInterpreter<?> make(int precision, FormulaProgram program, int escapeCondition,
+                                             BigDecimal referenceReal, BigDecimal referenceImag,
+                                             MathContext mathContext)
+    {
+        if(precision == Precision.DOUBLE_DOUBLE)
+        {
+            return new DoubleDoubleInterpreter(program, escapeCondition, referenceReal, referenceImag);
+        }
+        return new BigDecimalInterpreter(program, escapeCondition, referenceReal, referenceImag, mathContext);
+    }
+
+    /**
+     * An interpreter of the same program around the same point, for another escape condition.
+     */
+    public abstract PreciseInterpreter<T> withEscapeCondition(int escapeCondition);
+
+    @Override
+    public CompiledIteration copy()
+    {
+        return this.withEscapeCondition(this.escapeCondition);
+    }
+
+    //Arithmetic on the subclass's kind of number. The conversions are called from the constructor, so must not use
+    //the subclass's fields.
+    protected abstract T valueOf(double value);
+
+    protected abstract T valueOf(BigDecimal value);
+
+    protected abstract T add(T left, T right);
+
+    protected abstract T subtract(T left, T right);
+
+    protected abstract T multiply(T left, T right);
+
+    protected abstract T abs(T value);
+
+    protected abstract double doubleValue(T value);
+
+    @Override
+    public int iterate(double cr, double ci, double ur, double ui, int maxIter)
+    {
+        FormulaProgram program = this.program;
+        T[] registers = this.registers;
+        registers[FormulaProgram.C_REGISTER] = this.add(this.referenceReal, this.valueOf(cr));
+        registers[FormulaProgram.C_REGISTER + 1] = this.add(this.referenceImag, this.valueOf(ci));
+        registers[FormulaProgram.U_REGISTER] = this.valueOf(ur);
+        registers[FormulaProgram.U_REGISTER + 1] = this.valueOf(ui);
+        this.run(program.getFirstTerm());
+        T pr = registers[program.getFirstTermResult()];
+        T pi = registers[program.getFirstTermResult() + 1];
+        registers[FormulaProgram.F_REGISTER] = pr;
+        registers[FormulaProgram.F_REGISTER + 1] = pi;
+        registers[FormulaProgram.P_REGISTER] = pr;
+        registers[FormulaProgram.P_REGISTER + 1] = pi;
+        this.run(program.getPixelInvariants());
+        int result = program.getNextTermResult();
+        double real = this.doubleValue(pr);
+        double imag = this.doubleValue(pi);
+        int iter = 0;
+        while(!this.stops(this.escapeCondition, iter, real, imag) && iter < maxIter)
+        {
+            ++iter;
+            registers[FormulaProgram.P_REGISTER] = pr;
+            registers[FormulaProgram.P_REGISTER + 1] = pi;
+            this.run(program.getNextTerm());
+            pr = registers[result];
+            pi = registers[result + 1];
+            real = this.doubleValue(pr);
+            imag = this.doubleValue(pi);
+            if(!(Math.abs(real) <= Double.MAX_VALUE && Math.abs(imag) <= Double.MAX_VALUE))
+            {
+                //Doubles would have overflowed by now and been NaN soon after, which satisfies no condition, while
+                //the precise terms would carry on growing until they overflowed as well
+                real = Double.NaN;
+                imag = Double.NaN;
+                if(!this.stops(this.escapeCondition, iter, real, imag))
+                {
+                    iter = maxIter;
+                }
+                break;
+            }
+        }
+        this.finalReal = real;
+        this.finalImag = imag;
+        return iter;
+    }
+
+    /**
+     * Runs a list of instructions on the registers, in the same way as FormulaInterpreter#run.
+     */
+    private void run(int[] code)
+    {
+        T[] registers = this.registers;
+        int destination;
+        T leftReal;
+        T leftImag;
+        T rightReal;
+        T rightImag;
+        for(int x = 0; x < code.length; x += FormulaProgram.INSTRUCTION_SIZE)
+        {
+            destination = code[x + 1];
+            leftReal = registers[code[x + 2]];
+            rightReal = registers[code[x + 3]];
+            switch(code[x])
+            {
+                case FormulaProgram.MULTIPLY_COMPLEX:
+                    leftImag = registers[code[x + 2] + 1];
+                    rightImag = registers[code[x + 3] + 1];
+                    registers[destination] = this.subtract(this.multiply(rightReal, leftReal),
+                            this.multiply(rightImag, leftImag));
+                    registers[destination + 1] = this.add(this.multiply(rightReal, leftImag),
+                            this.multiply(rightImag, leftReal));
+                    break;
+                case FormulaProgram.ADD_COMPLEX:
+                    leftImag = registers[code[x + 2] + 1];
+                    rightImag = registers[code[x + 3] + 1];
+                    registers[destination] = this.add(leftReal, rightReal);
+                    registers[destination + 1] = this.add(leftImag, rightImag);
+                    break;
+                case FormulaProgram.SUBTRACT_COMPLEX:
+                    leftImag = registers[code[x + 2] + 1];
+                    rightImag = registers[code[x + 3] + 1];
+                    registers[destination] = this.subtract(leftReal, rightReal);
+                    registers[destination + 1] = this.subtract(leftImag, rightImag);
+                    break;
+                case FormulaProgram.MULTIPLY_DOUBLE:
+                    registers[destination] = this.multiply(leftReal, rightReal);
+                    break;
+                case FormulaProgram.ADD_DOUBLE:
+                    registers[destination] = this.add(leftReal, rightReal);
+                    break;
+                case FormulaProgram.SUBTRACT_DOUBLE:
+                    registers[destination] = this.subtract(leftReal, rightReal);
+                    break;
+                case FormulaProgram.ABSOLUTE:
+                    registers[destination] = this.abs(leftReal);
+                    break;
+                case FormulaProgram.MAKE_COMPLEX:
+                    registers[destination] = leftReal;
+                    registers[destination + 1] = rightReal;
+                    break;
+            }
+        }
+    }
+}
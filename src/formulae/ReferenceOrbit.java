@@ -0,0 +1,77 @@
+package formulae;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * The sequence of one point worked out to as many digits as a deep zoom needs, for PerturbationKernel. Each term is
+ * worked out with BigDecimal and then stored as the nearest double: the terms themselves are never smaller than the
+ * difference between two pixels, so a double holds each of them as well as the kernel can use it.
+ * The sequence stops at the first term outside the circle of radius 2, or when it is long enough for maxIter.
+ */
+public class ReferenceOrbit
+{
+    private final double[] reals;
+    private final double[] imags;
+    private final int length;
+
+    /**
+     * @param burningShip if true the parts of each term are made positive before it is squared
+     * @param startReal, startImag the first term
+     * @param addReal, addImag the value added on each iteration: the point itself, or u for a Julia set
+     * @param maxTerms the most terms to work out
+     * @param mathContext the number of digits to work them out to
+     */
+    public ReferenceOrbit(boolean burningShip, BigDecimal startReal, BigDecimal startImag, BigDecimal addReal,
+                          BigDecimal addImag, int maxTerms, MathContext mathContext)
+    {
+        this.reals = new double[maxTerms];
+        this.imags = new double[maxTerms];
+        BigDecimal real = startReal;
+        BigDecimal imag = startImag;
+        BigDecimal nextReal;
+        int count = 0;
+        while(count < maxTerms)
+        {
+            double termReal = real.doubleValue();
+            double termImag = imag.doubleValue();
+            this.reals[count] = termReal;
+            this.imags[count] = termImag;
+            ++count;
+            if(termReal * termReal + termImag * termImag >= 4.0)
+            {
+                break;
+            }
+            if(burningShip)
+            {
+                real = real.abs();
+                imag = imag.abs();
+            }
+            nextReal = real.multiply(real, mathContext).subtract(imag.multiply(imag, mathContext), mathContext)
+                    .add(addReal, mathContext);
+            imag = real.multiply(imag, mathContext).multiply(BigDecimal.valueOf(2)).add(addImag, mathContext);
+            real = nextReal;
+        }
+        this.length = count;
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public double[] getReals()
+    {
+        return this.reals;
+    }
+
+    public double[] getImags()
+    {
+        return this.imags;
+    }
+
+    /**
+     * The number of terms worked out, the last of which may be outside the circle.
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+}
@@ -0,0 +1,33 @@
+package formulae;
+
+/**
+ * Works out the pixels of a strip one at a time with an ordinary kernel, for when VectorKernel cannot be used.
+ */
+public class ScalarStripKernel extends StripKernel
+{
+    private final CompiledIteration kernel;
+
+    public ScalarStripKernel(CompiledIteration kernel)
+    {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void iterate(double[] reals, int count, double ci, double ur, double ui, int maxIter, int[] iterations,
+                        double[] finalReals, double[] finalImags)
+    {
+        CompiledIteration kernel = this.kernel;
+        for(int x = 0; x < count; ++x)
+        {
+            iterations[x] = kernel.iterate(reals[x], ci, ur, ui, maxIter);
+            finalReals[x] = kernel.getFinalReal();
+            finalImags[x] = kernel.getFinalImag();
+        }
+    }
+
+    @Override
+    public int getLanes()
+    {
+        return 1;
+    }
+}
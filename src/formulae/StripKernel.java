@@ -0,0 +1,104 @@
+package formulae;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Works out the sequences of several pixels of one row together, so that a kernel can follow them side by side in
+ * the lanes of a vector, or run each instruction of a program over all of them (see BatchInterpreter).
+ * VectorKernel does so for the Mandelbrot set, the Burning Ship and their Julia sets with the modulus, giving exactly
+ * the same results as their kernels, when the jdk.incubator.vector module is available. It is kept in its own source
+ * root, vector/src, so that these sources still build on Java 8; it is compiled against them separately with
+ * --add-modules jdk.incubator.vector, and only loaded by reflection if its class is there and the program is run with
+ * the module. In IDEA that root is the Vector module, built on JDK 17 with that option, and its "Main with vectors"
+ * run configuration adds the module too. Otherwise make gives a ScalarStripKernel, which works the pixels out one at
+ * a time with the kernel itself.
+ * Each strip kernel stores its results as it goes, so one must not be used by two threads at once.
+ */
+public abstract class StripKernel
+{
+    /**
+     * Null if VectorKernel cannot be loaded, because it was not built or the module was not added.
+     */
+    private static final Constructor<?> VECTOR_KERNEL = findVectorKernel();
+
+    /**
+     * Works out the sequences of count pixels, as CompiledIteration#iterate does for each one.
+     * @param reals the real part of each pixel
+     * @param ci the imaginary part of every pixel
+     * @param ur, ui the last point selected by the user
+     * @param iterations given the number of terms worked out after the first one for each pixel
+     * @param finalReals, finalImags given the last term reached for each pixel
+     */
+    public abstract void iterate(double[] reals, int count, double ci, double ur, double ui, int maxIter,
+                                 int[] iterations, double[] finalReals, double[] finalImags);
+
+    /**
+     * How many pixels the kernel works out at once.
+     */
+    public abstract int getLanes();
+
+    /**
+     * A VectorKernel for the same formula as the given iteration if it can be made, otherwise a ScalarStripKernel.
+     * Either one works through the given iteration, for its own sequences or to reject the Mandelbrot set's interior,
+     * so it should be a copy which nothing else uses, and it keeps the count of rejected points.
+     */
+    public static StripKernel make(CompiledIteration kernel)
+    {
+        if(!canVectorise(kernel))
+        {
+            return new ScalarStripKernel(kernel);
+        }
+        try
+        {
+            return (StripKernel) VECTOR_KERNEL.newInstance(kernel instanceof BurningShipKernel,
+                    ((FormulaKernel) kernel).isJulia(),
+                    kernel instanceof MandelbrotKernel && ((MandelbrotKernel) kernel).isRejectingInterior()
+                    ? (MandelbrotKernel) kernel : null,
+                    ((FormulaKernel) kernel).getEscapeCondition() == EscapeCondition.MODULUS_PERIODIC);
+        }
+        catch(Exception e)
+        {
+            throw new IllegalStateException("Could not make a vector kernel.", e);
+        }
+    }
+
+    /**
+     * True if make would give a VectorKernel for the given iteration.
+     */
+    public static boolean canVectorise(CompiledIteration kernel)
+    {
+        if(VECTOR_KERNEL == null || !(kernel instanceof MandelbrotKernel || kernel instanceof BurningShipKernel))
+        {
+            return false;
+        }
+        int escapeCondition = ((FormulaKernel) kernel).getEscapeCondition();
+        return escapeCondition == EscapeCondition.MODULUS || escapeCondition == EscapeCondition.MODULUS_PERIODIC;
+    }
+
+    public static boolean isVectorAvailable()
+    {
+        return VECTOR_KERNEL != null;
+    }
+
+    private static Constructor<?> findVectorKernel()
+    {
+        try
+        {
+            return Class.forName("formulae.VectorKernel").getConstructor(boolean.class, boolean.class,
+                    MandelbrotKernel.class, boolean.class);
+        }
+        catch(ClassNotFoundException e)
+        {
+            return null;
+        }
+        catch(NoSuchMethodException e)
+        {
+            return null;
+        }
+        catch(LinkageError e)
+        {
+            //The module is missing, so the vector classes cannot be found
+            return null;
+        }
+    }
+}
@@ -49,7 +49,8 @@ public class FractalDisplay extends JFrame
     /**
      * Maps the name of each fractal to its display panel. Before adding a panel to this HashMap, it is best to call
      * setRawInstructions and validateInstructions, so that the panel can be constructed, initialized and validated
-     * just once.
+     * just once. Call setGenerateBytecode first to choose whether the panel evaluates its formula with generated
+     * bytecode or with the interpreter.
      */
     private HashMap<String, InteractiveFractalPanel> fractals;
 
@@ -65,16 +66,19 @@ public class FractalDisplay extends JFrame
 
         //No real exception handling because these strings are known to be valid
         InteractiveFractalPanel mandel = new InteractiveFractalPanel();
+        mandel.setGenerateBytecode(true);
         mandel.setRawInstructions("c;p*p+c");
         try{mandel.validateInstructions();}catch(InvalidInstructionsException iie){}
         this.fractals.put("Mandelbrot", mandel);
 
         InteractiveFractalPanel ship = new InteractiveFractalPanel();
+        ship.setGenerateBytecode(true);
         ship.setRawInstructions("c;[arp,aip]*[arp,aip]+c");
         try{ship.validateInstructions();}catch(InvalidInstructionsException iie){}
         this.fractals.put("Burning Ship", ship);
 
         InteractiveFractalPanel buff = new InteractiveFractalPanel();
+        buff.setGenerateBytecode(true);
         buff.setRawInstructions("c;[arp,aip]*[arp,aip]-[arp,aip]+c");
         try{buff.validateInstructions();}catch(InvalidInstructionsException iie){}
         this.fractals.put("Buffalo", buff);
@@ -105,7 +109,10 @@ public class FractalDisplay extends JFrame
         Container contentPane = this.getContentPane();
         if(this.leftImage != null)
         {
+            this.leftImage.cancelRendering();
             contentPane.remove(this.leftImage);
+            panel.setSubdivide(this.leftImage.isSubdividing());
+            panel.setCheckSubdivision(this.leftImage.isCheckingSubdivision());
         }
         this.leftImage = panel;
         contentPane.add(this.leftImage, BorderLayout.CENTER);
@@ -121,6 +128,18 @@ public class FractalDisplay extends JFrame
         this.repaint();
     }
 
+    /**
+     * Sets whether both panels guess regions from their borders (see SubdivisionTask), and whether they work out the
+     * filled pixels as well to count how many were wrong, which is shown in the title.
+     */
+    public void setSubdivision(boolean subdivide, boolean checkSubdivision)
+    {
+        this.leftImage.setSubdivide(subdivide);
+        this.leftImage.setCheckSubdivision(checkSubdivision);
+        this.juliaImage.setSubdivide(subdivide);
+        this.juliaImage.setCheckSubdivision(checkSubdivision);
+    }
+
     //BASIC GETTERS AND SETTERS BELOW HERE
 
     public static FractalDisplay getMainWindow()
@@ -130,6 +149,8 @@ public class FractalDisplay extends JFrame
 
     public PointSelectionPanel getTopDisplay() { return this.topDisplay; }
 
+    public InteractiveFractalPanel getLeftImage() { return this.leftImage; }
+
     public DisplayParameterPanel getParamPanel() { return this.bottomDisplay; }
 
     public HashMap<String, Complex> getFavourites()
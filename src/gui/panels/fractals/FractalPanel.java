@@ -1,15 +1,26 @@
 package gui.panels.fractals;
 
 import exceptions.InvalidInstructionsException;
+import formulae.BytecodeGenerator;
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.FormulaCompiler;
+import formulae.FormulaProgram;
+import formulae.FormulaRecogniser;
 import gui.FractalDisplay;
 import gui.panels.info.DisplayParameterPanel;
 import numbers.Complex;
-import org.omg.CORBA.DynAnyPackage.Invalid;
+import rendering.RenderJob;
+import rendering.RenderListener;
+import rendering.TileCache;
+import rendering.ViewTransform;
 
 import javax.swing.*;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FractalPanel extends JPanel
 {
@@ -18,63 +29,42 @@ public class FractalPanel extends JPanel
      */
     protected int iterations;
 
-    /**
-     * Stack of complex numbers for parsing expressions.
-     */
-    private Stack<Complex> complexStack;
-
-    /**
-     * Stack of decimal numbers for parsing expressions.
-     */
-    private Stack<Double> doubleStack;
-
     /**
      * The instruction string as entered by the user.
      */
     protected String rawInstructions;
 
     /**
-     * The definition of the iteration sequence's first term, validated and edited by the program for faster processing.
+     * The definition of the iteration sequence's first term, validated and converted to postfix by the program.
      */
     protected String[] processedFirstTerm;
 
     /**
-     * The definition of the iteration sequence's next term, validated and edited by the program for faster processing.
+     * The definition of the iteration sequence's next term, validated and converted to postfix by the program.
      */
     protected String[] processedNextTerm;
 
     /**
-     * Stores up to 10 unique strings representing user-defined numerical values.
+     * Both processed terms compiled into opcodes, which is what is actually evaluated when drawing. Null if the
+     * instructions have not been validated.
+     */
+    protected FormulaProgram program;
+
+    /**
+     * Stores up to 10 unique user-defined numerical values.
      * In processed instruction strings, "Dx" refers to number x in this array.
      */
     protected Double[] userDoubles;
 
     /**
-     * Stores up to 10 unique strings representing user-defined complexes.
+     * Stores up to 10 unique user-defined complexes, as postfix expressions which give the real part, then the
+     * imaginary part, then end with the ',' operator to make them into a complex number.
      * In processed instruction strings, "Cx" refers to complex number x in this array.
-     * If there is a value at position x, the complex is one that has to be recalculated for every iteration, so
-     * parseComplex(userComplexStrings[x], ...) must be called.
-     * If there is no value, the complex value is constant, so it can be acquired directly from userComplexes[x].
+     * FormulaCompiler stores any of these which are made only of user-defined doubles as constants, so they are not
+     * rebuilt on every iteration.
      */
     protected String[][] userComplexStrings;
 
-    /**
-     * Stores up to 10 unique user-defined complex numbers, that do not need to be recalculated.
-     * At the start of each iteration there is a pattern between userComplexStrings and userComplexes:
-     * Where userComplexStrings is null, userComplexes is not null, and vice versa. A null value in userComplexStrings
-     * and a value in userComplexes shows that the complex value is persistent throughout all iterations. The opposite
-     * shows that the complex value has to be recalculated from the string every iteration. The first time the complex
-     * value is calculated, it can be stored in userComplexes and reused. At the end of the iteration these values
-     * will have to be removed; the values that need removing can be identified because their corresponding strings are
-     * not null.
-     */
-    protected Complex[] userComplexes;
-
-    //Binary operators and the comma need to protect the operand before them, or it could be operated on by subsequent
-    //operators.
-    protected int noOfProtectedDoubles;
-    protected int noOfProtectedComplexes;
-
     /**
      * 10 because the numbers 0-9 can be easily used to reference a user value with just one character.
      */
@@ -93,56 +83,253 @@ public class FractalPanel extends JPanel
 
     private Orbit orbit;
 
+    /**
+     * If true, a class is generated for program and the orbit trap, which runs the whole iteration sequence without
+     * the interpreter. Can be set for each fractal.
+     */
+    protected boolean generateBytecode;
+
+    /**
+     * If true, formulas recognised by FormulaRecogniser are drawn by their hand-written kernel instead of generated
+     * bytecode or the interpreter. Only worth turning off to compare the engines.
+     */
+    protected boolean useRecognisedKernels;
+
+    /**
+     * The kernel for a recognised formula, or the generated iteration, or null if neither is available; then the
+     * interpreter is used instead.
+     */
+    private CompiledIteration compiledIteration;
+
+    /**
+     * The same for EscapeCondition.ALL_TRAPS, which records every orbit trap once a picture is finished. It does not
+     * change with the orbit trap, so a finished picture can be coloured for another trap.
+     */
+    private CompiledIteration allTrapsIteration;
+
+    /**
+     * If true, subterms which are repeated in the formula are only worked out once per evaluation. Only worth turning
+     * off to measure how much difference it makes.
+     */
+    protected boolean eliminateCommonSubexpressions;
+
+    /**
+     * If true, pictures are drawn in coarse passes which are refined until every pixel has been worked out, so that a
+     * preview is shown straight away.
+     */
+    protected boolean progressive;
+
+    /**
+     * If true, sequences with no orbit trap stop as soon as they are found to repeat, which saves most of the work
+     * inside the set without changing the picture.
+     */
+    protected boolean checkPeriodicity;
+
+    /**
+     * If true, pictures with no orbit trap are drawn by subdivision (see SubdivisionTask) instead of in passes, which
+     * fills regions surrounded by one number of iterations without working them out. Progressive pictures only get
+     * their coarsest pass, as a preview. This is a guess, which can miss
+     * thin filaments.
+     */
+    protected boolean subdivide;
+
+    /**
+     * If true, pictures with no orbit trap are drawn by subdivision, which fills regions proved to take one number of
+     * iterations without working them out. Unlike subdivide, this never changes the picture, so it works for any
+     * formula, but RenderJob only proves regions where it pays off. How much of the picture was proved is shown in
+     * the title of the main window.
+     */
+    protected boolean proveRegions;
+
+    /**
+     * If true, every pixel filled or proved by subdivision is also worked out, and the number which differ is kept by
+     * the picture's RenderJob. Only worth turning on to see how far subdivision can be trusted.
+     */
+    protected boolean checkSubdivision;
+
+    /**
+     * If true, pictures with no orbit trap of the formulas VectorKernel knows are worked out a strip of pixels at a
+     * time, when VectorKernel has been built from vector/src and the program is run with
+     * --add-modules jdk.incubator.vector; the picture is the same either way.
+     */
+    protected boolean vectorise;
+
+    /**
+     * If true, formulas with no kernel of their own are run a block of pixels at a time (see BatchInterpreter); the
+     * picture is the same either way.
+     */
+    protected boolean batchInterpret;
+
+    /**
+     * If true, pictures look up their tiles in the shared TileCache before working out any sequences, and keep them
+     * there once finished.
+     */
+    protected boolean useTileCache;
+
+    /**
+     * If true, views too deep for doubles are drawn from exact coordinates, by perturbation (see PerturbationKernel)
+     * when the formula is one of the families it knows, otherwise with the cheapest numbers precise enough (see
+     * PreciseInterpreter). Otherwise they are drawn with doubles, which cannot tell the pixels apart.
+     */
+    protected boolean deepZoom;
+
+    /**
+     * The latest picture that has been started; it may still be being drawn. Null if nothing has been drawn yet.
+     */
+    private RenderJob renderJob;
+
+    /**
+     * The generation of renderJob. Incrementing it cancels renderJob.
+     */
+    private AtomicInteger renderGeneration;
+
+    /**
+     * The view made by the latest pan. It is used instead of a new view made from the display parameters while they
+     * still match it, so that the pixels which stayed on the panel keep exactly the same complex numbers.
+     */
+    private ViewTransform pannedView;
+
+    /**
+     * Told about each tile the rendering threads finish.
+     */
+    private RenderListener renderListener;
+
+    /**
+     * How many RenderJobs, in all panels, have not finished yet. Only changed on the Event Dispatch Thread.
+     */
+    private static int noOfRenderJobsRunning = 0;
+
     public FractalPanel()
     {
         super();
         this.setPreferredSize(new Dimension(600, 600));
-        this.complexStack = new Stack<Complex>();
-        this.doubleStack = new Stack<Double>();
         this.rawInstructions = "";
         this.processedFirstTerm = new String[0];
         this.processedNextTerm = new String[0];
+        this.program = null;
         this.userDoubles = new Double[NO_OF_ALLOWED_USER_VALUES];
-        this.userComplexStrings = new String[0][NO_OF_ALLOWED_USER_VALUES];
-        this.userComplexes = new Complex[NO_OF_ALLOWED_USER_VALUES];
+        this.userComplexStrings = new String[NO_OF_ALLOWED_USER_VALUES][];
         this.orbit = Orbit.NONE;
-        this.noOfProtectedDoubles = 0;
-        this.noOfProtectedComplexes = 0;
+        this.generateBytecode = false;
+        this.useRecognisedKernels = true;
+        this.compiledIteration = null;
+        this.allTrapsIteration = null;
+        this.eliminateCommonSubexpressions = true;
+        this.progressive = true;
+        this.checkPeriodicity = true;
+        this.subdivide = false;
+        this.proveRegions = true;
+        this.checkSubdivision = false;
+        this.vectorise = true;
+        this.batchInterpret = true;
+        this.useTileCache = true;
+        this.deepZoom = true;
+        this.renderJob = null;
+        this.pannedView = null;
+        this.renderGeneration = new AtomicInteger(0);
+        this.renderListener = new RenderListener()
+        {
+            @Override
+            public void tileFinished(RenderJob job, int x, int y, int width, int height)
+            {
+                //repaint can be called from any thread
+                FractalPanel.this.repaint(x, y, width, height);
+            }
+
+            @Override
+            public void renderFinished(RenderJob job)
+            {
+                SwingUtilities.invokeLater(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        FractalPanel.renderJobFinished();
+                    }
+                });
+            }
+        };
     }
 
     /**
-     * Translates an x-y point on the panel to its corresponding complex number.
+     * Translates an x-y point on the panel to its corresponding complex number, as shown in the latest picture.
      */
     public Complex getPanelCoordsAsComplex(int panelx, int panely)
     {
-        int actualWidth = this.getWidth();
-        int actualHeight = this.getHeight();
-        DisplayParameterPanel paramPanel = FractalDisplay.getMainWindow().getParamPanel();
-        //Returns { leftReal, rightReal, downImag, upImag }
-        double[] displayRange = paramPanel.getDisplayRange();
-        double fractalWidth = Math.abs(displayRange[1] - displayRange[0]);
-        double fractalHeight = Math.abs(displayRange[3] - displayRange[2]);
-
-        double realPart = ((double)panelx / actualWidth) * fractalWidth;
-        double imagPart = ((double)panely / actualHeight) * fractalHeight;
-        //Makes the complex relative to the display range
-        if(paramPanel.isRInverted())
+        ViewTransform view = this.getViewTransform();
+        return new Complex(view.getReal(panelx), view.getImag(panely));
+    }
+
+    /**
+     * The exact real and imaginary parts of an x-y point on the panel, as shown in the latest picture, if it is a deep
+     * zoom with exact coordinates; otherwise null.
+     */
+    public BigDecimal[] getPanelCoordsAsExact(int panelx, int panely)
+    {
+        ViewTransform view = this.getViewTransform();
+        if(!view.isExact())
         {
-            realPart = displayRange[0] - realPart;
+            return null;
         }
-        else
+        return new BigDecimal[] {view.getExactReal(panelx), view.getExactImag(panely)};
+    }
+
+    /**
+     * The view of the latest picture, or a new one from the display parameters if there is not a picture of the
+     * panel's current size.
+     */
+    private ViewTransform getViewTransform()
+    {
+        if(this.renderJob != null && this.renderJob.getView().getWidth() == this.getWidth()
+                && this.renderJob.getView().getHeight() == this.getHeight())
         {
-            realPart = displayRange[0] + realPart;
+            return this.renderJob.getView();
         }
-        if(paramPanel.isIInverted())
+        double[] displayRange = this.getDisplayRange();
+        int iterations = FractalDisplay.getMainWindow().getParamPanel().getIterations();
+        BigDecimal[] exactRange = this.getDeepRange(displayRange, this.getWidth(), this.getHeight());
+        if(exactRange != null)
         {
-            imagPart = displayRange[3] + imagPart;
+            return new ViewTransform(exactRange, this.getWidth(), this.getHeight(), iterations);
         }
-        else
+        return new ViewTransform(displayRange, this.getWidth(), this.getHeight(), iterations);
+    }
+
+    /**
+     * The exact display range, if a view of it would be too deep for doubles; otherwise null.
+     */
+    private BigDecimal[] getDeepRange(double[] displayRange, int width, int height)
+    {
+        if(!this.deepZoom || !ViewTransform.isBeyondDoublePrecision(displayRange, width, height))
+        {
+            return null;
+        }
+        try
         {
-            imagPart = displayRange[3] - imagPart;
+            return this.getExactDisplayRange();
         }
-        return new Complex(realPart, imagPart);
+        catch(NumberFormatException nfe)
+        {
+            //Infinity and NaN are not decimals; they are drawn with doubles
+            return null;
+        }
+    }
+
+    /**
+     * The part of the complex plane shown on the panel, as { leftReal, rightReal, downImag, upImag }. When an axis is
+     * inverted its two values are the other way round, as they are in DisplayParameterPanel.
+     */
+    protected double[] getDisplayRange()
+    {
+        return FractalDisplay.getMainWindow().getParamPanel().getDisplayRange();
+    }
+
+    /**
+     * The display range as exact decimals, or null if the panel can never show a view too deep for doubles.
+     */
+    protected BigDecimal[] getExactDisplayRange()
+    {
+        return FractalDisplay.getMainWindow().getParamPanel().getExactDisplayRange();
     }
 
     /**
@@ -150,39 +337,31 @@ public class FractalPanel extends JPanel
      * by painting a rectangle over them according to the rules in paintComponent. Better to call this than
      * repaint because repaint will only schedule the panel for repainting, whereas this will do it
      * immediately.
+     * The rectangle is copied from the latest RenderJob's image. The fractal is drawn by other threads, so this never
+     * waits for it; parts that have not been drawn yet still show the previous picture.
      */
     public void paintRect(Graphics g, int rectx, int recty, int width, int height)
     {
-        Complex userSelectedPoint = FractalDisplay.getMainWindow().getTopDisplay().getLastPoint();
-        this.iterations = FractalDisplay.getMainWindow().getParamPanel().getIterations();
-
-        //The Complex whose corresponding pixel is currently being coloured in the FractalPanel
-        Complex currentPoint;
-
-        //The first term in the iteration sequence for this fractal
-        Complex firstTerm;
-
-        //The previous term in the iteration sequence for this fractal
-        Complex prevSeqValue;
-
-        int iterationsManaged;
-
-        //Stops the while loop if the escape condition is satisfied.
-        for (int y = recty; y < recty + height; ++y) {
-            for (int x = rectx; x < rectx + width; ++x) {
-                currentPoint = this.getPanelCoordsAsComplex(x, y);
+        this.updateRenderJob();
+        if(this.renderJob != null)
+        {
+            g.drawImage(this.renderJob.getImage(), rectx, recty, rectx + width, recty + height, rectx, recty,
+                    rectx + width, recty + height, null);
+        }
+    }
 
-                firstTerm = this.parseComplex(this.processedFirstTerm, null, null, currentPoint, userSelectedPoint);
-                iterationsManaged = 0;
-                prevSeqValue = firstTerm.clone();
-                while (!this.escape(prevSeqValue) && iterationsManaged < this.iterations + 1) {
-                    ++iterationsManaged;
-                    //Uses next term rule to determine how to reach the next term
-                    prevSeqValue = this.parseComplex(this.processedNextTerm, prevSeqValue, firstTerm, currentPoint, userSelectedPoint);
-                }
-                g.setColor(this.chooseColour(prevSeqValue, iterationsManaged));
-                g.drawLine(x, y, x, y);
-            }
+    /**
+     * Copies the whole picture to the screen moved dx pixels right and dy pixels down, with black where the picture
+     * does not reach, for showing a pan while it is being dragged.
+     */
+    protected void paintShifted(Graphics g, int dx, int dy)
+    {
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, this.getWidth(), this.getHeight());
+        this.updateRenderJob();
+        if(this.renderJob != null)
+        {
+            g.drawImage(this.renderJob.getImage(), dx, dy, null);
         }
     }
 
@@ -190,221 +369,238 @@ public class FractalPanel extends JPanel
     public void paintComponent(Graphics g)
     {
         super.paintComponent(g);
-        if(!(this.processedFirstTerm.equals("") || this.processedNextTerm.equals("")))
+        if(this.program != null)
         {
-            FractalDisplay mainWindow = FractalDisplay.getMainWindow();
-            mainWindow.setTitle("Fractal Explorer (Drawing - please wait)");
             this.paintRect(g, 0, 0, this.getWidth(), this.getHeight());
-            mainWindow.setTitle("Fractal Explorer");
         }
     }
 
     /**
-     * Determines whether the point should stop the sequence
+     * Starts a new RenderJob if the panel's size, the display parameters, the selected point, the orbit trap or the
+     * formula have changed since the latest one was started, or if the latest one was cancelled. Starting a job
+     * cancels the one before. If only the orbit trap has changed since the latest job recorded every trap, the new
+     * job just colours its results again.
      */
-    private boolean escape(Complex point)
+    private void updateRenderJob()
     {
-        switch(this.orbit)
+        int actualWidth = this.getWidth();
+        int actualHeight = this.getHeight();
+        if(actualWidth <= 0 || actualHeight <= 0 || this.program == null)
         {
-            case CIRCLE:
-                //Creates a circle of radius 0.25.
-                return Math.sqrt(point.modulusSquared()) <= 0.25;
-            case CROSS_ENGLISH:
-                //Creates a cross along the axes of thickness 0.1.
-                return Math.abs(point.getRealPart()) <= 0.05
-                        || Math.abs(point.getImagPart()) <= 0.05;
-            case CROSS_SCOTTISH:
-                //Creates a diagonal cross of thickness 0.1.
-                double realPart = Math.abs(point.getRealPart());
-                double imagPart = Math.abs(point.getImagPart());
-                return realPart >= imagPart - 0.05 && realPart <= imagPart + 0.05;
+            return;
+        }
+        FractalDisplay mainWindow = FractalDisplay.getMainWindow();
+        Complex userSelectedPoint = mainWindow.getTopDisplay().getLastPoint();
+        this.iterations = mainWindow.getParamPanel().getIterations();
+        double[] displayRange = this.getDisplayRange();
+        BigDecimal[] exactRange = this.getDeepRange(displayRange, actualWidth, actualHeight);
+        ViewTransform view;
+        if(exactRange != null)
+        {
+            if(this.renderJob != null
+                    && this.renderJob.getView().isSameView(exactRange, actualWidth, actualHeight, this.iterations))
+            {
+                view = this.renderJob.getView();
+            }
+            else if(this.pannedView != null
+                    && this.pannedView.isSameView(exactRange, actualWidth, actualHeight, this.iterations))
+            {
+                view = this.pannedView;
+            }
+            else
+            {
+                view = new ViewTransform(exactRange, actualWidth, actualHeight, this.iterations);
+            }
+        }
+        else if(this.renderJob != null
+                && this.renderJob.getView().isSameView(displayRange, actualWidth, actualHeight, this.iterations))
+        {
+            view = this.renderJob.getView();
+        }
+        else if(this.pannedView != null
+                && this.pannedView.isSameView(displayRange, actualWidth, actualHeight, this.iterations))
+        {
+            view = this.pannedView;
+        }
+        else
+        {
+            view = new ViewTransform(displayRange, actualWidth, actualHeight, this.iterations);
+        }
+        RenderJob job = new RenderJob(this.renderListener, view, userSelectedPoint.getRealPart(),
+                userSelectedPoint.getImagPart(), this.getEscapeCondition(), this.program, this.compiledIteration,
+                this.allTrapsIteration, this.progressive, this.renderGeneration);
+        job.setSubdivide(this.subdivide);
+        job.setProveRegions(this.proveRegions);
+        job.setCheckSubdivision(this.checkSubdivision);
+        job.setVectorise(this.vectorise);
+        job.setBatchInterpret(this.batchInterpret);
+        job.setCheckPeriodicity(this.checkPeriodicity);
+        if(this.useTileCache)
+        {
+            job.setTileCache(TileCache.getShared());
+        }
+        if(job.hasSameSettings(this.renderJob) && (this.renderJob.isCurrent() || this.renderJob.isFinished()))
+        {
+            return;
+        }
+        if(job.canRecolour(this.renderJob))
+        {
+            job.startRecolouring(this.renderJob);
+        }
+        else
+        {
+            job.start(this.renderJob);
+        }
+        this.renderJob = job;
+        ++noOfRenderJobsRunning;
+        mainWindow.setTitle("Fractal Explorer (Drawing - please wait)");
+    }
 
-            default:
-                //The default: sequence terminates when modulus >= 2 (squared modulus >= 4).
-                return point.modulusSquared() >= 4.0;
+    /**
+     * Moves the picture dx pixels right and dy pixels down, by setting the display parameters to a shifted copy of the
+     * current view. Every pixel which stays on the panel keeps exactly the same complex number, so the next picture
+     * copies them from this one and only works out the strips that come into view.
+     */
+    public void pan(int dx, int dy)
+    {
+        ViewTransform view = this.getViewTransform().shift(-dx, -dy);
+        this.pannedView = view;
+        if(view.isExact())
+        {
+            BigDecimal[] exactRange = view.getExactRange();
+            FractalDisplay.getMainWindow().getParamPanel().setMinMax(exactRange[0], exactRange[1], exactRange[2],
+                    exactRange[3]);
+            return;
+        }
+        FractalDisplay.getMainWindow().getParamPanel().setMinMax(view.getLeftReal(), view.getRightReal(),
+                view.getDownImag(), view.getUpImag());
+    }
+
+    /**
+     * Stops drawing the latest picture, for when the panel is taken off the screen. It is started again if the panel
+     * is painted.
+     */
+    public void cancelRendering()
+    {
+        this.renderGeneration.incrementAndGet();
+    }
+
+    private static void renderJobFinished()
+    {
+        --noOfRenderJobsRunning;
+        if(noOfRenderJobsRunning == 0)
+        {
+            FractalDisplay mainWindow = FractalDisplay.getMainWindow();
+            mainWindow.setTitle("Fractal Explorer" + mainWindow.getLeftImage().describeSubdivision());
+        }
+    }
+
+    /**
+     * Says how much of the latest picture was filled by subdivision, and how many of those pixels were wrong if it was
+     * checked, to go after the title of the main window. Gives an empty string if the picture is not finished or was
+     * not drawn by subdivision.
+     */
+    String describeSubdivision()
+    {
+        RenderJob job = this.renderJob;
+        if(job == null || !job.isFinished() || !job.isSubdividing())
+        {
+            return "";
+        }
+        double pixels = job.getView().getWidth() * job.getView().getHeight();
+        String description = " (";
+        if(job.isProvingRegions())
+        {
+            description += String.format("proved %.1f%%", 100.0 * job.getProvenPixels() / pixels);
+            if(job.isGuessingRegions())
+            {
+                description += " and ";
+            }
+        }
+        if(job.isGuessingRegions())
+        {
+            description += String.format("guessed %.1f%%", 100.0 * job.getFilledPixels() / pixels);
         }
+        description += " of the picture";
+        if(job.isCheckingSubdivision())
+        {
+            description += ", " + job.getMismatchedPixels() + " of them wrong";
+        }
+        return description + ")";
     }
 
     /**
-     * Decides the colour based on the point position and number of iterations managed.
+     * The escape condition from EscapeCondition which matches the orbit trap.
      */
-    private Color chooseColour(Complex point, int iterationsManaged)
+    private int getEscapeCondition()
     {
         switch(this.orbit)
         {
             case CIRCLE:
-                double distance = Math.sqrt(point.modulusSquared());
-                if(distance <= 0.25)
-                {
-                    float colourDist = 0.25F - (float) distance;
-                    return new Color(4 * colourDist, 0, colourDist);
-                }
-                else
-                {
-                    return Color.black;
-                }
+                return EscapeCondition.CIRCLE;
             case CROSS_ENGLISH:
-                double closestDistanceToAxis = Math.min(Math.abs(point.getRealPart()), Math.abs(point.getImagPart()));
-                if(closestDistanceToAxis <= 0.05)
-                {
-                    float colourDist = 0.05F - (float) closestDistanceToAxis;
-                    return new Color(20 * colourDist, 0, 0);
-                }
-                else
-                {
-                    return Color.white;
-                }
+                return EscapeCondition.CROSS_ENGLISH;
             case CROSS_SCOTTISH:
-                float realVsImagDifference = (float)Math.abs(Math.abs(point.getRealPart()) - Math.abs(point.getImagPart()));
-                if(realVsImagDifference <= 0.05)
-                {
-                    realVsImagDifference *= 20;
-                    return new Color(1.0F - realVsImagDifference, 1.0F - realVsImagDifference, 1.0F);
-                }
-                else
-                {
-                    return Color.BLUE;
-                }
-            case NONE:
-                if (iterationsManaged > iterations)
-                {
-                    return Color.BLACK;
-                }
-                else if (iterationsManaged == 0)
-                {
-                    return Color.WHITE;
-                }
-                else if (iterationsManaged < (float) iterations / 3)
-                {
-                    return Color.LIGHT_GRAY;
-                }
-                else if (iterationsManaged < (float) iterations * 2 / 3)
-                {
-                    return Color.GRAY;
-                }
-                else
-                {
-                    return Color.DARK_GRAY;
-                }
+                return EscapeCondition.CROSS_SCOTTISH;
             default:
-                return Color.BLACK;
+                return EscapeCondition.MODULUS;
         }
     }
 
     /**
-     * Any instruction strings specified in the code are tested and valid, and any strings entered by the user are only
-     * made available if they pass validateInstructions, so that s can be assumed to be valid. Any conditions not
-     * covered in this method, such as the stacks being empty when a binary operator is processed, should therefore not
-     * occur.
-     * @param comp a valid expression to be parsed.
-     * @param prev the previous Complex in the sequence
-     * @param first the first Complex in the sequence
-     * @param currentPoint the current point being drawn on the panel
-     * @param userPoint the last point selected by the user
-     * @return the Complex that is described by these instructions
+     * The escape condition compiledIteration is made for: the orbit trap's, or MODULUS_PERIODIC if there is no orbit
+     * trap and checkPeriodicity is true.
      */
-    private Complex parseComplex(String[] comp, Complex prev, Complex first, Complex currentPoint, Complex userPoint)
+    private int getIterationCondition()
     {
-        //Points to the next complex number in userComplexes to be checked for the first time.
-        int nextComplexToCheck = 0;
-        String currentString;
-        char currentFirstChar;
-        for(int x = 0; x < comp.length; ++x)
+        int escapeCondition = this.getEscapeCondition();
+        if(escapeCondition == EscapeCondition.MODULUS && this.checkPeriodicity)
         {
-            currentString = comp[x];
-            currentFirstChar = currentString.charAt(0);
-            if(currentFirstChar == 'p')
-            {
-                this.complexStack.push(prev.clone());
-            }
-            else if(currentFirstChar == 'u')
-            {
-                this.complexStack.push(userPoint.clone());
-            }
-            else if(currentFirstChar == 'c')
-            {
-                this.complexStack.push(currentPoint.clone());
-            }
-            else if(currentFirstChar == 'f')
-            {
-                this.complexStack.push(first.clone());
-            }
-            else if(currentFirstChar == '*')
-            {
-                char secondChar = currentString.charAt(1);
-                if(secondChar == 'C')
-                {
-                    this.complexStack.push(this.complexStack.pop().multiplyBy(this.complexStack.pop()));
-                }
-                else if(secondChar == 'D')
-                {
-                    this.doubleStack.push(this.doubleStack.pop() * this.doubleStack.pop());
-                }
-            }
-            else if(currentFirstChar == '+')
-            {
-                char secondChar = currentString.charAt(1);
-                if(secondChar == 'C')
-                {
-                    this.complexStack.push(this.complexStack.pop().add(this.complexStack.pop()));
-                }
-                else if(secondChar == 'D')
-                {
-                    this.doubleStack.push(this.doubleStack.pop() + this.doubleStack.pop());
-                }
-            }
-            else if(currentFirstChar == '-')
-            {
-                char secondChar = currentString.charAt(1);
-                //Subtraction is not commutative, so order needs to be preserved
-                if(secondChar == 'C')
-                {
-                    Complex newerComp = this.complexStack.pop();
-                    this.complexStack.push(this.complexStack.pop()
-                            .add(new Complex(-newerComp.getRealPart(), -newerComp.getImagPart())));
-                }
-                else if(secondChar == 'D')
-                {
-                    double newerDoub = this.doubleStack.pop();
-                    this.doubleStack.push(this.doubleStack.pop() - newerDoub);
-                }
-            }
-            else if(currentFirstChar == 'a')
-            {
-                this.doubleStack.push(Math.abs(this.doubleStack.pop()));
-            }
-            else if(currentFirstChar == 'r')
-            {
-                this.doubleStack.push(this.complexStack.pop().getRealPart());
-            }
-            else if(currentFirstChar == 'i')
+            return EscapeCondition.MODULUS_PERIODIC;
+        }
+        return escapeCondition;
+    }
+
+    /**
+     * Sets compiledIteration for the current program and orbit trap, and allTrapsIteration for the current program.
+     */
+    protected void generateIteration()
+    {
+        this.compiledIteration = this.makeIteration(this.getIterationCondition());
+        this.allTrapsIteration = this.makeIteration(EscapeCondition.ALL_TRAPS);
+    }
+
+    /**
+     * A hand-written kernel if the formula is recognised, otherwise generated bytecode if generateBytecode is true. If
+     * neither is available, gives null so that the interpreter is used.
+     */
+    private CompiledIteration makeIteration(int escapeCondition)
+    {
+        CompiledIteration iteration = null;
+        if(this.useRecognisedKernels && this.program != null)
+        {
+            iteration = FormulaRecogniser.recognise(this.processedFirstTerm, this.processedNextTerm,
+                    this.userComplexStrings, escapeCondition);
+        }
+        if(iteration == null && this.generateBytecode && this.program != null)
+        {
+            try
             {
-                this.doubleStack.push(this.complexStack.pop().getImagPart());
+                iteration = new BytecodeGenerator(this.program, escapeCondition).generate().getConstructor()
+                        .newInstance();
             }
-            else if(currentFirstChar == 'D')
+            catch(Exception e)
             {
-                //There is a user-defined double here
-                this.doubleStack.push(this.userDoubles[Integer.parseInt(currentString.substring(1))]);
+                //The interpreter draws the same picture, only more slowly
+                iteration = null;
             }
-            else if(currentFirstChar == 'C')
+            catch(LinkageError le)
             {
-                //There is a user-defined complex here
-                //The number after C is the position in userComplexStrings or userComplexes of the desired complex
-                int complexIndex = Integer.parseInt(currentString.substring(1));
-                if(complexIndex >= nextComplexToCheck && this.userComplexStrings[complexIndex] != null)
-                {
-                    //The index is pointing to a complex that has not been calculated yet, AND the string is null
-                    //so calculation is required.
-                    //Parse the corresponding string and store the result at complexIndex
-                    this.userComplexes[complexIndex] = this.parseComplex(this.userComplexStrings[complexIndex], prev, first, currentPoint, userPoint);
-                    ++nextComplexToCheck;
-                }
-                //At this point the complex value at complexIndex will have been calculated and will be available in
-                //userComplexes.
-                this.complexStack.push(this.userComplexes[complexIndex].clone());
+                //The verifier rejected the class, so the interpreter is used as above
+                iteration = null;
             }
         }
-        return this.complexStack.pop();
+        return iteration;
     }
 
     /**
@@ -412,12 +608,11 @@ public class FractalPanel extends JPanel
      * instruction is set. What constitutes a valid formula is described fully in the window displayed by the Create New
      * Fractal Button (see FractalSelectPanel#createFractal ActionListener code).
      *
-     * This method also adjusts the string to make it as quick to parse as possible. Any numerical values from the raw
-     * string that are specified by the user are placed in userDoubles and replaced with a $ character.
-     * The first ten unique complex numbers specified by the user are replaced by single-digit values which refer to
-     * their place in an array. If any complex numbers are equal they are replaced by the same number. Then, when
-     * parsing, the complex number only needs to be evaluated once and stored in another array. The string is also much
-     * shorter so the loop takes less time.
+     * This method also converts the string into a form that is as quick to evaluate as possible. Any numerical values
+     * from the raw string that are specified by the user are placed in userDoubles and replaced with "Dx".
+     * The first ten unique complex numbers specified by the user are replaced by "Cx", where x refers to their place in
+     * userComplexStrings. If any complex numbers are equal they are replaced by the same reference. Finally the terms
+     * are compiled into a FormulaProgram, so no strings need to be read while drawing.
      *
      * Throws the exception per error because a string that is invalid in one way can lead to valid parts of
      * the string being wrongly listed as invalid.
@@ -473,77 +668,77 @@ public class FractalPanel extends JPanel
             throw iie;
         }
 
-        //Loops through the list to check for user-defined doubles. If any are found, they are added to userDoubles
-        //and replaced with a reference to an item of userDoubles, for faster processing later on.
-        int x = 0;
+        //Values from any previous instructions are cleared, so that they do not take up places needed by these ones.
+        this.userDoubles = new Double[NO_OF_ALLOWED_USER_VALUES];
+        this.userComplexStrings = new String[NO_OF_ALLOWED_USER_VALUES][];
+        try
+        {
+            this.replaceUserValues(postfixFirstTerm);
+            this.replaceUserValues(postfixNextTerm);
+        }
+        catch(ArrayIndexOutOfBoundsException aioobe)
+        {
+            throw new InvalidInstructionsException("Up to 10 unique normal numbers and up to 10 unique complex " +
+                    "numbers can be defined.");
+        }
+
+        //Compiling checks that both sections of the instruction string evaluate to complex numbers. Failure to do so
+        //means the string was invalid in a way that was not caught by the previous code.
+        FormulaCompiler compiler = new FormulaCompiler(this.userDoubles, this.userComplexStrings);
+        compiler.setEliminateCommonSubexpressions(this.eliminateCommonSubexpressions);
+        FormulaProgram program = compiler.compile(postfixFirstTerm, postfixNextTerm);
+
+        //At this point, the instruction string is considered valid.
+        this.processedFirstTerm = postfixFirstTerm;
+        this.processedNextTerm = postfixNextTerm;
+        this.program = program;
+        this.generateIteration();
+    }
+
+    /**
+     * Loops through a postfix expression to check for user-defined values. Any numbers found are added to userDoubles
+     * and any complex numbers are added to userComplexStrings; either way they are replaced with a reference to their
+     * place in the array, for faster processing later on.
+     */
+    private void replaceUserValues(String[] postfix) throws InvalidInstructionsException
+    {
         String currentString;
-        while (x < postfixFirstTerm.length)
+        for(int x = 0; x < postfix.length; ++x)
         {
-            currentString = postfixFirstTerm[x];
-            if(this.isComplex(currentString) || this.isBinaryOperator(currentString.charAt(0))
-                    || this.isUnaryOperator(currentString.charAt(0)))
+            currentString = postfix[x];
+            if(currentString.indexOf(',') > -1)
             {
-                ++x;
+                postfix[x] = "C" + this.addNewUserComplex(currentString);
             }
-            else
+            else if(this.isNumber(currentString))
             {
-                if(this.isDouble(currentString))
-                {
-                    int userDoubleIndex = this.addNewUserDouble(currentString);
-                    postfixFirstTerm[x] = "D"+userDoubleIndex;
-                    ++x;
-                }
-                else
-                {
-                    throw new InvalidInstructionsException("'"+currentString+"' is not a valid number.");
-                }
+                postfix[x] = "D" + this.addNewUserDouble(currentString);
             }
-        }
-
-        //Loops through the list again, to check for user-defined complex numbers. If any are found, they are added to
-        //one of two arrays and replaced with a reference to an item of userComplexStrings, for faster processing later
-        //on.
-        x = 0;
-        while (x < postfixFirstTerm.length) {
-            currentString = postfixFirstTerm[x];
-            if (this.isDouble(currentString) || this.isBinaryOperator(currentString.charAt(0))
-                    || this.isUnaryOperator(currentString.charAt(0))) {
-                ++x;
-            } else {
-                //This character could be the start of a complex.
-                if (this.isComplex(currentString)) {
-                    int userComplexIndex = this.addNewUserComplex(currentString);
-                    postfixNextTerm[x] = "C" + userComplexIndex;
-                    ++x;
-                } else {
-                    throw new InvalidInstructionsException("'" + currentString + "' is not a valid complex number.");
-                }
+            else if(currentString.length() > 2 || !(this.isBinaryOperator(currentString.charAt(0))
+                    || this.isUnaryOperator(currentString.charAt(0)) || this.isSpecialComplex(currentString.charAt(0))))
+            {
+                throw new InvalidInstructionsException("'" + currentString + "' is not a valid number.");
             }
         }
+    }
 
-        //Checks that both sections of the instruction string evaluate to complex numbers, by doing a test parse of
-        //both. Failure to return a complex number means the string was invalid in a way that was not caught by the
-        //previous code.
-        Complex zero = new Complex(0, 0);
-        try
-        {
-            this.parseComplex(postfixFirstTerm, zero, zero, zero, zero);
-        }
-        catch(Exception e)
+    /**
+     * Converts an expression which should give a double, such as one part of a user-defined complex, to postfix.
+     */
+    private String[] realExpressionToPostfix(String exp) throws InvalidInstructionsException
+    {
+        if(exp.length() == 0)
         {
-            throw new InvalidInstructionsException("The result of the first term is not a complex number.");
-        }
-        try {
-            this.parseComplex(postfixNextTerm, zero, zero, zero, zero);
+            throw new InvalidInstructionsException("Both parts of a complex number must be given.");
         }
-        catch(Exception e)
+        ArrayList<String> parts = this.breakUpExpression(exp);
+        String[] postfix = this.setInfixListToPostfix(parts);
+        //setInfixListToPostfix leaves the whole expression as the only item in the list
+        if(!this.isDouble(parts.get(0)))
         {
-            throw new InvalidInstructionsException("The result of the rule for the next term is not a complex number.");
+            throw new InvalidInstructionsException("'" + exp + "' is not a valid real number.");
         }
-
-        //At this point, the instruction string is considered valid.
-        this.processedFirstTerm = postfixFirstTerm;
-        this.processedNextTerm = postfixNextTerm;
+        return postfix;
     }
 
     /**
@@ -613,7 +808,7 @@ public class FractalPanel extends JPanel
                         infixList.remove(x);
                         infixList.add(x, newTerm);
                     } else if (this.isComplex(prevString)) {
-                        throw new InvalidInstructionsException("Can only use 'a' with a complex number.");
+                        throw new InvalidInstructionsException("Can only use 'a' with a decimal number.");
                     } else {
                         throw new InvalidInstructionsException("'" + prevString + "' is not a recognized value.");
                     }
@@ -661,6 +856,8 @@ public class FractalPanel extends JPanel
                     infixList.remove(x - 1);
                     infixList.remove(x - 1);
                     infixList.add(x - 1, newTerm);
+                    //The next operator has moved back to x, so x must not be moved past it
+                    --x;
                 }
                 else if(this.isComplex(prevString))
                 {
@@ -687,6 +884,8 @@ public class FractalPanel extends JPanel
                     infixList.remove(x - 1);
                     infixList.remove(x - 1);
                     infixList.add(x - 1, newTerm);
+                    //The next operator has moved back to x, so x must not be moved past it
+                    --x;
                 }
                 else
                 {
@@ -733,6 +932,8 @@ public class FractalPanel extends JPanel
                     infixList.remove(x - 1);
                     infixList.remove(x - 1);
                     infixList.add(x - 1, newTerm);
+                    //The next operator has moved back to x, so x must not be moved past it
+                    --x;
                 }
                 else if(this.isComplex(prevString))
                 {
@@ -759,6 +960,8 @@ public class FractalPanel extends JPanel
                     infixList.remove(x - 1);
                     infixList.remove(x - 1);
                     infixList.add(x - 1, newTerm);
+                    //The next operator has moved back to x, so x must not be moved past it
+                    --x;
                 }
                 else
                 {
@@ -766,6 +969,11 @@ public class FractalPanel extends JPanel
                 }
             }
         }
+        if(infixList.size() > 1)
+        {
+            throw new InvalidInstructionsException("There is no operator between '" + infixList.get(0) + "' and '"
+                    + infixList.get(1) + "'.");
+        }
         return infixList.get(0).split("\\|");
     }
 
@@ -807,6 +1015,9 @@ public class FractalPanel extends JPanel
                     if (index < restOfExp.length() - 1) {
                         //There is leftover text to evaluate
                         restOfExp = restOfExp.substring(index + 1);
+                    } else {
+                        //The complex was the last part of the expression
+                        restOfExp = "";
                     }
                     discoveredComplexStart = false;
                     index = -1;
@@ -846,7 +1057,9 @@ public class FractalPanel extends JPanel
             //Otherwise, the character is assumed to be a valid non-special character that is part of a user-defined
             //double or complex. If it is invalid, a later validation sub-process will throw an exception.
         }
-        parts.add(restOfExp);
+        if (restOfExp.length() > 0) {
+            parts.add(restOfExp);
+        }
         return parts;
     }
 
@@ -871,139 +1084,106 @@ public class FractalPanel extends JPanel
     }
 
     /**
-     * A correct result is unlikely if this is called after setInfixListToPostfix.
+     * Doubles are either decimal numbers, or the internal representation of an expression whose result is a double,
+     * such as '0.5|0.8|+D' or 'p|r', which can be generated in setInfixListToPostfix. The type of such an expression
+     * is decided by the operator at the end of it.
+     * A correct result is unlikely if this is called after validateInstructions has replaced user-defined values.
      */
     private boolean isDouble(String s)
     {
-        char firstChar = s.charAt(0);
-        int stringLength = s.length();
-        if(stringLength == 2)
-        {
-            //s is one of the user-defined doubles
-            return firstChar == 'D' || (this.isSpecialComplex(s.charAt(1)) && (firstChar == 'i' || firstChar == 'r'));
-        }
-        else if(stringLength > 2)
+        int lastBar = s.lastIndexOf('|');
+        if(lastBar > -1)
         {
-            //Could be 'r|[a complex]' or 'i|[a complex]'.
-            return ((firstChar == 'r' || firstChar == 'i') && s.charAt(1) == '|' && this.isComplex(s.substring(2)))
-                    //Could be 'a|[a double]
-                    || (firstChar == 'a' || s.charAt(1) == '|' && this.isDouble(s.substring(2)));
-        }
-        else if(stringLength >= 6)
-        {
-            //The double might be the internal representation of an expression for the result of two doubles and an
-            //operator, such as '0.5|0.8|+D', which can be generated in setInfixListToPostfix. In this case its minimum
-            //length is 6; if a result is a double it will end in D.
-            return s.charAt(stringLength - 1) == 'D';
-        }
-        else
-        {
-            return false;
+            String lastOperator = s.substring(lastBar + 1);
+            return lastOperator.equals("a") || lastOperator.equals("r") || lastOperator.equals("i")
+                    || (lastOperator.length() == 2 && lastOperator.charAt(1) == 'D');
         }
+        return this.isNumber(s);
     }
 
     /**
-     * Non-special complexes are defined in instruction strings as [a,b], where and and b are valid doubles.
-     * a is the real part and b is the coefficient of i in the imaginary part. The minimum length of such
-     * complexes in instruction strings is 5, as in [0,0].
-     * A correct result is unlikely if this is called after setInfixListToPostfix.
+     * Decimal numbers as typed by the user, such as 2 or 0.5.
+     */
+    private boolean isNumber(String s)
+    {
+        return s.matches("\\d+(\\.\\d*)?|\\.\\d+");
+    }
+
+    /**
+     * Non-special complexes are defined in instruction strings as [a,b], where a and b are expressions giving doubles.
+     * a is the real part and b is the coefficient of i in the imaginary part. By the time this is called the square
+     * brackets have been removed by breakUpExpression.
+     * The complex might also be the internal representation of an expression for the result of two complexes and an
+     * operator, such as 'p|p|*C', which can be generated in setInfixListToPostfix; if a result is a complex it will end
+     * in C.
+     * A correct result is unlikely if this is called after validateInstructions has replaced user-defined values.
      */
     private boolean isComplex(String s)
     {
-        int stringLength = s.length();
-        if(stringLength == 1)
+        int lastBar = s.lastIndexOf('|');
+        if(lastBar > -1)
         {
-            //Only the special Complex numbers can take up a single character.
-            return isSpecialComplex(s.charAt(0));
+            String lastOperator = s.substring(lastBar + 1);
+            return lastOperator.length() == 2 && lastOperator.charAt(1) == 'C';
         }
-        else if(stringLength == 2)
+        if(s.length() == 1)
         {
-            return s.charAt(0) == 'C';
+            //Only the special Complex numbers can take up a single character.
+            return this.isSpecialComplex(s.charAt(0));
         }
-        else if(stringLength >= 3)
+        String[] possibleComplexParts = s.split(",", -1);
+        if(possibleComplexParts.length == 2)
         {
-            //The string could be a user-defined complex, such as '0,0'. These have a minimum length of 3.
-            String[] possibleComplexParts = s.split(",");
-            if(possibleComplexParts.length == 2)
+            try
             {
-                return this.isDouble(possibleComplexParts[0]) && this.isDouble(possibleComplexParts[1]);
+                this.realExpressionToPostfix(possibleComplexParts[0]);
+                this.realExpressionToPostfix(possibleComplexParts[1]);
+                return true;
             }
-            else
+            catch(InvalidInstructionsException iie)
             {
                 return false;
             }
         }
-        else if(stringLength >= 6)
-        {
-            //The complex might be the internal representation of an expression for the result of two complexes and an
-            //operator, such as 'p,p,*C', which can be generated in setInfixListToPostfix. In this case its minimum
-            //length is 6; if a result is a complex it will end in C.
-            return s.charAt(stringLength - 1) == 'C';
-        }
         return false;
     }
 
     /**
-     * Operates very similarly to addNewUserDouble. Strings which will not have a constant value are placed in
-     * userComplexStrings. Strings which will are converted straight to complex numbers and stored in userComplexes.
+     * Operates very similarly to addNewUserDouble. Each part of the complex is converted to postfix, with any numbers
+     * in it replaced by references to userDoubles, and the ',' operator is added to the end to join the parts together.
      */
-    private int addNewUserComplex(String nextComplexString) throws ArrayIndexOutOfBoundsException, NumberFormatException
+    private int addNewUserComplex(String nextComplexString) throws ArrayIndexOutOfBoundsException,
+            InvalidInstructionsException
     {
-        //If the complex takes the form [Dx,Dy], it is made up of user-defined numbers so it will not need
-        //to be recalculated. This checks for that pattern.
-        if(nextComplexString.matches("\\[\\D\\d,\\D\\d\\]"))
+        String[] possibleComplexParts = nextComplexString.split(",", -1);
+        if(possibleComplexParts.length != 2)
         {
-            //This complex can go straight to userComplexes
-            Complex newComplex = this.parseComplex(nextComplexString, null, null, null, null);
-            int numberToTry = -1;
-            while(numberToTry > -2)
-            {
-                ++numberToTry;
-                if(this.userComplexes[numberToTry] == null && this.userComplexStrings[numberToTry] == null)
-                {
-                    this.userComplexes[numberToTry] = newComplex;
-                    return numberToTry;
-                }
-                else if(this.userComplexes[numberToTry] != null)
-                {
-                    if(this.userComplexes[numberToTry].getRealPart() == newComplex.getRealPart()
-                            &&this.userComplexes[numberToTry].getImagPart() == newComplex.getImagPart())
-                    {
-                        return numberToTry;
-                    }
-                }
-            }
+            throw new InvalidInstructionsException("'" + nextComplexString + "' is not a valid complex number.");
         }
-        else
+        String[] realPart = this.realExpressionToPostfix(possibleComplexParts[0]);
+        String[] imagPart = this.realExpressionToPostfix(possibleComplexParts[1]);
+        this.replaceUserValues(realPart);
+        this.replaceUserValues(imagPart);
+        String[] nextComplex = new String[realPart.length + imagPart.length + 1];
+        System.arraycopy(realPart, 0, nextComplex, 0, realPart.length);
+        System.arraycopy(imagPart, 0, nextComplex, realPart.length, imagPart.length);
+        nextComplex[nextComplex.length - 1] = ",";
+
+        int numberToTry = -1;
+        while(numberToTry > -2)
         {
-            //The complex needs to be validated. If it is found to be valid it goes to userComplexStrings because
-            //it doesn't just contain user doubles, so it may need to be recalculated every iteration.
-            if(this.isComplex(nextComplexString))
+            ++numberToTry;
+            if(this.userComplexStrings[numberToTry] == null)
             {
-                int numberToTry = -1;
-                while(numberToTry > -2)
-                {
-                    ++numberToTry;
-                    if(this.userComplexes[numberToTry] == null && this.userComplexStrings[numberToTry] == null)
-                    {
-                        this.userComplexStrings[numberToTry] = nextComplexString;
-                        return numberToTry;
-                    }
-                    else if(this.userComplexStrings[numberToTry] != null)
-                    {
-                        if(this.userComplexStrings[numberToTry].equals(nextComplexString))
-                        {
-                            return numberToTry;
-                        }
-                    }
-                }
+                this.userComplexStrings[numberToTry] = nextComplex;
+                return numberToTry;
             }
-            else
+            else if(Arrays.equals(this.userComplexStrings[numberToTry], nextComplex))
             {
-                throw new NumberFormatException();
+                return numberToTry;
             }
         }
-        //Should have thrown an exception before this point
+        //Should have thrown an exception before reaching this point
         return 666;
     }
 
@@ -1056,12 +1236,188 @@ public class FractalPanel extends JPanel
         {
             this.orbit = Orbit.CROSS_SCOTTISH;
         }
+        //The escape condition is part of the generated code. allTrapsIteration stays the same, so that a finished
+        //picture can be coloured for the new trap.
+        this.compiledIteration = this.makeIteration(this.getIterationCondition());
+    }
+
+    /**
+     * Copies every option for how pictures are compiled and drawn from another panel, so that a linked panel draws
+     * its pictures the same way. Must be called before validateInstructions for the compiling options to take effect.
+     */
+    protected void copyRenderOptions(FractalPanel other)
+    {
+        this.generateBytecode = other.generateBytecode;
+        this.useRecognisedKernels = other.useRecognisedKernels;
+        this.eliminateCommonSubexpressions = other.eliminateCommonSubexpressions;
+        this.progressive = other.progressive;
+        this.checkPeriodicity = other.checkPeriodicity;
+        this.subdivide = other.subdivide;
+        this.proveRegions = other.proveRegions;
+        this.checkSubdivision = other.checkSubdivision;
+        this.vectorise = other.vectorise;
+        this.batchInterpret = other.batchInterpret;
+        this.useTileCache = other.useTileCache;
+        this.deepZoom = other.deepZoom;
     }
 
     //BASIC GETTERS AND SETTERS
 
+    /**
+     * The latest picture that has been started, which keeps the counts of how it was drawn, or null.
+     */
+    public RenderJob getRenderJob()
+    {
+        return this.renderJob;
+    }
+
     public void setRawInstructions(String instructions)
     {
         this.rawInstructions = instructions;
     }
+
+    public void setProgressive(boolean progressive)
+    {
+        this.progressive = progressive;
+        this.repaint();
+    }
+
+    public boolean isProgressive()
+    {
+        return this.progressive;
+    }
+
+    public void setCheckPeriodicity(boolean checkPeriodicity)
+    {
+        this.checkPeriodicity = checkPeriodicity;
+        this.compiledIteration = this.makeIteration(this.getIterationCondition());
+        this.repaint();
+    }
+
+    public boolean isCheckingPeriodicity()
+    {
+        return this.checkPeriodicity;
+    }
+
+    public void setSubdivide(boolean subdivide)
+    {
+        this.subdivide = subdivide;
+        this.repaint();
+    }
+
+    public boolean isSubdividing()
+    {
+        return this.subdivide;
+    }
+
+    public void setProveRegions(boolean proveRegions)
+    {
+        this.proveRegions = proveRegions;
+        this.repaint();
+    }
+
+    public boolean isProvingRegions()
+    {
+        return this.proveRegions;
+    }
+
+    /**
+     * Draws the picture again, checking it, but does not change it.
+     */
+    public void setCheckSubdivision(boolean checkSubdivision)
+    {
+        this.checkSubdivision = checkSubdivision;
+        this.repaint();
+    }
+
+    public boolean isCheckingSubdivision()
+    {
+        return this.checkSubdivision;
+    }
+
+    /**
+     * Takes effect for the next picture started; the picture itself does not change.
+     */
+    public void setVectorise(boolean vectorise)
+    {
+        this.vectorise = vectorise;
+    }
+
+    public boolean isVectorising()
+    {
+        return this.vectorise;
+    }
+
+    /**
+     * Takes effect for the next picture started; the picture itself does not change.
+     */
+    public void setBatchInterpret(boolean batchInterpret)
+    {
+        this.batchInterpret = batchInterpret;
+    }
+
+    public boolean isBatchInterpreting()
+    {
+        return this.batchInterpret;
+    }
+
+    public void setUseTileCache(boolean useTileCache)
+    {
+        this.useTileCache = useTileCache;
+        this.repaint();
+    }
+
+    public void setDeepZoom(boolean deepZoom)
+    {
+        this.deepZoom = deepZoom;
+        this.repaint();
+    }
+
+    public boolean isDeepZooming()
+    {
+        return this.deepZoom;
+    }
+
+    public void setUseRecognisedKernels(boolean useRecognisedKernels)
+    {
+        this.useRecognisedKernels = useRecognisedKernels;
+        this.generateIteration();
+    }
+
+    public void setGenerateBytecode(boolean generateBytecode)
+    {
+        this.generateBytecode = generateBytecode;
+        this.generateIteration();
+    }
+
+    public boolean isGeneratingBytecode()
+    {
+        return this.generateBytecode;
+    }
+
+    /**
+     * The kernel or generated class used to draw, or null if the interpreter is used.
+     */
+    public CompiledIteration getCompiledIteration()
+    {
+        return this.compiledIteration;
+    }
+
+    public CompiledIteration getAllTrapsIteration()
+    {
+        return this.allTrapsIteration;
+    }
+
+    /**
+     * Takes effect the next time validateInstructions is called.
+     */
+    public void setEliminateCommonSubexpressions(boolean eliminateCommonSubexpressions)
+    {
+        this.eliminateCommonSubexpressions = eliminateCommonSubexpressions;
+    }
+
+    public FormulaProgram getProgram()
+    {
+        return this.program;
+    }
 }
\ No newline at end of file
@@ -14,6 +14,8 @@ public class FractalSelectPanel extends JPanel
     private JButton chooseFractal;
     private JButton chooseOrbit;
     private JButton deleteFractal;
+    private JCheckBox guessRegions;
+    private JCheckBox checkRegions;
 
     public FractalSelectPanel()
     {
@@ -60,6 +62,7 @@ public class FractalSelectPanel extends JPanel
                 if(rawInstructions != null)
                 {
                     InteractiveFractalPanel ifp = new InteractiveFractalPanel();
+                    ifp.setGenerateBytecode(true);
                     ifp.setRawInstructions(rawInstructions);
                     try
                     {
@@ -142,9 +145,30 @@ public class FractalSelectPanel extends JPanel
             }
         });
 
+        //Guessing regions is faster but can miss thin filaments, so it is off until the user turns it on
+        ActionListener subdivisionListener = new ActionListener()
+        {
+            @Override
+            public void actionPerformed(ActionEvent e)
+            {
+                FractalDisplay.getMainWindow().setSubdivision(FractalSelectPanel.this.guessRegions.isSelected(),
+                        FractalSelectPanel.this.checkRegions.isSelected());
+            }
+        };
+        this.guessRegions = new JCheckBox("Guess regions");
+        this.guessRegions.setToolTipText("Fills regions whose borders all took the same number of iterations without "
+                + "working them out. Faster, but can miss thin filaments.");
+        this.guessRegions.addActionListener(subdivisionListener);
+        this.checkRegions = new JCheckBox("Check filled regions");
+        this.checkRegions.setToolTipText("Also works out every filled pixel, and shows how many were wrong in the "
+                + "title.");
+        this.checkRegions.addActionListener(subdivisionListener);
+
         this.add(this.createFractal);
         this.add(this.chooseFractal);
         this.add(this.chooseOrbit);
         this.add(this.deleteFractal);
+        this.add(this.guessRegions);
+        this.add(this.checkRegions);
     }
 }
@@ -3,14 +3,18 @@ package gui.panels.fractals;
 import gui.FractalDisplay;
 import numbers.Complex;
 
+import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.math.BigDecimal;
 
 /**
  * InteractiveFractalPanels can be clicked to select points and dragged to select areas
- * to zoom into.
+ * to zoom into. Dragging with the right mouse button pans the picture.
+ * The selected area is drawn as an overlay on top of the finished picture, so moving it only copies the affected
+ * part of the picture back to the screen and never works out any pixels.
  */
 public class InteractiveFractalPanel extends FractalPanel
 {
@@ -18,8 +22,12 @@ public class InteractiveFractalPanel extends FractalPanel
     private int starty;
     private int endx;
     private int endy;
-    private int endx_old;
-    private int endy_old;
+
+    //Where the right mouse button was first dragged from, and how far it has moved since
+    private int panStartx;
+    private int panStarty;
+    private int panx;
+    private int pany;
 
     public InteractiveFractalPanel()
     {
@@ -28,6 +36,10 @@ public class InteractiveFractalPanel extends FractalPanel
         this.starty = -1;
         this.endx = -1;
         this.endy = -1;
+        this.panStartx = -1;
+        this.panStarty = -1;
+        this.panx = 0;
+        this.pany = 0;
 
         this.addMouseListener(new MouseAdapter()
         {
@@ -45,19 +57,34 @@ public class InteractiveFractalPanel extends FractalPanel
             public void mouseReleased(MouseEvent e)
             {
                 super.mouseReleased(e);
-                InteractiveFractalPanel.this.zoomInWithDragRectCoords();
+                if(SwingUtilities.isRightMouseButton(e))
+                {
+                    InteractiveFractalPanel.this.panWithDragCoords();
+                }
+                else
+                {
+                    InteractiveFractalPanel.this.zoomInWithDragRectCoords();
+                }
             }
         });
         this.addMouseMotionListener(new MouseMotionAdapter()
         {
             /**
-             * Updates the rectangle drawn when a user clicks and drags on this panel.
+             * Updates the rectangle drawn when a user clicks and drags on this panel, or moves the picture if they
+             * drag with the right mouse button.
              */
             @Override
             public void mouseDragged(MouseEvent e)
             {
                 super.mouseDragged(e);
-                InteractiveFractalPanel.this.setDragRectCoords(e.getX(), e.getY());
+                if(SwingUtilities.isRightMouseButton(e))
+                {
+                    InteractiveFractalPanel.this.setPanCoords(e.getX(), e.getY());
+                }
+                else
+                {
+                    InteractiveFractalPanel.this.setDragRectCoords(e.getX(), e.getY());
+                }
             }
         });
     }
@@ -84,12 +111,67 @@ public class InteractiveFractalPanel extends FractalPanel
             } else if (mousey >= height) {
                 mousey = height - 1;
             }
+            //Only the area under the old and new rectangles needs painting again
+            this.repaintDragRect();
             this.endx = mousex;
             this.endy = mousey;
-            if(this.endx > -1 && this.endy > -1)
-            {
-                this.repaint();
-            }
+            this.repaintDragRect();
+        }
+    }
+
+    private void setPanCoords(int mousex, int mousey)
+    {
+        if(this.panStartx == -1 && this.panStarty == -1)
+        {
+            this.panStartx = mousex;
+            this.panStarty = mousey;
+        }
+        else
+        {
+            this.panx = mousex - this.panStartx;
+            this.pany = mousey - this.panStarty;
+            this.repaint();
+        }
+    }
+
+    /**
+     * Moves the view by however far the picture was dragged. Nothing is worked out until the button is released.
+     */
+    private void panWithDragCoords()
+    {
+        int dx = this.panx;
+        int dy = this.pany;
+        this.panStartx = -1;
+        this.panStarty = -1;
+        this.panx = 0;
+        this.pany = 0;
+        if(dx != 0 || dy != 0)
+        {
+            this.pan(dx, dy);
+        }
+    }
+
+    /**
+     * The area covered by the drag rectangle's outline, or null if there is no rectangle.
+     */
+    private Rectangle getDragRect()
+    {
+        if(this.startx == -1 || this.starty == -1 || this.endx == -1 || this.endy == -1)
+        {
+            return null;
+        }
+        int leftx = Math.min(this.startx, this.endx);
+        int topy = Math.min(this.starty, this.endy);
+        return new Rectangle(leftx, topy, Math.abs(this.endx - this.startx) + 2,
+                Math.abs(this.endy - this.starty) + 2);
+    }
+
+    private void repaintDragRect()
+    {
+        Rectangle dragRect = this.getDragRect();
+        if(dragRect != null)
+        {
+            this.repaint(dragRect);
         }
     }
 
@@ -122,81 +204,49 @@ public class InteractiveFractalPanel extends FractalPanel
                 topy = this.endy;
                 bottomy = this.starty;
             }
-            //The Complex that would appear towards the top left of the panel (smallest r, largest i)
-            Complex topLeft = this.getPanelCoordsAsComplex(leftx, topy);
-            //The Complex that would appear towards the bottom right of the panel (largest r, smallest i)
-            Complex bottomRight = this.getPanelCoordsAsComplex(rightx, bottomy);
-            FractalDisplay.getMainWindow().getParamPanel().setMinMax(topLeft.getRealPart(), bottomRight.getRealPart(), bottomRight.getImagPart(), topLeft.getImagPart());
+            BigDecimal[] exactTopLeft = this.getPanelCoordsAsExact(leftx, topy);
+            if(exactTopLeft != null)
+            {
+                //A deep zoom, whose corners doubles cannot hold
+                BigDecimal[] exactBottomRight = this.getPanelCoordsAsExact(rightx, bottomy);
+                FractalDisplay.getMainWindow().getParamPanel().setMinMax(exactTopLeft[0], exactBottomRight[0],
+                        exactBottomRight[1], exactTopLeft[1]);
+            }
+            else
+            {
+                //The Complex that would appear towards the top left of the panel (smallest r, largest i)
+                Complex topLeft = this.getPanelCoordsAsComplex(leftx, topy);
+                //The Complex that would appear towards the bottom right of the panel (largest r, smallest i)
+                Complex bottomRight = this.getPanelCoordsAsComplex(rightx, bottomy);
+                FractalDisplay.getMainWindow().getParamPanel().setMinMax(topLeft.getRealPart(), bottomRight.getRealPart(), bottomRight.getImagPart(), topLeft.getImagPart());
+            }
         }
+        //Takes the rectangle off the screen if the view did not change
+        this.repaintDragRect();
         this.startx = -1;
         this.starty = -1;
         this.endx = -1;
         this.endy = -1;
     }
 
+    /**
+     * Copies the picture to the screen, then draws the drag rectangle over it. While a pan is being dragged the
+     * picture is just copied to where it has been dragged.
+     */
     @Override
     public void paintComponent(Graphics g)
     {
-        if(this.startx > -1 && this.endx_old > -1 && this.starty > -1 && this.endy_old > -1)
+        if(this.panx != 0 || this.pany != 0)
         {
-            int leftx;
-            int rightx;
-            int topy;
-            int bottomy;
-
-            if (this.startx <= this.endx_old)
-            {
-                leftx = this.startx;
-                rightx = this.endx_old;
-            }
-            else
-            {
-                leftx = this.endx_old;
-                rightx = this.startx;
-            }
-            if (this.starty <= this.endy_old)
-            {
-                topy = this.starty;
-                bottomy = this.endy_old;
-            }
-            else
-            {
-                topy = this.endy_old;
-                bottomy = this.starty;
-            }
-
-            this.paintRect(g, leftx, topy, rightx - leftx + 2, bottomy - topy + 2);
-
-            if (this.startx <= this.endx)
-            {
-                leftx = this.startx;
-                rightx = this.endx;
-            }
-            else
-            {
-                leftx = this.endx;
-                rightx = this.startx;
-            }
-            if (this.starty <= this.endy)
-            {
-                topy = this.starty;
-                bottomy = this.endy;
-            }
-            else
-            {
-                topy = this.endy;
-                bottomy = this.starty;
-            }
-            //Draw the new rectangle
-            g.setColor(Color.CYAN);
-            g.drawRect(leftx, topy, rightx - leftx + 1, bottomy - topy + 1);
-
-            this.endy_old = this.endy;
-            this.endx_old = this.endx;
+            this.paintShifted(g, this.panx, this.pany);
+            return;
         }
-        else if (this.startx == -1 && this.endx == -1 && this.starty == -1 && this.endy == -1)
+        super.paintComponent(g);
+        Rectangle dragRect = this.getDragRect();
+        if(dragRect != null)
         {
-            super.paintComponent(g);
+            g.setColor(Color.CYAN);
+            g.drawRect(dragRect.x, dragRect.y, dragRect.width - 1, dragRect.height - 1);
         }
     }
 }
@@ -3,9 +3,8 @@ package gui.panels.fractals;
 import exceptions.InvalidInstructionsException;
 import gui.FractalDisplay;
 import gui.panels.info.DisplayParameterPanel;
-import numbers.Complex;
 
-import java.awt.*;
+import java.math.BigDecimal;
 
 public class JuliaPanel extends FractalPanel
 {
@@ -20,36 +19,34 @@ public class JuliaPanel extends FractalPanel
     }
 
     /**
-     * Translates an x-y point on the panel to its corresponding complex number.
+     * Display parameters should be constant for the Julia Panel.
+     * Min real: -2.5; Max real: 1.5; Min imag.: -1.6; Max imag.: 1.6
+     * Only the inversion of each axis is taken from the main display parameters.
      */
     @Override
-    public Complex getPanelCoordsAsComplex(int panelx, int panely)
+    protected double[] getDisplayRange()
     {
-        int actualWidth = this.getWidth();
-        int actualHeight = this.getHeight();
-        //Display parameters should be constant for the Julia Panel.
-        //Min real: -2.5; Max real: 1.5; Min imag.: -1.6; Max imag.: 1.6
-
-        double realPart = ((double)panelx / actualWidth) * 4.0;
-        double imagPart = ((double)panely / actualHeight) * 3.2;
-        //Makes the complex relative to the display range
+        double[] displayRange = {-2.5, 1.5, -1.6, 1.6};
         if(this.paramPanel.isRInverted())
         {
-            realPart = 1.5 - realPart;
-        }
-        else
-        {
-            realPart = -2.5 + realPart;
+            displayRange[0] = 1.5;
+            displayRange[1] = -2.5;
         }
         if(this.paramPanel.isIInverted())
         {
-            imagPart = -1.6 + imagPart;
-        }
-        else
-        {
-            imagPart = 1.6 - imagPart;
+            displayRange[2] = 1.6;
+            displayRange[3] = -1.6;
         }
-        return new Complex(realPart, imagPart);
+        return displayRange;
+    }
+
+    /**
+     * The display range is fixed, so the Julia Panel never needs exact coordinates.
+     */
+    @Override
+    protected BigDecimal[] getExactDisplayRange()
+    {
+        return null;
     }
 
     /**
@@ -62,6 +59,7 @@ public class JuliaPanel extends FractalPanel
     public void linkPanel(InteractiveFractalPanel panel)
     {
         this.rawInstructions = panel.rawInstructions;
+        this.copyRenderOptions(panel);
         int rawLength = this.rawInstructions.length();
         if(this.rawInstructions.substring(rawLength - 2).equals("+c"))
         {
@@ -74,6 +72,8 @@ public class JuliaPanel extends FractalPanel
                 this.rawInstructions = "";
                 this.processedFirstTerm = new String[0];
                 this.processedNextTerm = new String[0];
+                this.program = null;
+                this.generateIteration();
             }
         }
         else
@@ -81,6 +81,8 @@ public class JuliaPanel extends FractalPanel
             this.rawInstructions = "";
             this.processedFirstTerm = new String[0];
             this.processedNextTerm = new String[0];
+            this.program = null;
+            this.generateIteration();
         }
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.math.BigDecimal;
 
 /**
  * Contains minimum and maximum real and imaginary values to display, as well as number of iterations to perform
@@ -40,23 +41,20 @@ public class DisplayParameterPanel extends JPanel
             public void actionPerformed(ActionEvent e)
             {
                 boolean doErrorBox = false;
-                double leftReal = 0;
-                double rightReal = 0;
-                double downImag = 0;
-                double upImag = 0;
+                String leftReal = DisplayParameterPanel.this.leftRealBox.getText();
+                String rightReal = DisplayParameterPanel.this.rightRealBox.getText();
+                String downImag = DisplayParameterPanel.this.downImagBox.getText();
+                String upImag = DisplayParameterPanel.this.upImagBox.getText();
                 int iterations = 0;
                 //Performs validation on the text box information.
                 //leftReal, rightReal, downImag and upImag must all be valid doubles.
-                //leftReal must not be equal to rightReal, and downImag must not be equal to upImag.
+                //leftReal must not be equal to rightReal, and downImag must not be equal to upImag. They are compared
+                //exactly, since a deep zoom can have ranges too small to tell apart as doubles.
                 //iterations must be an integer greater than 0.
                 try
                 {
-                    leftReal = Double.parseDouble(DisplayParameterPanel.this.leftRealBox.getText());
-                    rightReal = Double.parseDouble(DisplayParameterPanel.this.rightRealBox.getText());
-                    downImag = Double.parseDouble(DisplayParameterPanel.this.downImagBox.getText());
-                    upImag = Double.parseDouble(DisplayParameterPanel.this.upImagBox.getText());
                     iterations = Integer.parseInt(DisplayParameterPanel.this.iterBox.getText());
-                    if(iterations <= 0 || leftReal == rightReal || downImag == upImag)
+                    if(iterations <= 0 || compare(leftReal, rightReal) == 0 || compare(downImag, upImag) == 0)
                     {
                         doErrorBox = true;
                     }
@@ -71,7 +69,17 @@ public class DisplayParameterPanel extends JPanel
                 }
                 else
                 {
-                    DisplayParameterPanel.this.setMinMax(leftReal, rightReal, downImag, upImag);
+                    try
+                    {
+                        BigDecimal[] range = DisplayParameterPanel.this.getExactDisplayRange();
+                        DisplayParameterPanel.this.setMinMax(range[0], range[1], range[2], range[3]);
+                    }
+                    catch(NumberFormatException nfe)
+                    {
+                        //Infinite or NaN, which only doubles can hold
+                        double[] range = DisplayParameterPanel.this.getDisplayRange();
+                        DisplayParameterPanel.this.setMinMax(range[0], range[1], range[2], range[3]);
+                    }
                     DisplayParameterPanel.this.setIterations(iterations);
                 }
             }
@@ -92,7 +100,14 @@ public class DisplayParameterPanel extends JPanel
             public void actionPerformed(ActionEvent e)
             {
                 DisplayParameterPanel.this.swapR();
-                DisplayParameterPanel.this.invertR.setSelected(DisplayParameterPanel.this.isRInverted());
+                try
+                {
+                    DisplayParameterPanel.this.invertR.setSelected(DisplayParameterPanel.this.isRInverted());
+                }
+                catch(NumberFormatException nfe)
+                {
+                    //The boxes do not hold numbers yet, so the box is left as it was clicked
+                }
             }
         });
         this.invertI = new JCheckBox("Invert");
@@ -101,7 +116,14 @@ public class DisplayParameterPanel extends JPanel
             public void actionPerformed(ActionEvent e)
             {
                 DisplayParameterPanel.this.swapI();
-                DisplayParameterPanel.this.invertI.setSelected(DisplayParameterPanel.this.isIInverted());
+                try
+                {
+                    DisplayParameterPanel.this.invertI.setSelected(DisplayParameterPanel.this.isIInverted());
+                }
+                catch(NumberFormatException nfe)
+                {
+                    //The boxes do not hold numbers yet, so the box is left as it was clicked
+                }
             }
         });
 
@@ -164,6 +186,18 @@ public class DisplayParameterPanel extends JPanel
         FractalDisplay.getMainWindow().repaint();
     }
 
+    /**
+     * Sets the display range to exact decimals, for views too deep for doubles.
+     */
+    public void setMinMax(BigDecimal mir, BigDecimal mar, BigDecimal mii, BigDecimal mai)
+    {
+        this.leftRealBox.setText(mir.toString());
+        this.rightRealBox.setText(mar.toString());
+        this.downImagBox.setText(mii.toString());
+        this.upImagBox.setText(mai.toString());
+        FractalDisplay.getMainWindow().repaint();
+    }
+
     /**
      * You often only want to do one of setting display range or changing iterations,
      * so setting iterations has been separated.
@@ -210,6 +244,60 @@ public class DisplayParameterPanel extends JPanel
         };
     }
 
+    /**
+     * The display range exactly as it was typed, in the same order as getDisplayRange, for views too deep for the
+     * doubles it returns.
+     * @throws NumberFormatException if any of them is not a finite number
+     */
+    public BigDecimal[] getExactDisplayRange()
+    {
+        return new BigDecimal[] {
+                parseExactly(this.leftRealBox.getText()),
+                parseExactly(this.rightRealBox.getText()),
+                parseExactly(this.downImagBox.getText()),
+                parseExactly(this.upImagBox.getText())
+        };
+    }
+
+    /**
+     * The number in a box exactly if it is written as a decimal, otherwise the double Double.parseDouble reads it as,
+     * written as the shortest decimal that reads as the same double, so that both accept the same text, such as "1d"
+     * or "1e5f".
+     * @throws NumberFormatException if it is not a number, or is infinite or NaN
+     */
+    private static BigDecimal parseExactly(String text)
+    {
+        try
+        {
+            return new BigDecimal(text.trim());
+        }
+        catch(NumberFormatException nfe)
+        {
+            return BigDecimal.valueOf(Double.parseDouble(text));
+        }
+    }
+
+    /**
+     * Compares the numbers in two boxes exactly where both are finite, and as doubles otherwise, as a deep zoom can
+     * have ranges too small to tell apart as doubles. NaN is taken to be unequal to everything, as with ==.
+     * @return negative, zero or positive as first is less than, equal to or greater than second
+     * @throws NumberFormatException if either is not a number Double.parseDouble accepts
+     */
+    private static int compare(String first, String second)
+    {
+        double firstValue = Double.parseDouble(first);
+        double secondValue = Double.parseDouble(second);
+        if(Double.isNaN(firstValue) || Double.isNaN(secondValue))
+        {
+            return -1;
+        }
+        if(Double.isInfinite(firstValue) || Double.isInfinite(secondValue))
+        {
+            return Double.compare(firstValue, secondValue);
+        }
+        return parseExactly(first).compareTo(parseExactly(second));
+    }
+
     private void doErrorBox()
     {
         JOptionPane.showMessageDialog(DisplayParameterPanel.this.okButton,
@@ -238,13 +326,19 @@ public class DisplayParameterPanel extends JPanel
         FractalDisplay.getMainWindow().repaint();
     }
 
+    /**
+     * @throws NumberFormatException if either box does not hold a number
+     */
     public boolean isIInverted()
     {
-        return Double.parseDouble(this.downImagBox.getText()) > Double.parseDouble(this.upImagBox.getText());
+        return compare(this.downImagBox.getText(), this.upImagBox.getText()) > 0;
     }
 
+    /**
+     * @throws NumberFormatException if either box does not hold a number
+     */
     public boolean isRInverted()
     {
-        return Double.parseDouble(this.leftRealBox.getText()) > Double.parseDouble(this.rightRealBox.getText());
+        return compare(this.leftRealBox.getText(), this.rightRealBox.getText()) > 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package numbers;
+
+/**
+ * The kinds of number a picture can be drawn with, from the cheapest to the most precise. Complex holds doubles,
+ * DoubleDouble about twice as many bits, and BigDecimal as many digits as the view needs.
+ */
+public class Precision
+{
+    public static final int DOUBLE = 0;
+    public static final int DOUBLE_DOUBLE = 1;
+    public static final int ARBITRARY = 2;
+
+    /**
+     * How many more bits a DoubleDouble holds than a double.
+     */
+    public static final int DOUBLE_DOUBLE_EXTRA_BITS = 53;
+
+    private static final String[] NAMES = {"doubles", "double-doubles", "BigDecimal"};
+
+    /**
+     * The cheapest kind of number which holds two points this far apart next to the points themselves, with room for
+     * the sequences from them to lose some bits.
+     * @param ulps how many units in the last place of the largest coordinate the points must be apart at least
+     */
+    public static int choose(double smallestStep, double largestCoordinate, double ulps)
+    {
+        double ulp = Math.ulp(largestCoordinate);
+        if(smallestStep >= ulps * ulp)
+        {
+            return DOUBLE;
+        }
+        if(smallestStep >= ulps * Math.scalb(ulp, -DOUBLE_DOUBLE_EXTRA_BITS))
+        {
+            return DOUBLE_DOUBLE;
+        }
+        return ARBITRARY;
+    }
+
+    public static String getName(int precision)
+    {
+        return NAMES[precision];
+    }
+}
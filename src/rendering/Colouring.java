@@ -0,0 +1,121 @@
+package rendering;
+
+import formulae.EscapeCondition;
+
+import java.awt.*;
+
+/**
+ * Decides the colour of a pixel from the results of its iteration sequence kept in an IterationBuffer. Each orbit trap
+ * has its own colouring, so the colourings are chosen by the orbit trap's escape condition.
+ */
+public class Colouring
+{
+    //Colours packed as RGB ints, as they are stored in the images.
+    private static final int BLACK = Color.BLACK.getRGB();
+    private static final int WHITE = Color.WHITE.getRGB();
+    private static final int LIGHT_GRAY = Color.LIGHT_GRAY.getRGB();
+    private static final int GRAY = Color.GRAY.getRGB();
+    private static final int DARK_GRAY = Color.DARK_GRAY.getRGB();
+    private static final int BLUE = Color.BLUE.getRGB();
+
+    /**
+     * Decides the colour of a pixel from what its iteration found, as a packed RGB int.
+     * @param escapeCondition one of the EscapeCondition constants other than ALL_TRAPS
+     * @param iterations the number of iterations the picture is being drawn with
+     * @param pixel the pixel's index in the buffer
+     */
+    public static int chooseColour(int escapeCondition, int iterations, IterationBuffer buffer, int pixel)
+    {
+        switch(escapeCondition)
+        {
+            case EscapeCondition.CIRCLE:
+                double distance = buffer.getTrapDistance(escapeCondition, pixel);
+                if(distance <= 0.25)
+                {
+                    float colourDist = 0.25F - (float) distance;
+                    return rgb(4 * colourDist, 0, colourDist);
+                }
+                else
+                {
+                    return BLACK;
+                }
+            case EscapeCondition.CROSS_ENGLISH:
+                double closestDistanceToAxis = buffer.getTrapDistance(escapeCondition, pixel);
+                if(closestDistanceToAxis <= 0.05)
+                {
+                    float colourDist = 0.05F - (float) closestDistanceToAxis;
+                    return rgb(20 * colourDist, 0, 0);
+                }
+                else
+                {
+                    return WHITE;
+                }
+            case EscapeCondition.CROSS_SCOTTISH:
+                float realVsImagDifference = (float) buffer.getTrapDistance(escapeCondition, pixel);
+                if(realVsImagDifference <= 0.05)
+                {
+                    realVsImagDifference *= 20;
+                    return rgb(1.0F - realVsImagDifference, 1.0F - realVsImagDifference, 1.0F);
+                }
+                else
+                {
+                    return BLUE;
+                }
+            default:
+                int iterationsManaged = buffer.getIterations(pixel);
+                if (iterationsManaged > iterations)
+                {
+                    return BLACK;
+                }
+                else if (iterationsManaged == 0)
+                {
+                    return WHITE;
+                }
+                else if (iterationsManaged < (float) iterations / 3)
+                {
+                    return LIGHT_GRAY;
+                }
+                else if (iterationsManaged < (float) iterations * 2 / 3)
+                {
+                    return GRAY;
+                }
+                else
+                {
+                    return DARK_GRAY;
+                }
+        }
+    }
+
+    /**
+     * The distance of a term from the centre of the circle trap.
+     */
+    public static double circleDistance(double real, double imag)
+    {
+        return Math.sqrt(real * real + imag * imag);
+    }
+
+    /**
+     * The distance of a term from the nearer axis, for the English cross.
+     */
+    public static double crossEnglishDistance(double real, double imag)
+    {
+        return Math.min(Math.abs(real), Math.abs(imag));
+    }
+
+    /**
+     * How far a term is from being equally far from both axes, for the Scottish cross.
+     */
+    public static double crossScottishDistance(double real, double imag)
+    {
+        return Math.abs(Math.abs(real) - Math.abs(imag));
+    }
+
+    /**
+     * Packs colour components between 0 and 1 into an RGB int, rounding them the same way as the Color constructor.
+     */
+    private static int rgb(float red, float green, float blue)
+    {
+        return 0xFF000000 | ((int) (red * 255 + 0.5) << 16) | ((int) (green * 255 + 0.5) << 8)
+                | (int) (blue * 255 + 0.5);
+    }
+}
@@ -0,0 +1,216 @@
+package rendering;
+
+import formulae.EscapeCondition;
+import formulae.OrbitRecorder;
+
+/**
+ * What the iteration found for every pixel of a picture, kept in primitive arrays indexed like the image's pixels, so
+ * the picture can be coloured again without working out any sequences.
+ * For the modulus it keeps the number of iterations managed and the last term; for each orbit trap it keeps the
+ * distance from the trap of the term that stopped the sequence, which is all its colouring uses.
+ * A job first stores the results for its own escape condition, then those for every escape condition, which come from
+ * one sequence followed with an OrbitRecorder. Each pixel is only written by one thread at a time, and another job
+ * only reads the buffer once every escape condition has been recorded.
+ */
+public class IterationBuffer
+{
+    private final int width;
+
+    private final int[] iterations;
+    private final double[] finalReals;
+    private final double[] finalImags;
+    private final double[] circleDistances;
+    private final double[] crossEnglishDistances;
+    private final double[] crossScottishDistances;
+
+    public IterationBuffer(int width, int height)
+    {
+        this.width = width;
+        int size = width * height;
+        this.iterations = new int[size];
+        this.finalReals = new double[size];
+        this.finalImags = new double[size];
+        this.circleDistances = new double[size];
+        this.crossEnglishDistances = new double[size];
+        this.crossScottishDistances = new double[size];
+    }
+
+    /**
+     * Stores the result of a sequence with one escape condition.
+     * @param pixel y * width + x
+     * @param escapeCondition one of the EscapeCondition constants other than ALL_TRAPS
+     * @param iterationsManaged the number of terms worked out after the first one
+     * @param finalReal, finalImag the last term reached
+     */
+    public void store(int pixel, int escapeCondition, int iterationsManaged, double finalReal, double finalImag)
+    {
+        switch(escapeCondition)
+        {
+            case EscapeCondition.CIRCLE:
+                this.circleDistances[pixel] = Colouring.circleDistance(finalReal, finalImag);
+                break;
+            case EscapeCondition.CROSS_ENGLISH:
+                this.crossEnglishDistances[pixel] = Colouring.crossEnglishDistance(finalReal, finalImag);
+                break;
+            case EscapeCondition.CROSS_SCOTTISH:
+                this.crossScottishDistances[pixel] = Colouring.crossScottishDistance(finalReal, finalImag);
+                break;
+            default:
+                this.iterations[pixel] = iterationsManaged;
+                this.finalReals[pixel] = finalReal;
+                this.finalImags[pixel] = finalImag;
+        }
+    }
+
+    /**
+     * Stores the results of every escape condition for the sequence the recorder has just followed.
+     */
+    public void store(int pixel, OrbitRecorder recorder)
+    {
+        for(int condition = 0; condition < OrbitRecorder.NO_OF_CONDITIONS; ++condition)
+        {
+            this.store(pixel, condition, recorder.getIterations(condition), recorder.getReal(condition),
+                    recorder.getImag(condition));
+        }
+    }
+
+    /**
+     * Copies the result of one escape condition for a pixel of another buffer, for a pixel with the same complex
+     * number.
+     */
+    public void copy(IterationBuffer from, int fromPixel, int toPixel, int escapeCondition)
+    {
+        switch(escapeCondition)
+        {
+            case EscapeCondition.CIRCLE:
+                this.circleDistances[toPixel] = from.circleDistances[fromPixel];
+                break;
+            case EscapeCondition.CROSS_ENGLISH:
+                this.crossEnglishDistances[toPixel] = from.crossEnglishDistances[fromPixel];
+                break;
+            case EscapeCondition.CROSS_SCOTTISH:
+                this.crossScottishDistances[toPixel] = from.crossScottishDistances[fromPixel];
+                break;
+            default:
+                this.iterations[toPixel] = from.iterations[fromPixel];
+                this.finalReals[toPixel] = from.finalReals[fromPixel];
+                this.finalImags[toPixel] = from.finalImags[fromPixel];
+        }
+    }
+
+    /**
+     * Copies the results of every escape condition for a pixel of another buffer.
+     */
+    public void copyAll(IterationBuffer from, int fromPixel, int toPixel)
+    {
+        for(int condition = 0; condition < OrbitRecorder.NO_OF_CONDITIONS; ++condition)
+        {
+            this.copy(from, fromPixel, toPixel, condition);
+        }
+    }
+
+    /**
+     * Copies the results of one escape condition for a rectangle of the picture into a tile for a TileCache.
+     * @param x, y the top left of the rectangle in the picture
+     * @param anchorx, anchory the top left of the rectangle in the coordinates of the view's anchor
+     */
+    public TileCache.Tile cut(int escapeCondition, int x, int y, int width, int height, int anchorx, int anchory)
+    {
+        int[] iterations = null;
+        double[] finalReals = null;
+        double[] finalImags = null;
+        double[] distances = null;
+        if(escapeCondition == EscapeCondition.MODULUS)
+        {
+            iterations = new int[width * height];
+            finalReals = new double[width * height];
+            finalImags = new double[width * height];
+        }
+        else
+        {
+            distances = new double[width * height];
+        }
+        for(int row = 0; row < height; ++row)
+        {
+            int from = (y + row) * this.width + x;
+            int to = row * width;
+            if(distances != null)
+            {
+                System.arraycopy(this.getTrapDistances(escapeCondition), from, distances, to, width);
+            }
+            else
+            {
+                System.arraycopy(this.iterations, from, iterations, to, width);
+                System.arraycopy(this.finalReals, from, finalReals, to, width);
+                System.arraycopy(this.finalImags, from, finalImags, to, width);
+            }
+        }
+        return new TileCache.Tile(anchorx, anchory, width, height, iterations, finalReals, finalImags, distances);
+    }
+
+    /**
+     * Copies the results held by a tile into a rectangle of the picture.
+     * @param tilex, tiley the pixel of the tile, counting from its top left, which goes to x, y
+     */
+    public void paste(TileCache.Tile tile, int escapeCondition, int tilex, int tiley, int x, int y, int width,
+                      int height)
+    {
+        for(int row = 0; row < height; ++row)
+        {
+            int from = (tiley + row) * tile.getWidth() + tilex;
+            int to = (y + row) * this.width + x;
+            if(escapeCondition == EscapeCondition.MODULUS)
+            {
+                System.arraycopy(tile.getIterations(), from, this.iterations, to, width);
+                System.arraycopy(tile.getFinalReals(), from, this.finalReals, to, width);
+                System.arraycopy(tile.getFinalImags(), from, this.finalImags, to, width);
+            }
+            else
+            {
+                System.arraycopy(tile.getDistances(), from, this.getTrapDistances(escapeCondition), to, width);
+            }
+        }
+    }
+
+    /**
+     * The distance from the orbit trap of the term which stopped the sequence.
+     * @param escapeCondition CIRCLE, CROSS_ENGLISH or CROSS_SCOTTISH
+     */
+    public double getTrapDistance(int escapeCondition, int pixel)
+    {
+        return this.getTrapDistances(escapeCondition)[pixel];
+    }
+
+    private double[] getTrapDistances(int escapeCondition)
+    {
+        switch(escapeCondition)
+        {
+            case EscapeCondition.CIRCLE:
+                return this.circleDistances;
+            case EscapeCondition.CROSS_ENGLISH:
+                return this.crossEnglishDistances;
+            default:
+                return this.crossScottishDistances;
+        }
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    /**
+     * The number of iterations managed with the modulus escape condition.
+     */
+    public int getIterations(int pixel)
+    {
+        return this.iterations[pixel];
+    }
+
+    public double getFinalReal(int pixel)
+    {
+        return this.finalReals[pixel];
+    }
+
+    public double getFinalImag(int pixel)
+    {
+        return this.finalImags[pixel];
+    }
+}
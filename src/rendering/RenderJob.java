@@ -0,0 +1,1409 @@
+package rendering;
+
+import formulae.BatchInterpreter;
+import formulae.CompiledIteration;
+import formulae.EscapeCondition;
+import formulae.FormulaInterpreter;
+import formulae.FormulaKernel;
+import formulae.FormulaProgram;
+import formulae.IntervalEvaluator;
+import formulae.MandelbrotKernel;
+import formulae.OrbitRecorder;
+import formulae.PerturbationKernel;
+import formulae.PeriodicityChecker;
+import formulae.PreciseInterpreter;
+import formulae.StripKernel;
+import numbers.Precision;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One picture of a fractal, drawn in tiles on a pool of threads shared by every panel.
+ * Everything the picture depends on is read from the GUI on the Event Dispatch Thread when the job is made, so the
+ * rendering threads never touch Swing. Each job draws into its own image, which the panel copies to the screen as
+ * tiles are finished.
+ * A progressive job draws the picture in passes. The first works out every COARSEST_STEP-th pixel in each direction
+ * and fills the block below and to the right of it with its colour; each pass after that halves the step and only
+ * works out the pixels which earlier passes skipped, until every pixel has been worked out once.
+ * Each job is given a generation number when it starts. When a panel starts a newer job, the older one stops at the
+ * next tile or row and does not report any more tiles, so only the latest generation reaches the screen.
+ * A job starts from the previous job's picture, moved and stretched to fit its own view, which it then refines. Pixels
+ * whose complex number is exactly one the previous job worked out, with the same settings, are copied rather than
+ * worked out again.
+ * What the iteration found for each pixel is kept in an IterationBuffer. Once the picture is finished, the job goes
+ * on in the background to follow every sequence again for all of the escape conditions at once, so that if only the
+ * orbit trap changes afterwards, a new job can colour the buffer again instead of working out any sequences.
+ * If the job is given a TileCache, it first copies any tiles of its picture found there, and once finished it keeps its
+ * tiles there for each escape condition it has recorded.
+ * With no orbit trap, a job can draw its picture by subdivision instead of in passes (see SubdivisionTask), which only
+ * works out the pixels needed to find the boundaries between iteration counts. Rectangles can either be filled when
+ * their border pixels agree, which is a guess, or when an IntervalEvaluator proves every pixel inside takes the same
+ * number of iterations, which is exact. A progressive job still draws its coarsest pass first, as a preview which the
+ * subdivision then replaces.
+ * A view with exact coordinates, too deep for doubles, is drawn by perturbation if it can be: the job first works out
+ * the sequence of the pixel in the middle of the view to as many digits as it needs, and then each pixel follows only
+ * its difference from it (see PerturbationKernel). Otherwise the program is run with the cheapest kind of number that
+ * tells the view's pixels apart (see PreciseInterpreter). Such a job does not reuse pixels from other pictures, look
+ * in the tile cache or subdivide, since all of those compare pixels by their doubles.
+ * With no orbit trap and a formula VectorKernel knows, a job can work out the pixels left in each row of a
+ * tile a strip at a time, in the lanes of vectors, which again gives exactly the same picture. Formulas with no kernel
+ * can likewise be run on the pixels left in each row a block at a time (see BatchInterpreter).
+ */
+public class RenderJob
+{
+    /**
+     * One thread for each processor.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The step of the first pass of a progressive job. Must be a power of 2 which divides TileTask.TILE_SIZE.
+     */
+    public static final int COARSEST_STEP = 16;
+
+    /**
+     * An interval term takes several times as long as a term for one pixel, so a proof is given up after one term for
+     * every this many pixels in its rectangle. Rectangles inside the set need many terms to be proved, so they are
+     * only tried when they are large.
+     */
+    private static final int PROOF_PIXELS_PER_TERM = 16;
+
+    private final RenderListener listener;
+
+    /**
+     * The coordinates of every pixel, and the number of iterations.
+     */
+    private final ViewTransform view;
+
+    private final int width;
+    private final int height;
+
+    private final double userReal;
+    private final double userImag;
+
+    /**
+     * One of the EscapeCondition constants other than ALL_TRAPS, which also decides the colouring.
+     */
+    private final int escapeCondition;
+
+    private final FormulaProgram program;
+
+    /**
+     * Copied for each tile, because a CompiledIteration cannot be used by two threads at once. Null if the
+     * interpreter is used.
+     */
+    private final CompiledIteration compiledIteration;
+
+    /**
+     * The same for EscapeCondition.ALL_TRAPS, used to record every trap once the picture is finished.
+     */
+    private final CompiledIteration allTrapsIteration;
+
+    /**
+     * The step of the first pass: COARSEST_STEP for a progressive job, otherwise 1 so that there is only one pass.
+     */
+    private final int firstStep;
+
+    /**
+     * The generation of the latest job started by the panel. Shared by all of the panel's jobs.
+     */
+    private final AtomicInteger latestGeneration;
+
+    /**
+     * This job's generation, given when it starts.
+     */
+    private int generation;
+
+    /**
+     * Set once every pass is complete; never set if the job is cancelled.
+     */
+    private volatile boolean finished;
+
+    private BufferedImage image;
+
+    /**
+     * The pixels of image, one packed RGB int per pixel, row by row.
+     */
+    private int[] pixels;
+
+    /**
+     * What the iteration found for each pixel. Shared with the jobs that colour it again.
+     */
+    private IterationBuffer buffer;
+
+    /**
+     * True if the job colours another job's buffer instead of working out sequences.
+     */
+    private boolean recolouring;
+
+    /**
+     * Set while the job records every trap, after the picture is finished. Set before the pass's tasks are forked, so
+     * they all see it.
+     */
+    private boolean recordingAllTraps;
+
+    /**
+     * Set once the buffer holds the results of every escape condition for every pixel.
+     */
+    private volatile boolean allTrapsRecorded;
+
+    /**
+     * For each column and row, the one in the previous job's picture that it was previewed from, or -1 if it was
+     * outside the previous view. Null if there was no previous picture.
+     */
+    private int[] previewColumns;
+    private int[] previewRows;
+
+    /**
+     * The buffer of the previous job, if it finished with the same settings apart from its view, or recorded every
+     * trap for the same sequences; otherwise null. Let go of once the job is done.
+     */
+    private IterationBuffer previousBuffer;
+    private int previousWidth;
+
+    /**
+     * True if previousBuffer holds every trap, so it can also be copied from while this job records every trap.
+     */
+    private boolean previousAllTraps;
+
+    /**
+     * For each column and row, the one of the previous job with exactly the same real or imaginary part, or -1. Null
+     * if previousBuffer is.
+     */
+    private int[] reusedColumns;
+    private int[] reusedRows;
+
+    /**
+     * Where tiles are looked up and kept, or null.
+     */
+    private TileCache tileCache;
+
+    /**
+     * If true, and there is no orbit trap, the interpreter skips to the end of sequences which repeat, as a
+     * CompiledIteration made for EscapeCondition.MODULUS_PERIODIC does.
+     */
+    private boolean checkPeriodicity;
+
+    /**
+     * True for each pixel copied from the tile cache. Null if no tiles were found.
+     */
+    private boolean[] cachedPixels;
+
+    /**
+     * If true, and there is no orbit trap, the picture is drawn by subdivision, filling rectangles whose border pixels
+     * all took the same number of iterations.
+     */
+    private boolean subdivide;
+
+    /**
+     * If true, and there is no orbit trap, the picture is drawn by subdivision, filling rectangles which an
+     * IntervalEvaluator proves all take the same number of iterations.
+     */
+    private boolean proveRegions;
+
+    /**
+     * Set when the job starts if it proves regions: proveRegions is set, the formula's kernel does not reject the
+     * Mandelbrot set's main cardioid and bulb itself, and pixels are worked out one at a time rather than in strips.
+     * Otherwise proofs cost more than they save.
+     */
+    private boolean proving;
+
+    /**
+     * If true, every pixel filled or proved by subdivision is also worked out, and counted if it took a different
+     * number of iterations.
+     */
+    private boolean checkSubdivision;
+
+    /**
+     * If true, rows are worked out a strip of pixels at a time where they can be; see VectorKernel.
+     */
+    private boolean vectorise;
+
+    /**
+     * Set when the job starts if it works out rows in strips: there is no orbit trap, the view is not deep, and
+     * StripKernel can vectorise the formula.
+     */
+    private boolean usingVectors;
+
+    /**
+     * If true, formulas with no kernel are run a block of pixels at a time by a BatchInterpreter.
+     */
+    private boolean batchInterpret;
+
+    /**
+     * Set when the job starts if it runs the formula with a BatchInterpreter rather than generated bytecode or the
+     * interpreter: the view is not deep and the formula has no FormulaKernel.
+     */
+    private boolean usingBatches;
+
+    /**
+     * Set when the job starts if it draws its picture by subdivision. Until the job has recorded every trap, its
+     * buffer may then hold numbers of iterations that were filled rather than worked out, so it is not reused or
+     * kept in the tile cache before then.
+     */
+    private boolean subdividing;
+
+    /**
+     * True for each pixel whose result is already in the buffer and the image, because it was copied from the tile
+     * cache or worked out for the border of a subdivision, so the passes skip it. Null if there are none.
+     */
+    private boolean[] knownPixels;
+
+    /**
+     * How many pixels subdivision filled from their borders and proved, and how many of those differ from working them
+     * out, if that is checked.
+     */
+    private final LongAdder filledPixels;
+    private final LongAdder provenPixels;
+    private final LongAdder mismatchedPixels;
+
+    /**
+     * How many pixels the Mandelbrot set's kernel gave maxIter iterations because they are in its main cardioid or
+     * its period-2 bulb.
+     */
+    private final LongAdder cardioidRejections;
+    private final LongAdder bulbRejections;
+
+    /**
+     * How many times a PerturbationKernel has rebased a pixel of the picture onto the sequence from 0.
+     */
+    private final LongAdder rebases;
+
+    /**
+     * True if the view is too deep for doubles, so its pixels are given as differences from its reference pixel.
+     */
+    private final boolean deep;
+
+    /**
+     * True if the view is too deep for doubles and the job draws it by perturbation.
+     */
+    private final boolean perturbing;
+
+    /**
+     * One of the Precision constants: what the sequences are worked out with. DOUBLE unless the view is deep and
+     * cannot be drawn by perturbation, since PerturbationKernel follows differences with doubles at any depth.
+     */
+    private final int precision;
+
+    /**
+     * A PerturbationKernel or PreciseInterpreter made once the job starts, for the job's escape condition and for
+     * ALL_TRAPS, and copied for each tile. Null unless the view is deep.
+     */
+    private CompiledIteration deepIteration;
+    private CompiledIteration allTrapsDeepIteration;
+
+    public RenderJob(RenderListener listener, ViewTransform view, double userReal, double userImag,
+                     int escapeCondition, FormulaProgram program, CompiledIteration compiledIteration,
+                     CompiledIteration allTrapsIteration, boolean progressive, AtomicInteger latestGeneration)
+    {
+        this.listener = listener;
+        this.latestGeneration = latestGeneration;
+        this.view = view;
+        this.width = view.getWidth();
+        this.height = view.getHeight();
+        this.userReal = userReal;
+        this.userImag = userImag;
+        this.escapeCondition = escapeCondition;
+        this.program = program;
+        this.compiledIteration = compiledIteration;
+        this.allTrapsIteration = allTrapsIteration;
+        this.firstStep = progressive ? COARSEST_STEP : 1;
+        this.finished = false;
+        this.allTrapsRecorded = false;
+        this.tileCache = null;
+        this.checkPeriodicity = false;
+        this.subdivide = false;
+        this.proveRegions = false;
+        this.checkSubdivision = false;
+        this.filledPixels = new LongAdder();
+        this.provenPixels = new LongAdder();
+        this.mismatchedPixels = new LongAdder();
+        this.cardioidRejections = new LongAdder();
+        this.bulbRejections = new LongAdder();
+        this.rebases = new LongAdder();
+        this.vectorise = false;
+        this.batchInterpret = false;
+        this.deep = view.isExact();
+        this.perturbing = this.deep && PerturbationKernel.handles(compiledIteration);
+        this.precision = this.deep && !this.perturbing ? Math.max(view.getPrecision(), Precision.DOUBLE_DOUBLE)
+                : Precision.DOUBLE;
+    }
+
+    /**
+     * True if the other job would draw exactly the same picture as this one, and check its subdivision the same way.
+     */
+    public boolean hasSameSettings(RenderJob other)
+    {
+        return other != null && this.view.isSameView(other.view) && this.hasSameSequences(other)
+                && this.escapeCondition == other.escapeCondition && this.compiledIteration == other.compiledIteration
+                && this.firstStep == other.firstStep && this.subdivide == other.subdivide
+                && this.proveRegions == other.proveRegions && this.checkSubdivision == other.checkSubdivision;
+    }
+
+    /**
+     * True if the other job works out the same sequence as this one for any complex number, whatever the escape
+     * condition.
+     */
+    private boolean hasSameSequences(RenderJob other)
+    {
+        return this.view.getIterations() == other.view.getIterations()
+                && Double.compare(this.userReal, other.userReal) == 0
+                && Double.compare(this.userImag, other.userImag) == 0 && this.program == other.program;
+    }
+
+    /**
+     * True if the other job has recorded every trap for a picture that differs from this one's at most in its orbit
+     * trap, so this job's picture can be coloured from its buffer.
+     */
+    public boolean canRecolour(RenderJob other)
+    {
+        return other != null && other.isAllTrapsRecorded() && this.view.isSameView(other.view)
+                && this.hasSameSequences(other) && this.allTrapsIteration == other.allTrapsIteration;
+    }
+
+    /**
+     * Makes the image and starts drawing it in the background, cancelling any job the panel started before.
+     * @param previous the job whose picture is shown until pixels are replaced, or null to start from black
+     */
+    public void start(RenderJob previous)
+    {
+        this.buffer = new IterationBuffer(this.width, this.height);
+        this.recolouring = false;
+        this.recordingAllTraps = false;
+        this.usingVectors = this.vectorise && !this.deep && StripKernel.canVectorise(this.compiledIteration)
+                && this.escapeCondition == EscapeCondition.MODULUS;
+        this.usingBatches = this.batchInterpret && !this.deep && !(this.compiledIteration instanceof FormulaKernel);
+        this.proving = this.proveRegions && !this.usingVectors && !this.usingBatches
+                && !(this.compiledIteration instanceof MandelbrotKernel
+                && ((MandelbrotKernel) this.compiledIteration).isRejectingInterior());
+        this.subdividing = (this.subdivide || this.proving) && this.escapeCondition == EscapeCondition.MODULUS
+                && !this.deep;
+        this.previousAllTraps = false;
+        if(previous != null && (this.deep || previous.deep))
+        {
+            //Their doubles do not tell the pixels apart
+            previous = null;
+        }
+        if(previous != null && this.hasSameSequences(previous))
+        {
+            this.previousAllTraps = previous.isAllTrapsRecorded()
+                    && this.allTrapsIteration == previous.allTrapsIteration;
+        }
+        if(this.previousAllTraps || (previous != null && previous.isFinished() && !previous.subdividing
+                && this.hasSameSequences(previous) && this.escapeCondition == previous.escapeCondition
+                && this.compiledIteration == previous.compiledIteration))
+        {
+            this.previousBuffer = previous.buffer;
+            this.previousWidth = previous.width;
+            this.reusedColumns = this.view.findColumns(previous.view, true);
+            this.reusedRows = this.view.findRows(previous.view, true);
+        }
+        this.begin(previous, this.firstStep);
+    }
+
+    /**
+     * Starts colouring the finished job's picture again with this job's escape condition, in one pass. Only for jobs
+     * where canRecolour is true.
+     */
+    public void startRecolouring(RenderJob finished)
+    {
+        this.buffer = finished.buffer;
+        this.recolouring = true;
+        this.recordingAllTraps = false;
+        this.subdividing = false;
+        this.begin(finished, 1);
+    }
+
+    private void begin(RenderJob previous, final int firstStep)
+    {
+        this.generation = this.latestGeneration.incrementAndGet();
+        this.image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+        this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+        if(previous != null && previous.pixels != null && !this.deep && !previous.deep)
+        {
+            this.drawPreview(previous);
+        }
+        POOL.execute(new RecursiveAction()
+        {
+            @Override
+            protected void compute()
+            {
+                TileCache tileCache = RenderJob.this.recolouring || RenderJob.this.deep ? null
+                        : RenderJob.this.tileCache;
+                if(RenderJob.this.deep && !RenderJob.this.recolouring)
+                {
+                    RenderJob.this.makeDeepIterations();
+                }
+                if(tileCache != null)
+                {
+                    RenderJob.this.loadCachedTiles(tileCache);
+                }
+                if(RenderJob.this.subdividing)
+                {
+                    if(firstStep > 1)
+                    {
+                        //One coarse pass first, so that a progressive job still shows a preview straight away
+                        new TileTask(RenderJob.this, firstStep, 0, 0, RenderJob.this.width, RenderJob.this.height)
+                                .invoke();
+                    }
+                    if(RenderJob.this.knownPixels == null)
+                    {
+                        RenderJob.this.knownPixels = new boolean[RenderJob.this.width * RenderJob.this.height];
+                    }
+                    new SubdivisionTask(RenderJob.this, 0, 0, RenderJob.this.width, RenderJob.this.height).invoke();
+                }
+                else
+                {
+                    for(int step = firstStep; step >= 1 && RenderJob.this.isCurrent(); step /= 2)
+                    {
+                        new TileTask(RenderJob.this, step, 0, 0, RenderJob.this.width, RenderJob.this.height)
+                                .invoke();
+                    }
+                }
+                RenderJob.this.finished = RenderJob.this.isCurrent();
+                RenderJob.this.listener.renderFinished(RenderJob.this);
+                if(tileCache != null && RenderJob.this.finished && !RenderJob.this.subdividing)
+                {
+                    RenderJob.this.storeTiles(tileCache, RenderJob.this.escapeCondition);
+                }
+                if(RenderJob.this.recolouring)
+                {
+                    //The buffer was already complete
+                    RenderJob.this.allTrapsRecorded = RenderJob.this.finished;
+                }
+                else if(RenderJob.this.finished)
+                {
+                    RenderJob.this.recordingAllTraps = true;
+                    new TileTask(RenderJob.this, 1, 0, 0, RenderJob.this.width, RenderJob.this.height).invoke();
+                    RenderJob.this.allTrapsRecorded = RenderJob.this.isCurrent();
+                    for(int condition = 0; tileCache != null && RenderJob.this.allTrapsRecorded
+                            && condition < OrbitRecorder.NO_OF_CONDITIONS; ++condition)
+                    {
+                        if(condition != RenderJob.this.escapeCondition || RenderJob.this.subdividing)
+                        {
+                            RenderJob.this.storeTiles(tileCache, condition);
+                        }
+                    }
+                }
+                RenderJob.this.previousBuffer = null;
+            }
+        });
+    }
+
+    /**
+     * Works out the sequence of the reference pixel in the middle of the view, with enough digits for the view, or
+     * makes an interpreter of the program with the job's precision around it.
+     */
+    private void makeDeepIterations()
+    {
+        if(this.perturbing)
+        {
+            PerturbationKernel kernel = PerturbationKernel.make(this.compiledIteration, this.escapeCondition,
+                    this.view.getReferenceReal(), this.view.getReferenceImag(), this.userReal, this.userImag,
+                    this.view.getIterations() + 1, this.view.getMathContext());
+            this.deepIteration = kernel;
+            this.allTrapsDeepIteration = kernel.withEscapeCondition(EscapeCondition.ALL_TRAPS);
+        }
+        else
+        {
+            PreciseInterpreter<?> interpreter = PreciseInterpreter.make(this.precision, this.program,
+                    this.escapeCondition, this.view.getReferenceReal(), this.view.getReferenceImag(),
+                    this.view.getMathContext());
+            this.deepIteration = interpreter;
+            this.allTrapsDeepIteration = interpreter.withEscapeCondition(EscapeCondition.ALL_TRAPS);
+        }
+    }
+
+    /**
+     * Copies every tile of the picture found in the cache for the job's escape condition into the buffer, colours it,
+     * and marks its pixels so the passes skip them.
+     */
+    private void loadCachedTiles(TileCache tileCache)
+    {
+        int columnOffset = this.view.getColumnOffset();
+        int rowOffset = this.view.getRowOffset();
+        int iterations = this.view.getIterations();
+        for(int row = Math.floorDiv(rowOffset, TileCache.TILE_SIZE);
+            row * TileCache.TILE_SIZE < rowOffset + this.height; ++row)
+        {
+            int top = Math.max(row * TileCache.TILE_SIZE - rowOffset, 0);
+            int bottom = Math.min((row + 1) * TileCache.TILE_SIZE - rowOffset, this.height);
+            for(int column = Math.floorDiv(columnOffset, TileCache.TILE_SIZE);
+                column * TileCache.TILE_SIZE < columnOffset + this.width; ++column)
+            {
+                if(!this.isCurrent())
+                {
+                    return;
+                }
+                int left = Math.max(column * TileCache.TILE_SIZE - columnOffset, 0);
+                int right = Math.min((column + 1) * TileCache.TILE_SIZE - columnOffset, this.width);
+                TileCache.Tile tile = tileCache.get(this.makeTileKey(this.escapeCondition, column, row),
+                        left + columnOffset, top + rowOffset, right - left, bottom - top);
+                if(tile == null)
+                {
+                    continue;
+                }
+                this.buffer.paste(tile, this.escapeCondition, left + columnOffset - tile.getX(),
+                        top + rowOffset - tile.getY(), left, top, right - left, bottom - top);
+                if(this.cachedPixels == null)
+                {
+                    this.cachedPixels = new boolean[this.width * this.height];
+                }
+                if(this.knownPixels == null)
+                {
+                    this.knownPixels = new boolean[this.width * this.height];
+                }
+                for(int y = top; y < bottom; ++y)
+                {
+                    for(int x = left; x < right; ++x)
+                    {
+                        int pixel = y * this.width + x;
+                        this.pixels[pixel] = Colouring.chooseColour(this.escapeCondition, iterations, this.buffer,
+                                pixel);
+                        this.cachedPixels[pixel] = true;
+                        this.knownPixels[pixel] = true;
+                    }
+                }
+                this.listener.tileFinished(this, left, top, right - left, bottom - top);
+            }
+        }
+    }
+
+    /**
+     * Keeps the results of one escape condition for every tile of the picture in the cache.
+     */
+    private void storeTiles(TileCache tileCache, int escapeCondition)
+    {
+        int columnOffset = this.view.getColumnOffset();
+        int rowOffset = this.view.getRowOffset();
+        for(int row = Math.floorDiv(rowOffset, TileCache.TILE_SIZE);
+            row * TileCache.TILE_SIZE < rowOffset + this.height; ++row)
+        {
+            int top = Math.max(row * TileCache.TILE_SIZE - rowOffset, 0);
+            int bottom = Math.min((row + 1) * TileCache.TILE_SIZE - rowOffset, this.height);
+            for(int column = Math.floorDiv(columnOffset, TileCache.TILE_SIZE);
+                column * TileCache.TILE_SIZE < columnOffset + this.width; ++column)
+            {
+                int left = Math.max(column * TileCache.TILE_SIZE - columnOffset, 0);
+                int right = Math.min((column + 1) * TileCache.TILE_SIZE - columnOffset, this.width);
+                if(escapeCondition == this.escapeCondition && this.cachedPixels != null
+                        && this.cachedPixels[top * this.width + left])
+                {
+                    //Copied from the cache in the first place
+                    continue;
+                }
+                tileCache.put(this.makeTileKey(escapeCondition, column, row), this.buffer.cut(escapeCondition, left,
+                        top, right - left, bottom - top, left + columnOffset, top + rowOffset));
+            }
+        }
+    }
+
+    private TileCache.Key makeTileKey(int escapeCondition, int column, int row)
+    {
+        boolean usesUserPoint = this.program.usesUserPoint();
+        return new TileCache.Key(this.program.getKey(), usesUserPoint ? this.userReal : 0,
+                usesUserPoint ? this.userImag : 0, escapeCondition, this.view, column, row);
+    }
+
+    /**
+     * Fills the image with the previous job's picture, moved and stretched to where its complex numbers are in this
+     * job's view, so that something close to the new picture is shown straight away. Pixels outside the previous
+     * view are left black.
+     */
+    private void drawPreview(RenderJob previous)
+    {
+        this.previewColumns = this.view.findColumns(previous.view, false);
+        this.previewRows = this.view.findRows(previous.view, false);
+        int[] previousPixels = previous.pixels;
+        int previousRow;
+        for(int y = 0; y < this.height; ++y)
+        {
+            if(this.previewRows[y] < 0)
+            {
+                continue;
+            }
+            previousRow = this.previewRows[y] * previous.width;
+            for(int x = 0; x < this.width; ++x)
+            {
+                if(this.previewColumns[x] >= 0)
+                {
+                    this.pixels[y * this.width + x] = previousPixels[previousRow + this.previewColumns[x]];
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out every pixel in the rectangle again on the calling thread, through renderTile just as the job's tiles
+     * were, so that benchmarks can measure one tile of a real picture. Only for a job that has finished and recorded
+     * every trap, and is still current.
+     */
+    public void redrawTile(int x, int y, int width, int height)
+    {
+        boolean recordingAllTraps = this.recordingAllTraps;
+        this.recordingAllTraps = false;
+        this.renderTile(1, x, y, width, height);
+        this.recordingAllTraps = recordingAllTraps;
+    }
+
+    /**
+     * Works out the colour of every step-th pixel in the rectangle that an earlier pass has not already worked out,
+     * and stores it in image for the step by step block that the pixel is the top left of. Where the block is
+     * covered by the preview only the pixel itself is stored, so the preview is refined rather than replaced by
+     * blocks. Pixels that the previous job worked out with the same settings are copied from its buffer, and pixels
+     * which are already known are skipped.
+     * Everything the iteration needs was read when the job was made, and each point is worked out on primitive
+     * doubles, so no objects are created for a pixel. Any instruction strings specified in the code are tested and
+     * valid, and any strings entered by the user are only made available if they pass validateInstructions, so the
+     * program can be run without any checks.
+     */
+    void renderTile(int step, int rectx, int recty, int rectWidth, int rectHeight)
+    {
+        if(this.recolouring)
+        {
+            this.recolourTile(rectx, recty, rectWidth, rectHeight);
+            return;
+        }
+        if(this.recordingAllTraps)
+        {
+            this.recordTile(rectx, recty, rectWidth, rectHeight);
+            return;
+        }
+        ViewTransform view = this.view;
+        int iterations = view.getIterations();
+        int maxIterations = iterations + 1;
+        int[] pixels = this.pixels;
+        IterationBuffer buffer = this.buffer;
+        IterationBuffer previousBuffer = this.previousBuffer;
+        boolean[] knownPixels = this.knownPixels;
+        int[] reusedColumns = this.reusedColumns;
+        int[] reusedRows = this.reusedRows;
+        int[] previewColumns = this.previewColumns;
+        int[] previewRows = this.previewRows;
+        int escapeCondition = this.escapeCondition;
+        double userReal = this.userReal;
+        double userImag = this.userImag;
+        CompiledIteration compiledIteration = null;
+        FormulaInterpreter interpreter = null;
+        PeriodicityChecker periodicityChecker = null;
+        StripKernel stripKernel = null;
+        FormulaProgram program = this.program;
+        boolean deep = this.deep;
+        if(deep)
+        {
+            compiledIteration = this.deepIteration.copy();
+        }
+        else if(this.usingBatches)
+        {
+            stripKernel = new BatchInterpreter(program, escapeCondition,
+                    this.checkPeriodicity && escapeCondition == EscapeCondition.MODULUS);
+        }
+        else if(this.compiledIteration != null)
+        {
+            compiledIteration = this.compiledIteration.copy();
+            if(this.usingVectors)
+            {
+                stripKernel = StripKernel.make(compiledIteration);
+            }
+        }
+        else
+        {
+            interpreter = new FormulaInterpreter(program);
+            if(this.checkPeriodicity && escapeCondition == EscapeCondition.MODULUS)
+            {
+                periodicityChecker = new PeriodicityChecker();
+            }
+        }
+
+        //Pixels on multiples of the previous pass's step have been worked out already
+        boolean afterFirstPass = step < this.firstStep && !this.subdividing;
+        int previousStep = step * 2;
+        int firstx = (rectx + step - 1) / step * step;
+        int firsty = (recty + step - 1) / step * step;
+
+        //Holds the latest term in the iteration sequence when the interpreter is used
+        double[] term = new double[2];
+
+        //The complex number whose corresponding pixel is currently being coloured, or its difference from the
+        //reference pixel when the view is deep
+        double currentReal;
+        double currentImag;
+
+        //The last term reached in the iteration sequence
+        double finalReal;
+        double finalImag;
+
+        int iterationsManaged;
+        int pixel;
+        boolean rowReused;
+        boolean rowPreviewed;
+
+        //The columns and real parts of the pixels of the current row left for the strip kernel, and its results
+        int stripCount;
+        int[] stripColumns = null;
+        double[] stripReals = null;
+        int[] stripIterations = null;
+        double[] stripFinalReals = null;
+        double[] stripFinalImags = null;
+        if(stripKernel != null)
+        {
+            stripColumns = new int[rectWidth];
+            stripReals = new double[rectWidth];
+            stripIterations = new int[rectWidth];
+            stripFinalReals = new double[rectWidth];
+            stripFinalImags = new double[rectWidth];
+        }
+
+        //Stops the while loop if the escape condition is satisfied.
+        for (int y = firsty; y < recty + rectHeight; y += step) {
+            if(!this.isCurrent())
+            {
+                return;
+            }
+            currentImag = deep ? view.getDeltaImag(y) : view.getImag(y);
+            rowReused = previousBuffer != null && reusedRows[y] >= 0;
+            rowPreviewed = previewRows != null && previewRows[y] >= 0;
+            stripCount = 0;
+            for (int x = firstx; x < rectx + rectWidth; x += step) {
+                if(afterFirstPass && y % previousStep == 0 && x % previousStep == 0)
+                {
+                    continue;
+                }
+                currentReal = deep ? view.getDeltaReal(x) : view.getReal(x);
+                pixel = y * this.width + x;
+                if(knownPixels != null && knownPixels[pixel])
+                {
+                    continue;
+                }
+
+                if(rowReused && reusedColumns[x] >= 0)
+                {
+                    buffer.copy(previousBuffer, reusedRows[y] * this.previousWidth + reusedColumns[x], pixel,
+                            escapeCondition);
+                }
+                else if(stripKernel != null)
+                {
+                    //Worked out and coloured with the rest of the row's strip below
+                    stripColumns[stripCount] = x;
+                    stripReals[stripCount] = currentReal;
+                    ++stripCount;
+                    continue;
+                }
+                else if(compiledIteration != null)
+                {
+                    iterationsManaged = compiledIteration.iterate(currentReal, currentImag, userReal, userImag,
+                            maxIterations);
+                    finalReal = compiledIteration.getFinalReal();
+                    finalImag = compiledIteration.getFinalImag();
+                    buffer.store(pixel, escapeCondition, iterationsManaged, finalReal, finalImag);
+                }
+                else
+                {
+                    interpreter.evaluateFirstTerm(program, currentReal, currentImag, userReal, userImag, term);
+                    iterationsManaged = 0;
+                    while (!EscapeCondition.escapes(escapeCondition, term[0], term[1])
+                            && iterationsManaged < maxIterations) {
+                        ++iterationsManaged;
+                        //Uses next term rule to determine how to reach the next term
+                        interpreter.evaluateNextTerm(program, term[0], term[1], term);
+                        if(periodicityChecker != null)
+                        {
+                            iterationsManaged += periodicityChecker.skip(iterationsManaged, term[0], term[1],
+                                    maxIterations);
+                        }
+                    }
+                    finalReal = term[0];
+                    finalImag = term[1];
+                    buffer.store(pixel, escapeCondition, iterationsManaged, finalReal, finalImag);
+                }
+                this.colourPixel(x, y, step, rowPreviewed && previewColumns[x] >= 0);
+            }
+            if(stripCount > 0)
+            {
+                stripKernel.iterate(stripReals, stripCount, currentImag, userReal, userImag, maxIterations,
+                        stripIterations, stripFinalReals, stripFinalImags);
+                for(int x = 0; x < stripCount; ++x)
+                {
+                    buffer.store(y * this.width + stripColumns[x], escapeCondition, stripIterations[x],
+                            stripFinalReals[x], stripFinalImags[x]);
+                    this.colourPixel(stripColumns[x], y, step, rowPreviewed && previewColumns[stripColumns[x]] >= 0);
+                }
+            }
+        }
+        if(compiledIteration instanceof MandelbrotKernel)
+        {
+            this.cardioidRejections.add(((MandelbrotKernel) compiledIteration).getCardioidRejections());
+            this.bulbRejections.add(((MandelbrotKernel) compiledIteration).getBulbRejections());
+        }
+        else if(compiledIteration instanceof PerturbationKernel)
+        {
+            this.rebases.add(((PerturbationKernel) compiledIteration).getRebases());
+        }
+        if(this.isCurrent())
+        {
+            this.listener.tileFinished(this, rectx, recty, rectWidth, rectHeight);
+        }
+    }
+
+    /**
+     * Works out the pixels on the border of the rectangle which are not known yet, for SubdivisionTask, and marks them
+     * as known.
+     */
+    void renderBorder(int rectx, int recty, int rectWidth, int rectHeight)
+    {
+        this.renderTile(1, rectx, recty, rectWidth, 1);
+        if(rectHeight > 1)
+        {
+            this.renderTile(1, rectx, recty + rectHeight - 1, rectWidth, 1);
+        }
+        if(rectHeight > 2)
+        {
+            this.renderTile(1, rectx, recty + 1, 1, rectHeight - 2);
+            if(rectWidth > 1)
+            {
+                this.renderTile(1, rectx + rectWidth - 1, recty + 1, 1, rectHeight - 2);
+            }
+        }
+        int right = rectx + rectWidth - 1;
+        int bottom = recty + rectHeight - 1;
+        for(int x = rectx; x <= right; ++x)
+        {
+            this.knownPixels[recty * this.width + x] = true;
+            this.knownPixels[bottom * this.width + x] = true;
+        }
+        for(int y = recty; y <= bottom; ++y)
+        {
+            this.knownPixels[y * this.width + rectx] = true;
+            this.knownPixels[y * this.width + right] = true;
+        }
+    }
+
+    /**
+     * The number of iterations every pixel on the border of the rectangle took, or -1 if they did not all take the
+     * same number.
+     */
+    int getBorderIterations(int rectx, int recty, int rectWidth, int rectHeight)
+    {
+        IterationBuffer buffer = this.buffer;
+        int right = rectx + rectWidth - 1;
+        int bottom = recty + rectHeight - 1;
+        int iterations = buffer.getIterations(recty * this.width + rectx);
+        for(int x = rectx; x <= right; ++x)
+        {
+            if(buffer.getIterations(recty * this.width + x) != iterations
+                    || buffer.getIterations(bottom * this.width + x) != iterations)
+            {
+                return -1;
+            }
+        }
+        for(int y = recty; y <= bottom; ++y)
+        {
+            if(buffer.getIterations(y * this.width + rectx) != iterations
+                    || buffer.getIterations(y * this.width + right) != iterations)
+            {
+                return -1;
+            }
+        }
+        return iterations;
+    }
+
+    /**
+     * Gives every pixel inside the border of the rectangle which is not known yet the border's number of iterations,
+     * and the last term of its top left pixel, without working any of them out.
+     */
+    void fillInside(int rectx, int recty, int rectWidth, int rectHeight, int iterations)
+    {
+        int corner = recty * this.width + rectx;
+        this.fill(rectx + 1, recty + 1, rectWidth - 2, rectHeight - 2, iterations, this.buffer.getFinalReal(corner),
+                this.buffer.getFinalImag(corner), this.filledPixels);
+    }
+
+    /**
+     * Tries to prove that every pixel in the rectangle takes the same number of iterations, for SubdivisionTask. If it
+     * can, gives each one which is not known yet that number of iterations, and the middle of the interval holding
+     * their last terms, without working any of them out.
+     * @return true if the rectangle was proved and filled
+     */
+    boolean proveRectangle(int rectx, int recty, int rectWidth, int rectHeight)
+    {
+        ViewTransform view = this.view;
+        //The pixels' complex numbers are rounded, so each is looked at rather than assuming the corners are extremes
+        double lowReal = Double.POSITIVE_INFINITY;
+        double highReal = Double.NEGATIVE_INFINITY;
+        double lowImag = Double.POSITIVE_INFINITY;
+        double highImag = Double.NEGATIVE_INFINITY;
+        for(int x = rectx; x < rectx + rectWidth; ++x)
+        {
+            lowReal = Math.min(lowReal, view.getReal(x));
+            highReal = Math.max(highReal, view.getReal(x));
+        }
+        for(int y = recty; y < recty + rectHeight; ++y)
+        {
+            lowImag = Math.min(lowImag, view.getImag(y));
+            highImag = Math.max(highImag, view.getImag(y));
+        }
+        IntervalEvaluator evaluator = new IntervalEvaluator(this.program);
+        int iterations = evaluator.proveIterations(lowReal, highReal, lowImag, highImag, this.userReal, this.userImag,
+                view.getIterations() + 1, rectWidth * rectHeight / PROOF_PIXELS_PER_TERM);
+        if(iterations < 0)
+        {
+            return false;
+        }
+        this.fill(rectx, recty, rectWidth, rectHeight, iterations, evaluator.getFinalReal(), evaluator.getFinalImag(),
+                this.provenPixels);
+        return true;
+    }
+
+    /**
+     * Gives every pixel in the rectangle which is not known yet the number of iterations and last term, colours it,
+     * and adds how many there were to the count. If checkSubdivision is set, also works each of them out and counts
+     * those which differ.
+     */
+    private void fill(int rectx, int recty, int rectWidth, int rectHeight, int iterations, double finalReal,
+                      double finalImag, LongAdder count)
+    {
+        IterationBuffer buffer = this.buffer;
+        CompiledIteration compiledIteration = null;
+        FormulaInterpreter interpreter = null;
+        double[] term = new double[2];
+        if(this.checkSubdivision)
+        {
+            if(this.compiledIteration != null)
+            {
+                compiledIteration = this.compiledIteration.copy();
+            }
+            else
+            {
+                interpreter = new FormulaInterpreter(this.program);
+            }
+        }
+        int filled = 0;
+        int mismatched = 0;
+        int colour = 0;
+        int pixel;
+        for(int y = recty; y < recty + rectHeight; ++y)
+        {
+            for(int x = rectx; x < rectx + rectWidth; ++x)
+            {
+                pixel = y * this.width + x;
+                if(this.knownPixels[pixel])
+                {
+                    continue;
+                }
+                buffer.store(pixel, EscapeCondition.MODULUS, iterations, finalReal, finalImag);
+                if(filled == 0)
+                {
+                    colour = Colouring.chooseColour(EscapeCondition.MODULUS, this.view.getIterations(), buffer, pixel);
+                }
+                this.pixels[pixel] = colour;
+                ++filled;
+                if(this.checkSubdivision && this.iterate(compiledIteration, interpreter, term, x, y) != iterations)
+                {
+                    ++mismatched;
+                }
+            }
+        }
+        count.add(filled);
+        this.mismatchedPixels.add(mismatched);
+        if(this.isCurrent())
+        {
+            this.listener.tileFinished(this, rectx, recty, rectWidth, rectHeight);
+        }
+    }
+
+    /**
+     * Works out the number of iterations of one pixel with the modulus, with whichever of the two is not null.
+     */
+    private int iterate(CompiledIteration compiledIteration, FormulaInterpreter interpreter, double[] term, int x,
+                        int y)
+    {
+        int maxIterations = this.view.getIterations() + 1;
+        if(compiledIteration != null)
+        {
+            return compiledIteration.iterate(this.view.getReal(x), this.view.getImag(y), this.userReal,
+                    this.userImag, maxIterations);
+        }
+        interpreter.evaluateFirstTerm(this.program, this.view.getReal(x), this.view.getImag(y), this.userReal,
+                this.userImag, term);
+        int iterationsManaged = 0;
+        while(!EscapeCondition.modulus(term[0], term[1]) && iterationsManaged < maxIterations)
+        {
+            ++iterationsManaged;
+            interpreter.evaluateNextTerm(this.program, term[0], term[1], term);
+        }
+        return iterationsManaged;
+    }
+
+    /**
+     * Follows the sequence of every pixel in the rectangle for all of the escape conditions at once, and stores the
+     * results in the buffer, copying any pixels that the previous job recorded. The image is already complete, so
+     * nothing is reported.
+     */
+    private void recordTile(int rectx, int recty, int rectWidth, int rectHeight)
+    {
+        ViewTransform view = this.view;
+        int maxIterations = view.getIterations() + 1;
+        IterationBuffer buffer = this.buffer;
+        double userReal = this.userReal;
+        double userImag = this.userImag;
+        FormulaProgram program = this.program;
+        IterationBuffer previousBuffer = this.previousAllTraps ? this.previousBuffer : null;
+        OrbitRecorder recorder = new OrbitRecorder();
+        CompiledIteration compiledIteration = null;
+        FormulaInterpreter interpreter = null;
+        boolean deep = this.deep;
+        if(deep)
+        {
+            compiledIteration = this.allTrapsDeepIteration.copy();
+            compiledIteration.setRecorder(recorder);
+        }
+        else if(this.allTrapsIteration != null)
+        {
+            compiledIteration = this.allTrapsIteration.copy();
+            compiledIteration.setRecorder(recorder);
+        }
+        else
+        {
+            interpreter = new FormulaInterpreter(program);
+        }
+        double[] term = new double[2];
+        double currentReal;
+        double currentImag;
+        int iterationsManaged;
+        int pixel;
+        boolean rowReused;
+        for(int y = recty; y < recty + rectHeight; ++y)
+        {
+            if(!this.isCurrent())
+            {
+                return;
+            }
+            currentImag = deep ? view.getDeltaImag(y) : view.getImag(y);
+            rowReused = previousBuffer != null && this.reusedRows[y] >= 0;
+            for(int x = rectx; x < rectx + rectWidth; ++x)
+            {
+                pixel = y * this.width + x;
+                if(rowReused && this.reusedColumns[x] >= 0)
+                {
+                    buffer.copyAll(previousBuffer, this.reusedRows[y] * this.previousWidth + this.reusedColumns[x],
+                            pixel);
+                    continue;
+                }
+                currentReal = deep ? view.getDeltaReal(x) : view.getReal(x);
+                recorder.reset();
+                if(compiledIteration != null)
+                {
+                    compiledIteration.iterate(currentReal, currentImag, userReal, userImag, maxIterations);
+                }
+                else
+                {
+                    interpreter.evaluateFirstTerm(program, currentReal, currentImag, userReal, userImag, term);
+                    iterationsManaged = 0;
+                    while(!recorder.record(iterationsManaged, term[0], term[1]) && iterationsManaged < maxIterations)
+                    {
+                        ++iterationsManaged;
+                        interpreter.evaluateNextTerm(program, term[0], term[1], term);
+                    }
+                }
+                recorder.finish(maxIterations);
+                buffer.store(pixel, recorder);
+            }
+        }
+    }
+
+    /**
+     * Colours every pixel in the rectangle from the buffer.
+     */
+    private void recolourTile(int rectx, int recty, int rectWidth, int rectHeight)
+    {
+        int iterations = this.view.getIterations();
+        int escapeCondition = this.escapeCondition;
+        int[] pixels = this.pixels;
+        IterationBuffer buffer = this.buffer;
+        int pixel;
+        for(int y = recty; y < recty + rectHeight; ++y)
+        {
+            if(!this.isCurrent())
+            {
+                return;
+            }
+            pixel = y * this.width + rectx;
+            for(int x = rectx; x < rectx + rectWidth; ++x)
+            {
+                pixels[pixel] = Colouring.chooseColour(escapeCondition, iterations, buffer, pixel);
+                ++pixel;
+            }
+        }
+        if(this.isCurrent())
+        {
+            this.listener.tileFinished(this, rectx, recty, rectWidth, rectHeight);
+        }
+    }
+
+    /**
+     * False once the panel has started a newer job, or cancelled this one.
+     */
+    public boolean isCurrent()
+    {
+        return this.latestGeneration.get() == this.generation;
+    }
+
+    /**
+     * Colours a pixel from the buffer, along with the rest of its step by step block unless the block is covered by
+     * the preview.
+     */
+    private void colourPixel(int x, int y, int step, boolean previewed)
+    {
+        int pixel = y * this.width + x;
+        int colour = Colouring.chooseColour(this.escapeCondition, this.view.getIterations(), this.buffer, pixel);
+        if(step == 1 || previewed)
+        {
+            this.pixels[pixel] = colour;
+        }
+        else
+        {
+            this.fillBlock(x, y, step, colour);
+        }
+    }
+
+    /**
+     * Colours the size by size block with its top left at x, y, cut off at the edges of the image, apart from any
+     * pixels which are already known.
+     */
+    private void fillBlock(int x, int y, int size, int colour)
+    {
+        int right = Math.min(x + size, this.width);
+        int bottom = Math.min(y + size, this.height);
+        for(int row = y; row < bottom; ++row)
+        {
+            if(this.knownPixels == null)
+            {
+                Arrays.fill(this.pixels, row * this.width + x, row * this.width + right, colour);
+                continue;
+            }
+            for(int pixel = row * this.width + x; pixel < row * this.width + right; ++pixel)
+            {
+                if(!this.knownPixels[pixel])
+                {
+                    this.pixels[pixel] = colour;
+                }
+            }
+        }
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public ViewTransform getView()
+    {
+        return this.view;
+    }
+
+    /**
+     * True if the view is too deep for doubles and the job draws it by perturbation.
+     */
+    public boolean isPerturbing()
+    {
+        return this.perturbing;
+    }
+
+    /**
+     * True if the view is too deep for doubles, however the job draws it.
+     */
+    public boolean isDeep()
+    {
+        return this.deep;
+    }
+
+    /**
+     * One of the Precision constants: DOUBLE_DOUBLE or ARBITRARY if the view is too deep for doubles and the job runs
+     * the program with more precise numbers, otherwise DOUBLE.
+     */
+    public int getPrecision()
+    {
+        return this.precision;
+    }
+
+    /**
+     * Must be set before the job starts; null, the default, for no cache.
+     */
+    public void setTileCache(TileCache tileCache)
+    {
+        this.tileCache = tileCache;
+    }
+
+    /**
+     * Must be set before the job starts. Only affects the interpreter.
+     */
+    public void setCheckPeriodicity(boolean checkPeriodicity)
+    {
+        this.checkPeriodicity = checkPeriodicity;
+    }
+
+    /**
+     * Must be set before the job starts. Only has an effect with no orbit trap.
+     */
+    public void setSubdivide(boolean subdivide)
+    {
+        this.subdivide = subdivide;
+    }
+
+    /**
+     * Must be set before the job starts. Only has an effect with no orbit trap, and only where it pays off; see
+     * isProvingRegions.
+     */
+    public void setProveRegions(boolean proveRegions)
+    {
+        this.proveRegions = proveRegions;
+    }
+
+    /**
+     * True if the job proves regions. Set when it starts.
+     */
+    public boolean isProvingRegions()
+    {
+        return this.proving;
+    }
+
+    /**
+     * True if the job guesses regions from their borders, when it subdivides.
+     */
+    public boolean isGuessingRegions()
+    {
+        return this.subdivide;
+    }
+
+    public boolean isSubdividing()
+    {
+        return this.subdividing;
+    }
+
+    /**
+     * Must be set before the job starts.
+     */
+    public void setCheckSubdivision(boolean checkSubdivision)
+    {
+        this.checkSubdivision = checkSubdivision;
+    }
+
+    public boolean isCheckingSubdivision()
+    {
+        return this.checkSubdivision;
+    }
+
+    /**
+     * Must be set before the job starts. Only has an effect with no orbit trap.
+     */
+    public void setVectorise(boolean vectorise)
+    {
+        this.vectorise = vectorise;
+    }
+
+    /**
+     * Must be set before the job starts. Takes the place of generated bytecode as well as the interpreter, but not of
+     * a FormulaKernel.
+     */
+    public void setBatchInterpret(boolean batchInterpret)
+    {
+        this.batchInterpret = batchInterpret;
+    }
+
+    /**
+     * True if the job runs the formula a block of pixels at a time with a BatchInterpreter.
+     */
+    public boolean isUsingBatches()
+    {
+        return this.usingBatches;
+    }
+
+    /**
+     * True if the job works out rows in strips with a VectorKernel.
+     */
+    public boolean isUsingVectors()
+    {
+        return this.usingVectors;
+    }
+
+    /**
+     * How many pixels subdivision has filled from their borders without working them out.
+     */
+    public long getFilledPixels()
+    {
+        return this.filledPixels.sum();
+    }
+
+    /**
+     * How many pixels subdivision has proved take the same number of iterations as the rest of their rectangle, and
+     * filled without working them out.
+     */
+    public long getProvenPixels()
+    {
+        return this.provenPixels.sum();
+    }
+
+    /**
+     * How many of the filled and proved pixels took a different number of iterations when worked out. Only counted if
+     * checkSubdivision is set; a proved pixel should never be.
+     */
+    public long getMismatchedPixels()
+    {
+        return this.mismatchedPixels.sum();
+    }
+
+    /**
+     * How many pixels have been found in the Mandelbrot set's main cardioid, and given maxIter iterations without
+     * being worked out.
+     */
+    public long getCardioidRejections()
+    {
+        return this.cardioidRejections.sum();
+    }
+
+    /**
+     * How many pixels have been found in the Mandelbrot set's period-2 bulb, and given maxIter iterations without
+     * being worked out.
+     */
+    public long getBulbRejections()
+    {
+        return this.bulbRejections.sum();
+    }
+
+    /**
+     * How many times pixels of the picture have been rebased, if it is drawn by perturbation.
+     */
+    public long getRebases()
+    {
+        return this.rebases.sum();
+    }
+
+    public int getGeneration()
+    {
+        return this.generation;
+    }
+
+    public boolean isFinished()
+    {
+        return this.finished;
+    }
+
+    /**
+     * True once the buffer holds the results of every escape condition, some time after the job has finished.
+     */
+    public boolean isAllTrapsRecorded()
+    {
+        return this.allTrapsRecorded;
+    }
+
+    /**
+     * Only complete once renderFinished has been called; until then some tiles may still show the previous picture.
+     */
+    public BufferedImage getImage()
+    {
+        return this.image;
+    }
+}
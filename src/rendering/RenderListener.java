@@ -0,0 +1,17 @@
+package rendering;
+
+/**
+ * Told about the progress of a RenderJob. Called from the threads doing the rendering, not the Event Dispatch Thread.
+ */
+public interface RenderListener
+{
+    /**
+     * The pixels in the rectangle are now in the job's image. Only called while the job is current.
+     */
+    void tileFinished(RenderJob job, int x, int y, int width, int height);
+
+    /**
+     * The job has stopped; every pixel is in its image if it finished rather than being cancelled.
+     */
+    void renderFinished(RenderJob job);
+}
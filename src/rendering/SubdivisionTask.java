@@ -0,0 +1,110 @@
+package rendering;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renders a rectangle of a RenderJob's image by subdivision. If the job proves regions, an IntervalEvaluator first
+ * tries to prove that every pixel in the rectangle takes the same number of iterations, and if it can the rectangle is
+ * filled with that number, which is exactly what working them out would give.
+ * If the job guesses regions, by Mariani-Silver subdivision, the pixels on the rectangle's border are worked out, and
+ * if they all took the same number of iterations the inside is filled with that number without working any of it out.
+ * Otherwise the rectangle is split in half along its longer side, and each half is done the same way in parallel,
+ * sharing any border pixels already worked out. Rectangles no bigger than MIN_SIZE on a side, or PROOF_MIN_SIZE if
+ * the job only proves regions, are worked out pixel by pixel.
+ * Guessing rests on the set being connected, so a region whose border does not cross a boundary between iteration
+ * counts has none inside it either. That is true of the Mandelbrot set's interior and of the bands around it, but a
+ * thin filament can slip between the border pixels, so the picture may differ slightly from one worked out in full;
+ * RenderJob#setCheckSubdivision counts how much. Only used with no orbit trap, whose colour depends on the number of
+ * iterations alone.
+ */
+public class SubdivisionTask extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final int MIN_SIZE = 8;
+
+    /**
+     * The side below which a rectangle which could not be proved is worked out pixel by pixel when the job only
+     * proves regions. Smaller rectangles are seldom proved, and a failed proof of one costs about as much as its
+     * pixels.
+     */
+    public static final int PROOF_MIN_SIZE = 32;
+
+    private final RenderJob job;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    public SubdivisionTask(RenderJob job, int x, int y, int width, int height)
+    {
+        this.job = job;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if(!this.job.isCurrent())
+        {
+            return;
+        }
+        if(this.job.isProvingRegions() && this.job.proveRectangle(this.x, this.y, this.width, this.height))
+        {
+            return;
+        }
+        if(!this.job.isGuessingRegions())
+        {
+            if(this.width <= PROOF_MIN_SIZE || this.height <= PROOF_MIN_SIZE)
+            {
+                this.job.renderTile(1, this.x, this.y, this.width, this.height);
+            }
+            else
+            {
+                this.split();
+            }
+            return;
+        }
+        this.job.renderBorder(this.x, this.y, this.width, this.height);
+        if(this.width <= 2 || this.height <= 2)
+        {
+            return;
+        }
+        if(this.width <= MIN_SIZE || this.height <= MIN_SIZE)
+        {
+            this.job.renderTile(1, this.x + 1, this.y + 1, this.width - 2, this.height - 2);
+            return;
+        }
+        int iterations = this.job.getBorderIterations(this.x, this.y, this.width, this.height);
+        if(iterations >= 0)
+        {
+            this.job.fillInside(this.x, this.y, this.width, this.height, iterations);
+        }
+        else
+        {
+            this.split();
+        }
+    }
+
+    /**
+     * Does each half of the rectangle, split along its longer side, in parallel.
+     */
+    private void split()
+    {
+        if(this.width >= this.height)
+        {
+            int half = this.width / 2;
+            invokeAll(new SubdivisionTask(this.job, this.x, this.y, half, this.height),
+                    new SubdivisionTask(this.job, this.x + half, this.y, this.width - half, this.height));
+        }
+        else
+        {
+            int half = this.height / 2;
+            invokeAll(new SubdivisionTask(this.job, this.x, this.y, this.width, half),
+                    new SubdivisionTask(this.job, this.x, this.y + half, this.width, this.height - half));
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package rendering;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the IterationBuffer results of recently drawn tiles in memory, so that going back to a view drawn before, such
+ * as the one Reset returns to, does not work out any sequences again.
+ * Tiles are TILE_SIZE pixels square on the grid of the view's anchor (see ViewTransform.shift), so every view shifted
+ * from the same one finds the same tiles, and each is kept for one escape condition. A tile at the edge of a picture
+ * only holds the pixels the picture covered, and is only used for pictures which cover no more of it. It is only
+ * replaced by a tile holding all of its pixels.
+ * When the tiles take up more than the byte budget, the least recently used are thrown away. One cache is shared by
+ * every panel, and can be used from any thread.
+ */
+public class TileCache
+{
+    public static final int TILE_SIZE = TileTask.TILE_SIZE;
+
+    /**
+     * Enough for a few 600x600 pictures with every escape condition recorded.
+     */
+    public static final long DEFAULT_BYTE_BUDGET = 64L * 1024 * 1024;
+
+    private static final TileCache SHARED = new TileCache(DEFAULT_BYTE_BUDGET);
+
+    /**
+     * In order of use, least recent first.
+     */
+    private final LinkedHashMap<Key, Tile> tiles;
+
+    private long byteBudget;
+    private long bytesUsed;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TileCache(long byteBudget)
+    {
+        this.tiles = new LinkedHashMap<Key, Tile>(16, 0.75f, true);
+        this.byteBudget = byteBudget;
+        this.bytesUsed = 0;
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+    }
+
+    /**
+     * The cache used by the panels.
+     */
+    public static TileCache getShared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * The tile for the key, if it holds every pixel of the rectangle, which is given in the anchor's coordinates.
+     * Otherwise null, which counts as a miss.
+     */
+    public synchronized Tile get(Key key, int x, int y, int width, int height)
+    {
+        Tile tile = this.tiles.get(key);
+        if(tile != null && tile.covers(x, y, width, height))
+        {
+            ++this.hits;
+            return tile;
+        }
+        ++this.misses;
+        return null;
+    }
+
+    /**
+     * Keeps the tile, unless one is already kept for the key whose pixels it does not all hold, then throws away the
+     * least recently used tiles until the budget is met.
+     */
+    public synchronized void put(Key key, Tile tile)
+    {
+        Tile old = this.tiles.get(key);
+        if(old != null && !tile.covers(old.x, old.y, old.width, old.height))
+        {
+            return;
+        }
+        if(tile.getBytes() > this.byteBudget)
+        {
+            return;
+        }
+        this.tiles.put(key, tile);
+        this.bytesUsed += tile.getBytes() - (old == null ? 0 : old.getBytes());
+        this.evict();
+    }
+
+    private void evict()
+    {
+        Iterator<Map.Entry<Key, Tile>> eldest = this.tiles.entrySet().iterator();
+        while(this.bytesUsed > this.byteBudget && eldest.hasNext())
+        {
+            this.bytesUsed -= eldest.next().getValue().getBytes();
+            eldest.remove();
+            ++this.evictions;
+        }
+    }
+
+    /**
+     * Throws every tile away. The counters are kept.
+     */
+    public synchronized void clear()
+    {
+        this.tiles.clear();
+        this.bytesUsed = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return String.format("%d tiles, %.1f of %.1f MB, %d hits, %d misses, %d evictions", this.tiles.size(),
+                this.bytesUsed / 1048576.0, this.byteBudget / 1048576.0, this.hits, this.misses, this.evictions);
+    }
+
+    /**
+     * Identifies the results of one tile: everything that decides the sequences of its pixels, the escape condition,
+     * and where the tile is.
+     */
+    public static class Key
+    {
+        private final String formula;
+        private final double userReal;
+        private final double userImag;
+        private final int escapeCondition;
+        private final int iterations;
+        private final double anchorLeftReal;
+        private final double anchorRightReal;
+        private final double anchorDownImag;
+        private final double anchorUpImag;
+        private final int anchorWidth;
+        private final int anchorHeight;
+        private final int column;
+        private final int row;
+
+        /**
+         * @param formula FormulaProgram.getKey
+         * @param userReal, userImag the user selected point, or 0 if the formula does not use it, so that tiles are
+         *                  found whatever point is selected
+         * @param column, row the tile's place on the grid of the view's anchor, in tiles
+         */
+        public Key(String formula, double userReal, double userImag, int escapeCondition, ViewTransform view,
+                   int column, int row)
+        {
+            this.formula = formula;
+            this.userReal = userReal;
+            this.userImag = userImag;
+            this.escapeCondition = escapeCondition;
+            this.iterations = view.getIterations();
+            this.anchorLeftReal = view.getAnchorLeftReal();
+            this.anchorRightReal = view.getAnchorRightReal();
+            this.anchorDownImag = view.getAnchorDownImag();
+            this.anchorUpImag = view.getAnchorUpImag();
+            this.anchorWidth = view.getAnchorWidth();
+            this.anchorHeight = view.getAnchorHeight();
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if(!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.column == other.column && this.row == other.row
+                    && this.escapeCondition == other.escapeCondition && this.iterations == other.iterations
+                    && this.anchorWidth == other.anchorWidth && this.anchorHeight == other.anchorHeight
+                    && Double.compare(this.anchorLeftReal, other.anchorLeftReal) == 0
+                    && Double.compare(this.anchorRightReal, other.anchorRightReal) == 0
+                    && Double.compare(this.anchorDownImag, other.anchorDownImag) == 0
+                    && Double.compare(this.anchorUpImag, other.anchorUpImag) == 0
+                    && Double.compare(this.userReal, other.userReal) == 0
+                    && Double.compare(this.userImag, other.userImag) == 0 && this.formula.equals(other.formula);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            long hash = this.formula.hashCode();
+            hash = hash * 31 + Double.doubleToLongBits(this.userReal);
+            hash = hash * 31 + Double.doubleToLongBits(this.userImag);
+            hash = hash * 31 + this.escapeCondition;
+            hash = hash * 31 + this.iterations;
+            hash = hash * 31 + Double.doubleToLongBits(this.anchorLeftReal);
+            hash = hash * 31 + Double.doubleToLongBits(this.anchorRightReal);
+            hash = hash * 31 + Double.doubleToLongBits(this.anchorDownImag);
+            hash = hash * 31 + Double.doubleToLongBits(this.anchorUpImag);
+            hash = hash * 31 + this.anchorWidth;
+            hash = hash * 31 + this.anchorHeight;
+            hash = hash * 31 + this.column;
+            hash = hash * 31 + this.row;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * The results of one escape condition for a rectangle of pixels, row by row, made by IterationBuffer.cut. For the
+     * modulus they are the iterations and last terms; for an orbit trap just the distances.
+     */
+    public static class Tile
+    {
+        /**
+         * The rectangle in the anchor's coordinates.
+         */
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        private final int[] iterations;
+        private final double[] finalReals;
+        private final double[] finalImags;
+        private final double[] distances;
+
+        public Tile(int x, int y, int width, int height, int[] iterations, double[] finalReals, double[] finalImags,
+                    double[] distances)
+        {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.iterations = iterations;
+            this.finalReals = finalReals;
+            this.finalImags = finalImags;
+            this.distances = distances;
+        }
+
+        public boolean covers(int x, int y, int width, int height)
+        {
+            return x >= this.x && y >= this.y && x + width <= this.x + this.width
+                    && y + height <= this.y + this.height;
+        }
+
+        /**
+         * Roughly the memory the tile takes up.
+         */
+        public long getBytes()
+        {
+            long pixels = (long) this.width * this.height;
+            return this.distances != null ? pixels * 8 + 64 : pixels * 20 + 96;
+        }
+
+        //BASIC GETTERS AND SETTERS BELOW HERE
+
+        public int getX()
+        {
+            return this.x;
+        }
+
+        public int getY()
+        {
+            return this.y;
+        }
+
+        public int getWidth()
+        {
+            return this.width;
+        }
+
+        public int getHeight()
+        {
+            return this.height;
+        }
+
+        /**
+         * Null for an orbit trap.
+         */
+        public int[] getIterations()
+        {
+            return this.iterations;
+        }
+
+        public double[] getFinalReals()
+        {
+            return this.finalReals;
+        }
+
+        public double[] getFinalImags()
+        {
+            return this.finalImags;
+        }
+
+        /**
+         * Null for the modulus.
+         */
+        public double[] getDistances()
+        {
+            return this.distances;
+        }
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public synchronized long getByteBudget()
+    {
+        return this.byteBudget;
+    }
+
+    /**
+     * Throws away the least recently used tiles straight away if they no longer fit.
+     */
+    public synchronized void setByteBudget(long byteBudget)
+    {
+        this.byteBudget = byteBudget;
+        this.evict();
+    }
+
+    public synchronized long getBytesUsed()
+    {
+        return this.bytesUsed;
+    }
+
+    public synchronized long getHits()
+    {
+        return this.hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions()
+    {
+        return this.evictions;
+    }
+}
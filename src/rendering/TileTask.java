@@ -0,0 +1,72 @@
+package rendering;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renders one pass over a rectangle of a RenderJob's image, splitting it in half along its longer side until the
+ * pieces are no bigger than TILE_SIZE on each side, so that the pieces can be shared out between the pool's threads.
+ * Splits are made at multiples of RenderJob.COARSEST_STEP, so the blocks of a progressive pass never cross a tile.
+ */
+public class TileTask extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    public static final int TILE_SIZE = 64;
+
+    private final RenderJob job;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    /**
+     * The distance between the pixels worked out in this pass.
+     */
+    private final int step;
+
+    public TileTask(RenderJob job, int step, int x, int y, int width, int height)
+    {
+        this.job = job;
+        this.step = step;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if(!this.job.isCurrent())
+        {
+            return;
+        }
+        if(this.width > TILE_SIZE || this.height > TILE_SIZE)
+        {
+            if(this.width >= this.height)
+            {
+                int half = this.alignedHalf(this.width);
+                invokeAll(new TileTask(this.job, this.step, this.x, this.y, half, this.height),
+                        new TileTask(this.job, this.step, this.x + half, this.y, this.width - half, this.height));
+            }
+            else
+            {
+                int half = this.alignedHalf(this.height);
+                invokeAll(new TileTask(this.job, this.step, this.x, this.y, this.width, half),
+                        new TileTask(this.job, this.step, this.x, this.y + half, this.width, this.height - half));
+            }
+        }
+        else
+        {
+            this.job.renderTile(this.step, this.x, this.y, this.width, this.height);
+        }
+    }
+
+    /**
+     * About half of the length, rounded down to a multiple of the coarsest step.
+     */
+    private int alignedHalf(int length)
+    {
+        return Math.max(RenderJob.COARSEST_STEP, (length / 2) / RenderJob.COARSEST_STEP * RenderJob.COARSEST_STEP);
+    }
+}
@@ -0,0 +1,635 @@
+package rendering;
+
+import numbers.Precision;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * The part of the complex plane shown by a picture and how it maps onto the picture's pixels, read once from the
+ * display parameters on the Event Dispatch Thread. It never changes afterwards, so the rendering threads can read it
+ * without touching Swing.
+ * The real part of every column and the imaginary part of every row are worked out when it is made, so finding the
+ * complex number of a pixel is just two array reads.
+ * A view can be shifted by whole pixels. The shifted view works out its pixels from the same starting view, so every
+ * pixel that stays in view keeps exactly the same complex number.
+ * A view can also be made from the exact decimal range typed into DisplayParameterPanel, for views so deep that the
+ * difference between two pixels is too small for a double to hold next to the numbers themselves. Every pixel then
+ * has a BigDecimal complex number, and a small difference from the pixel in the middle of the view, its reference.
+ */
+public class ViewTransform
+{
+    /**
+     * A view needs exact coordinates once the difference between two pixels is fewer than this many units in the last
+     * place of its largest coordinate.
+     */
+    public static final double PRECISION_ULPS = 64;
+
+    private final int width;
+    private final int height;
+
+    private final double leftReal;
+    private final double rightReal;
+    private final double downImag;
+    private final double upImag;
+
+    /**
+     * True if the real axis increases from right to left.
+     */
+    private final boolean realInverted;
+
+    /**
+     * True if the imaginary axis increases from top to bottom.
+     */
+    private final boolean imagInverted;
+
+    private final int iterations;
+
+    /**
+     * The range and size of the view this one was shifted from, or of this view if it was not shifted. The complex
+     * numbers of the pixels are worked out from these.
+     */
+    private final double anchorLeftReal;
+    private final double anchorRightReal;
+    private final double anchorDownImag;
+    private final double anchorUpImag;
+    private final int anchorWidth;
+    private final int anchorHeight;
+
+    /**
+     * How many pixels this view has been shifted from the anchor.
+     */
+    private final int columnOffset;
+    private final int rowOffset;
+
+    /**
+     * The real part of every complex number in each column.
+     */
+    private final double[] columnReals;
+
+    /**
+     * The imaginary part of every complex number in each row.
+     */
+    private final double[] rowImags;
+
+    /**
+     * The anchor range, and the range of this view, as exact decimals; null unless the view was made from them.
+     */
+    private final BigDecimal[] exactAnchorRange;
+    private final BigDecimal[] exactRange;
+
+    /**
+     * The exact difference between neighbouring columns and rows, and the number of digits pixels are worked out to.
+     * Each difference is negative if its axis runs the other way to the pixels.
+     */
+    private final BigDecimal columnStep;
+    private final BigDecimal rowStep;
+    private final MathContext mathContext;
+
+    /**
+     * The difference of every column's real part and every row's imaginary part from those of the reference pixel,
+     * for exact views.
+     */
+    private final double[] columnDeltas;
+    private final double[] rowDeltas;
+
+    /**
+     * @param displayRange { leftReal, rightReal, downImag, upImag }, as given by DisplayParameterPanel; the two values
+     *                     of an inverted axis are the other way round
+     */
+    public ViewTransform(double[] displayRange, int width, int height, int iterations)
+    {
+        this(displayRange, null, width, height, iterations);
+    }
+
+    /**
+     * A view with exact coordinates.
+     * @param exactRange the range as exact decimals, in the same order as displayRange
+     */
+    public ViewTransform(BigDecimal[] exactRange, int width, int height, int iterations)
+    {
+        this(new double[] {exactRange[0].doubleValue(), exactRange[1].doubleValue(), exactRange[2].doubleValue(),
+                exactRange[3].doubleValue()}, exactRange.clone(), width, height, iterations);
+    }
+
+    private ViewTransform(double[] displayRange, BigDecimal[] exactRange, int width, int height, int iterations)
+    {
+        this.width = width;
+        this.height = height;
+        this.leftReal = displayRange[0];
+        this.rightReal = displayRange[1];
+        this.downImag = displayRange[2];
+        this.upImag = displayRange[3];
+        if(exactRange != null)
+        {
+            //The doubles may be equal
+            this.realInverted = exactRange[0].compareTo(exactRange[1]) > 0;
+            this.imagInverted = exactRange[2].compareTo(exactRange[3]) > 0;
+        }
+        else
+        {
+            this.realInverted = this.leftReal > this.rightReal;
+            this.imagInverted = this.downImag > this.upImag;
+        }
+        this.iterations = iterations;
+        this.anchorLeftReal = this.leftReal;
+        this.anchorRightReal = this.rightReal;
+        this.anchorDownImag = this.downImag;
+        this.anchorUpImag = this.upImag;
+        this.anchorWidth = width;
+        this.anchorHeight = height;
+        this.columnOffset = 0;
+        this.rowOffset = 0;
+        this.columnReals = this.makeColumnReals();
+        this.rowImags = this.makeRowImags();
+        this.exactAnchorRange = exactRange;
+        this.exactRange = exactRange;
+        if(exactRange != null)
+        {
+            BigDecimal realWidth = exactRange[1].subtract(exactRange[0]);
+            BigDecimal imagHeight = exactRange[2].subtract(exactRange[3]);
+            this.mathContext = makeMathContext(realWidth.abs().min(imagHeight.abs()));
+            this.columnStep = realWidth.divide(BigDecimal.valueOf(width), this.mathContext);
+            this.rowStep = imagHeight.divide(BigDecimal.valueOf(height), this.mathContext);
+            this.columnDeltas = makeDeltas(width, this.columnStep.doubleValue());
+            this.rowDeltas = makeDeltas(height, this.rowStep.doubleValue());
+        }
+        else
+        {
+            this.mathContext = null;
+            this.columnStep = null;
+            this.rowStep = null;
+            this.columnDeltas = null;
+            this.rowDeltas = null;
+        }
+    }
+
+    /**
+     * A view shifted from another one; see shift.
+     */
+    private ViewTransform(ViewTransform from, int columns, int rows)
+    {
+        this.width = from.width;
+        this.height = from.height;
+        this.iterations = from.iterations;
+        this.realInverted = from.realInverted;
+        this.imagInverted = from.imagInverted;
+        this.anchorLeftReal = from.anchorLeftReal;
+        this.anchorRightReal = from.anchorRightReal;
+        this.anchorDownImag = from.anchorDownImag;
+        this.anchorUpImag = from.anchorUpImag;
+        this.anchorWidth = from.anchorWidth;
+        this.anchorHeight = from.anchorHeight;
+        this.columnOffset = from.columnOffset + columns;
+        this.rowOffset = from.rowOffset + rows;
+        this.exactAnchorRange = from.exactAnchorRange;
+        this.mathContext = from.mathContext;
+        this.columnStep = from.columnStep;
+        this.rowStep = from.rowStep;
+        this.columnDeltas = from.columnDeltas;
+        this.rowDeltas = from.rowDeltas;
+        if(this.exactAnchorRange != null)
+        {
+            this.exactRange = new BigDecimal[] {this.getExactReal(0), this.getExactReal(this.width),
+                    this.getExactImag(this.height), this.getExactImag(0)};
+            this.leftReal = this.exactRange[0].doubleValue();
+            this.rightReal = this.exactRange[1].doubleValue();
+            this.downImag = this.exactRange[2].doubleValue();
+            this.upImag = this.exactRange[3].doubleValue();
+        }
+        else
+        {
+            this.exactRange = null;
+            this.leftReal = from.calculateReal(columns);
+            this.rightReal = from.calculateReal(columns + this.width);
+            this.upImag = from.calculateImag(rows);
+            this.downImag = from.calculateImag(rows + this.height);
+        }
+        this.columnReals = this.makeColumnReals();
+        this.rowImags = this.makeRowImags();
+    }
+
+    /**
+     * True if the difference between two pixels of a view of this range is too small to be held next to its
+     * coordinates by a double, so the view should be made with exact coordinates.
+     */
+    public static boolean isBeyondDoublePrecision(double[] displayRange, int width, int height)
+    {
+        double smallestStep = Math.min(Math.abs(displayRange[1] - displayRange[0]) / width,
+                Math.abs(displayRange[3] - displayRange[2]) / height);
+        return Precision.choose(smallestStep, getLargest(displayRange), PRECISION_ULPS) != Precision.DOUBLE;
+    }
+
+    /**
+     * The cheapest of the Precision constants that tells this view's pixels apart. Always DOUBLE unless the view has
+     * exact coordinates.
+     */
+    public int getPrecision()
+    {
+        if(this.exactRange == null)
+        {
+            return Precision.DOUBLE;
+        }
+        double smallestStep = Math.min(this.columnStep.abs().doubleValue(), this.rowStep.abs().doubleValue());
+        return Precision.choose(smallestStep, getLargest(new double[] {this.leftReal, this.rightReal, this.downImag,
+                this.upImag}), PRECISION_ULPS);
+    }
+
+    private static double getLargest(double[] range)
+    {
+        return Math.max(Math.max(Math.abs(range[0]), Math.abs(range[1])),
+                Math.max(Math.abs(range[2]), Math.abs(range[3])));
+    }
+
+    /**
+     * Enough digits to tell apart points much closer together than pixels of a view this size, and to follow a
+     * sequence from one of them.
+     */
+    private static MathContext makeMathContext(BigDecimal size)
+    {
+        //The power of ten of the leading digit
+        int exponent = size.precision() - size.scale() - 1;
+        return new MathContext(Math.max(34, 30 - exponent));
+    }
+
+    /**
+     * Each pixel's difference from the pixel in the middle of a row or column.
+     */
+    private static double[] makeDeltas(int count, double step)
+    {
+        double[] deltas = new double[count];
+        for(int x = 0; x < count; ++x)
+        {
+            deltas[x] = (x - count / 2) * step;
+        }
+        return deltas;
+    }
+
+    /**
+     * The view whose top left pixel is pixel (columns, rows) of this one. Every pixel in both views has exactly the
+     * same complex number in each.
+     */
+    public ViewTransform shift(int columns, int rows)
+    {
+        return new ViewTransform(this, columns, rows);
+    }
+
+    private double[] makeColumnReals()
+    {
+        double[] columnReals = new double[this.width];
+        for(int x = 0; x < this.width; ++x)
+        {
+            columnReals[x] = this.calculateReal(x);
+        }
+        return columnReals;
+    }
+
+    private double[] makeRowImags()
+    {
+        double[] rowImags = new double[this.height];
+        for(int y = 0; y < this.height; ++y)
+        {
+            rowImags[y] = this.calculateImag(y);
+        }
+        return rowImags;
+    }
+
+    /**
+     * The real part of every complex number in column panelx. Columns outside the picture are worked out as if it
+     * carried on past its edges.
+     */
+    public double getReal(int panelx)
+    {
+        if(panelx >= 0 && panelx < this.width)
+        {
+            return this.columnReals[panelx];
+        }
+        return this.calculateReal(panelx);
+    }
+
+    /**
+     * The imaginary part of every complex number in row panely.
+     */
+    public double getImag(int panely)
+    {
+        if(panely >= 0 && panely < this.height)
+        {
+            return this.rowImags[panely];
+        }
+        return this.calculateImag(panely);
+    }
+
+    /**
+     * The exact real part of every complex number in column panelx, for a view with exact coordinates.
+     */
+    public BigDecimal getExactReal(int panelx)
+    {
+        return this.exactAnchorRange[0].add(this.columnStep.multiply(BigDecimal.valueOf(panelx + this.columnOffset)),
+                this.mathContext);
+    }
+
+    /**
+     * The exact imaginary part of every complex number in row panely, for a view with exact coordinates.
+     */
+    public BigDecimal getExactImag(int panely)
+    {
+        return this.exactAnchorRange[3].add(this.rowStep.multiply(BigDecimal.valueOf(panely + this.rowOffset)),
+                this.mathContext);
+    }
+
+    /**
+     * The difference between the real part of column panelx and that of the reference pixel, for a view with exact
+     * coordinates.
+     */
+    public double getDeltaReal(int panelx)
+    {
+        if(panelx >= 0 && panelx < this.width)
+        {
+            return this.columnDeltas[panelx];
+        }
+        return (panelx - this.width / 2) * this.columnStep.doubleValue();
+    }
+
+    public double getDeltaImag(int panely)
+    {
+        if(panely >= 0 && panely < this.height)
+        {
+            return this.rowDeltas[panely];
+        }
+        return (panely - this.height / 2) * this.rowStep.doubleValue();
+    }
+
+    /**
+     * The pixel in the middle of the view, which getDeltaReal and getDeltaImag are measured from.
+     */
+    public BigDecimal getReferenceReal()
+    {
+        return this.getExactReal(this.width / 2);
+    }
+
+    public BigDecimal getReferenceImag()
+    {
+        return this.getExactImag(this.height / 2);
+    }
+
+    /**
+     * True if the other transform gives the same complex number for every pixel, and the same number of iterations.
+     */
+    public boolean isSameView(ViewTransform other)
+    {
+        if(other == null || this.width != other.width || this.height != other.height
+                || this.iterations != other.iterations
+                || (this.exactAnchorRange == null) != (other.exactAnchorRange == null))
+        {
+            return false;
+        }
+        if(this.exactAnchorRange != null)
+        {
+            return this.columnOffset == other.columnOffset && this.rowOffset == other.rowOffset
+                    && this.anchorWidth == other.anchorWidth && this.anchorHeight == other.anchorHeight
+                    && isSameRange(this.exactAnchorRange, other.exactAnchorRange);
+        }
+        return Arrays.equals(this.columnReals, other.columnReals) && Arrays.equals(this.rowImags, other.rowImags);
+    }
+
+    /**
+     * True if this transform shows the same range at the same size as one made from these values would; cheaper than
+     * making it. A shifted view matches the range it shows, though its pixels may differ very slightly from those of
+     * a view made from that range.
+     */
+    public boolean isSameView(double[] displayRange, int width, int height, int iterations)
+    {
+        return this.width == width && this.height == height && Double.compare(this.leftReal, displayRange[0]) == 0
+                && Double.compare(this.rightReal, displayRange[1]) == 0
+                && Double.compare(this.downImag, displayRange[2]) == 0
+                && Double.compare(this.upImag, displayRange[3]) == 0 && this.iterations == iterations;
+    }
+
+    /**
+     * True if this transform has exact coordinates and shows the same exact range at the same size.
+     */
+    public boolean isSameView(BigDecimal[] exactRange, int width, int height, int iterations)
+    {
+        return this.exactRange != null && this.width == width && this.height == height
+                && this.iterations == iterations && isSameRange(this.exactRange, exactRange);
+    }
+
+    private static boolean isSameRange(BigDecimal[] first, BigDecimal[] second)
+    {
+        for(int x = 0; x < first.length; ++x)
+        {
+            if(first[x].compareTo(second[x]) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * For each column of this view, the column of the other view whose pixels cover its real part, or -1 if it is
+     * outside the other view.
+     * @param exact if true, only gives columns of the other view whose real part is exactly the same
+     */
+    public int[] findColumns(ViewTransform other, boolean exact)
+    {
+        int[] columns = new int[this.width];
+        for(int x = 0; x < this.width; ++x)
+        {
+            columns[x] = other.findColumn(this.columnReals[x], exact);
+        }
+        return columns;
+    }
+
+    /**
+     * For each row of this view, the row of the other view whose pixels cover its imaginary part, or -1.
+     */
+    public int[] findRows(ViewTransform other, boolean exact)
+    {
+        int[] rows = new int[this.height];
+        for(int y = 0; y < this.height; ++y)
+        {
+            rows[y] = other.findRow(this.rowImags[y], exact);
+        }
+        return rows;
+    }
+
+    private int findColumn(double real, boolean exact)
+    {
+        double distance = this.realInverted ? this.leftReal - real : real - this.leftReal;
+        int column = (int) Math.floor(distance / Math.abs(this.rightReal - this.leftReal) * this.width);
+        return this.check(column, this.columnReals, real, exact);
+    }
+
+    private int findRow(double imag, boolean exact)
+    {
+        double distance = this.imagInverted ? imag - this.upImag : this.upImag - imag;
+        int row = (int) Math.floor(distance / Math.abs(this.upImag - this.downImag) * this.height);
+        return this.check(row, this.rowImags, imag, exact);
+    }
+
+    /**
+     * Gives the index if it is in the table, or -1. If exact, looks either side of it for the value, since the
+     * division that found it can be out by one.
+     */
+    private int check(int index, double[] table, double value, boolean exact)
+    {
+        if(exact)
+        {
+            for(int x = Math.max(index - 1, 0); x <= Math.min(index + 1, table.length - 1); ++x)
+            {
+                if(table[x] == value)
+                {
+                    return x;
+                }
+            }
+            return -1;
+        }
+        return index >= 0 && index < table.length ? index : -1;
+    }
+
+    private double calculateReal(int panelx)
+    {
+        double realPart = ((double)(panelx + this.columnOffset) / this.anchorWidth)
+                * Math.abs(this.anchorRightReal - this.anchorLeftReal);
+        //Makes the complex relative to the display range
+        if(this.realInverted)
+        {
+            return this.anchorLeftReal - realPart;
+        }
+        else
+        {
+            return this.anchorLeftReal + realPart;
+        }
+    }
+
+    private double calculateImag(int panely)
+    {
+        double imagPart = ((double)(panely + this.rowOffset) / this.anchorHeight)
+                * Math.abs(this.anchorUpImag - this.anchorDownImag);
+        if(this.imagInverted)
+        {
+            return this.anchorUpImag + imagPart;
+        }
+        else
+        {
+            return this.anchorUpImag - imagPart;
+        }
+    }
+
+    //BASIC GETTERS AND SETTERS BELOW HERE
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+
+    public double getLeftReal()
+    {
+        return this.leftReal;
+    }
+
+    public double getRightReal()
+    {
+        return this.rightReal;
+    }
+
+    public double getDownImag()
+    {
+        return this.downImag;
+    }
+
+    public double getUpImag()
+    {
+        return this.upImag;
+    }
+
+    /**
+     * True if the view was made with exact coordinates.
+     */
+    public boolean isExact()
+    {
+        return this.exactRange != null;
+    }
+
+    /**
+     * The range of this view as exact decimals, in the same order as the range it was made from, or null.
+     */
+    public BigDecimal[] getExactRange()
+    {
+        return this.exactRange == null ? null : this.exactRange.clone();
+    }
+
+    public MathContext getMathContext()
+    {
+        return this.mathContext;
+    }
+
+    public boolean isRealInverted()
+    {
+        return this.realInverted;
+    }
+
+    public boolean isImagInverted()
+    {
+        return this.imagInverted;
+    }
+
+    public int getIterations()
+    {
+        return this.iterations;
+    }
+
+    /**
+     * The range and size of the view this one was shifted from. Every view shifted from the same one shares its
+     * pixels' complex numbers.
+     */
+    public double getAnchorLeftReal()
+    {
+        return this.anchorLeftReal;
+    }
+
+    public double getAnchorRightReal()
+    {
+        return this.anchorRightReal;
+    }
+
+    public double getAnchorDownImag()
+    {
+        return this.anchorDownImag;
+    }
+
+    public double getAnchorUpImag()
+    {
+        return this.anchorUpImag;
+    }
+
+    public int getAnchorWidth()
+    {
+        return this.anchorWidth;
+    }
+
+    public int getAnchorHeight()
+    {
+        return this.anchorHeight;
+    }
+
+    /**
+     * Pixel (x, y) of this view is pixel (x + columnOffset, y + rowOffset) of the view it was shifted from.
+     */
+    public int getColumnOffset()
+    {
+        return this.columnOffset;
+    }
+
+    public int getRowOffset()
+    {
+        return this.rowOffset;
+    }
+}
@@ -0,0 +1,189 @@
+package formulae;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Follows the sequences of the Mandelbrot set, the Burning Ship and their Julia sets with the modulus for a whole
+ * strip of pixels at once, one in each lane of the widest vectors of doubles the processor has. Every lane does the
+ * same sums in the same order as MandelbrotKernel and BurningShipKernel, so each pixel takes exactly the same number
+ * of iterations. Once a lane's term escapes, the lane is masked out and its term no longer changes; the strip carries
+ * on until every lane has escaped or reached maxIter, so a strip costs as much as its slowest pixel.
+ * With EscapeCondition.MODULUS_PERIODIC, every lane's term is compared with a saved one as in PeriodicityChecker; the
+ * lanes all save their terms at the same iterations, so they share the saving schedule. Instead of skipping whole
+ * cycles, a lane whose term repeats only works out the terms left over after them, so it ends on the same term.
+ * Only StripKernel#make should load this class, since it needs the jdk.incubator.vector module. It lives outside src
+ * so that the rest of the program builds without the module: compile it with
+ * javac --add-modules jdk.incubator.vector -cp (the classes built from src) into the same output directory.
+ */
+public class VectorKernel extends StripKernel
+{
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final boolean burningShip;
+    private final boolean julia;
+    private final boolean periodic;
+
+    /**
+     * The kernel which rejects points in the Mandelbrot set's main cardioid and bulb and counts them, or null if they
+     * are worked out like any other.
+     */
+    private final MandelbrotKernel interiorKernel;
+
+    /**
+     * The lanes of the current strip given maxIter without being worked out, and the numbers of iterations of each
+     * lane, which are counted in doubles so they can be added to with the same mask as the terms.
+     */
+    private final boolean[] rejected;
+    private final double[] counts;
+
+    /**
+     * How many iterations each lane of the current strip works out: fewer than maxIter once its term has repeated.
+     * A lane which gets there has not escaped, so it is given maxIter.
+     */
+    private final double[] targets;
+
+    /**
+     * A strip for the pixels left over at the end of a row, when there are fewer of them than lanes.
+     */
+    private final double[] tailReals;
+    private final int[] tailIterations;
+    private final double[] tailFinalReals;
+    private final double[] tailFinalImags;
+
+    public VectorKernel(boolean burningShip, boolean julia, MandelbrotKernel interiorKernel, boolean periodic)
+    {
+        this.burningShip = burningShip;
+        this.julia = julia;
+        this.interiorKernel = interiorKernel;
+        this.periodic = periodic;
+        this.rejected = new boolean[SPECIES.length()];
+        this.counts = new double[SPECIES.length()];
+        this.targets = new double[SPECIES.length()];
+        this.tailReals = new double[SPECIES.length()];
+        this.tailIterations = new int[SPECIES.length()];
+        this.tailFinalReals = new double[SPECIES.length()];
+        this.tailFinalImags = new double[SPECIES.length()];
+    }
+
+    @Override
+    public void iterate(double[] reals, int count, double ci, double ur, double ui, int maxIter, int[] iterations,
+                        double[] finalReals, double[] finalImags)
+    {
+        int lanes = SPECIES.length();
+        int start = 0;
+        for(; start + lanes <= count; start += lanes)
+        {
+            this.iterateStrip(reals, start, ci, ur, ui, maxIter, iterations, finalReals, finalImags);
+        }
+        if(start < count)
+        {
+            //The last pixels are worked out in a whole strip of their own, the spare lanes repeating the last pixel
+            for(int x = 0; x < lanes; ++x)
+            {
+                this.tailReals[x] = reals[Math.min(start + x, count - 1)];
+            }
+            this.iterateStrip(this.tailReals, 0, ci, ur, ui, maxIter, this.tailIterations, this.tailFinalReals,
+                    this.tailFinalImags);
+            System.arraycopy(this.tailIterations, 0, iterations, start, count - start);
+            System.arraycopy(this.tailFinalReals, 0, finalReals, start, count - start);
+            System.arraycopy(this.tailFinalImags, 0, finalImags, start, count - start);
+        }
+    }
+
+    /**
+     * Works out the pixels from start, as many as there are lanes. Every lane is a real pixel, so that nothing needs a
+     * mask from the length of the strip. Only the terms, the counts and the active lanes are kept in vectors from one
+     * iteration to the next; the rejected lanes and the targets are kept in arrays, since the JIT makes an object for
+     * any vector or mask that a rarely taken branch changes or reads outside the vector operations.
+     */
+    private void iterateStrip(double[] reals, int start, double ci, double ur, double ui, int maxIter,
+                              int[] iterations, double[] finalReals, double[] finalImags)
+    {
+        int lanes = SPECIES.length();
+        for(int x = 0; x < lanes; ++x)
+        {
+            this.rejected[x] = this.interiorKernel != null && this.interiorKernel.rejects(reals[start + x], ci);
+            this.targets[x] = maxIter;
+        }
+        VectorMask<Double> active = VectorMask.fromArray(SPECIES, this.rejected, 0).not();
+        DoubleVector pr = DoubleVector.fromArray(SPECIES, reals, start);
+        DoubleVector pi = DoubleVector.broadcast(SPECIES, ci);
+        DoubleVector ar = this.julia ? DoubleVector.broadcast(SPECIES, ur) : pr;
+        DoubleVector ai = this.julia ? DoubleVector.broadcast(SPECIES, ui) : pi;
+        DoubleVector counts = DoubleVector.zero(SPECIES);
+        VectorMask<Double> repeating;
+        DoubleVector savedReal = pr;
+        DoubleVector savedImag = pi;
+        int savedIter = 0;
+        int nextSave = 2;
+        DoubleVector rr;
+        DoubleVector ii;
+        DoubleVector product;
+        int iter = 0;
+        while(true)
+        {
+            rr = pr.mul(pr);
+            ii = pi.mul(pi);
+            active = active.andNot(rr.add(ii).compare(VectorOperators.GE, 4.0))
+                    .and(counts.compare(VectorOperators.LT, DoubleVector.fromArray(SPECIES, this.targets, 0)));
+            if(!active.anyTrue())
+            {
+                break;
+            }
+            ++iter;
+            product = pr.mul(pi);
+            if(this.burningShip)
+            {
+                product = product.abs();
+            }
+            pr = pr.blend(rr.sub(ii).add(ar), active);
+            pi = pi.blend(product.add(product).add(ai), active);
+            counts = counts.add(1.0, active);
+            if(!this.periodic)
+            {
+                continue;
+            }
+            if(iter == 1)
+            {
+                savedReal = pr;
+                savedImag = pi;
+                savedIter = iter;
+                continue;
+            }
+            repeating = active.and(pr.compare(VectorOperators.EQ, savedReal))
+                    .and(pi.compare(VectorOperators.EQ, savedImag));
+            if(repeating.anyTrue())
+            {
+                //The skipped cycles would leave (maxIter - iter) % period iterations to work out
+                DoubleVector.fromArray(SPECIES, this.targets, 0)
+                        .blend((double) (iter + (maxIter - iter) % (iter - savedIter)), repeating)
+                        .intoArray(this.targets, 0);
+            }
+            if(iter == nextSave)
+            {
+                savedReal = pr;
+                savedImag = pi;
+                savedIter = iter;
+                nextSave *= 2;
+            }
+        }
+        counts.intoArray(this.counts, 0);
+        for(int x = 0; x < lanes; ++x)
+        {
+            //A rejected lane was never worked out, so its term is still the point
+            iterations[start + x] = this.rejected[x] || this.counts[x] >= this.targets[x] ? maxIter
+                    : (int) this.counts[x];
+        }
+        pr.intoArray(finalReals, start);
+        pi.intoArray(finalImags, start);
+    }
+
+    @Override
+    public int getLanes()
+    {
+        return SPECIES.length();
+    }
+}